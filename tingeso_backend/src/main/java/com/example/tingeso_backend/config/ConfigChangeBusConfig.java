@@ -0,0 +1,26 @@
+package com.example.tingeso_backend.config;
+
+import com.example.tingeso_backend.notifications.ConfigChangeBus;
+import com.example.tingeso_backend.notifications.LocalConfigChangeBus;
+import com.example.tingeso_backend.notifications.PostgresConfigChangeBus;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+@Configuration
+public class ConfigChangeBusConfig {
+
+    // Postgres avisa a todas las réplicas con LISTEN/NOTIFY; otras bases (H2) sólo avisan dentro de la JVM
+    @Bean
+    public ConfigChangeBus configChangeBus(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if ("PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                return new PostgresConfigChangeBus(dataSource);
+            }
+        }
+        return new LocalConfigChangeBus();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.tingeso_backend.config;
+
+import com.example.tingeso_backend.scheduling.JobLock;
+import com.example.tingeso_backend.scheduling.LocalJobLock;
+import com.example.tingeso_backend.scheduling.PostgresAdvisoryJobLock;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+@Configuration
+public class JobLockConfig {
+
+    // Postgres usa candados consultivos compartidos por las réplicas; otras bases (H2) usan el sustituto local
+    @Bean
+    public JobLock jobLock(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if ("PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                return new PostgresAdvisoryJobLock(dataSource);
+            }
+        }
+        return new LocalJobLock();
+    }
+}
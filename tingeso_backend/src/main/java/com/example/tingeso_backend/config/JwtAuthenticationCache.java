@@ -0,0 +1,125 @@
+package com.example.tingeso_backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Autenticación de tokens bearer que recuerda el resultado de validar cada token hasta su "exp".
+ * Un mismo token se usa en cientos de llamadas; sólo la primera verifica la firma y arma los roles.
+ * La clave es el SHA-256 del token, para no guardar el token en memoria; el mapa está acotado
+ * (se descarta el menos usado). Los tokens rechazados no se guardan.
+ */
+@Component
+public class JwtAuthenticationCache implements AuthenticationManager {
+
+    @Autowired
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.jwt-cache.max-size:10000}")
+    private int maxSize;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private JwtAuthenticationProvider provider;
+
+    private Counter hits;
+    private Counter misses;
+
+    private record Entry(JwtAuthenticationToken authentication, long expiresAt) {
+    }
+
+    @PostConstruct
+    void init() {
+        provider = new JwtAuthenticationProvider(jwtDecoder);
+        provider.setJwtAuthenticationConverter(SecurityConfig.jwtAuthenticationConverter());
+        hits = Counter.builder("security.jwt.cache").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("security.jwt.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("security.jwt.cache.size", this, cache -> cache.size()).register(meterRegistry);
+        Gauge.builder("security.jwt.cache.hit.ratio", this, cache -> cache.hitRatio()).register(meterRegistry);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        // Sólo autentica tokens bearer, como el JwtAuthenticationProvider al que reemplaza
+        if (!(authentication instanceof BearerTokenAuthenticationToken bearer)) {
+            throw new ProviderNotFoundException("Tipo de autenticación no soportado: " + authentication.getClass().getName());
+        }
+        String key = sha256(bearer.getToken());
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt() <= now) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            hits.increment();
+            // Token nuevo por request: los detalles (IP, sesión) son de esta solicitud
+            JwtAuthenticationToken cached = entry.authentication();
+            JwtAuthenticationToken result = new JwtAuthenticationToken(cached.getToken(), cached.getAuthorities(), cached.getName());
+            result.setDetails(bearer.getDetails());
+            return result;
+        }
+
+        misses.increment();
+        Authentication result = provider.authenticate(bearer); // lanza si la firma o las fechas no son válidas
+        if (result instanceof JwtAuthenticationToken jwtAuthentication) {
+            Instant expiresAt = jwtAuthentication.getToken().getExpiresAt();
+            if (expiresAt != null) {
+                synchronized (this) {
+                    entries.put(key, new Entry(jwtAuthentication, expiresAt.toEpochMilli()));
+                }
+            }
+        }
+        return result;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
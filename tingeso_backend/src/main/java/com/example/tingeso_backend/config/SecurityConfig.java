@@ -1,5 +1,7 @@
 package com.example.tingeso_backend.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -23,6 +25,13 @@ import java.util.Map;
 @EnableMethodSecurity
 public class SecurityConfig {
 
+    @Autowired
+    JwtAuthenticationCache jwtAuthenticationCache;
+
+    // false: cada request vuelve a verificar la firma y a convertir los roles
+    @Value("${security.jwt-cache.enabled:true}")
+    boolean jwtCacheEnabled;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -33,7 +42,13 @@ public class SecurityConfig {
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter()))
+                        .jwt(jwt -> {
+                            if (jwtCacheEnabled) {
+                                jwt.authenticationManager(jwtAuthenticationCache);
+                            } else {
+                                jwt.jwtAuthenticationConverter(jwtAuthenticationConverter());
+                            }
+                        })
                 );
         return http.build();
     }
@@ -52,7 +67,8 @@ public class SecurityConfig {
         return source;
     }
 
-    private JwtAuthenticationConverter jwtAuthenticationConverter() {
+    // Roles de Keycloak como ROLE_*; también lo usa JwtAuthenticationCache al validar un token nuevo
+    static JwtAuthenticationConverter jwtAuthenticationConverter() {
         JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
         converter.setJwtGrantedAuthoritiesConverter(jwt -> {
             Collection<GrantedAuthority> authorities = new ArrayList<>();
@@ -1,12 +1,17 @@
 package com.example.tingeso_backend.controllers;
 
+import com.example.tingeso_backend.dto.ClientAccountSummaryDTO;
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
+import com.example.tingeso_backend.dto.ClientSummaryDTO;
+import com.example.tingeso_backend.dto.CursorPageDTO;
 import com.example.tingeso_backend.entities.ClientEntity;
+import com.example.tingeso_backend.identity.CurrentClient;
+import com.example.tingeso_backend.services.ClientEligibilityService;
 import com.example.tingeso_backend.services.ClientService;
+import com.example.tingeso_backend.services.ClientSummaryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,11 +24,34 @@ public class ClientController {
     @Autowired
     ClientService clientService;
 
+    @Autowired
+    ClientEligibilityService eligibilityService;
+
+    @Autowired
+    ClientSummaryService summaryService;
+
 
+    // Paginado por cursor; unpaged=true mantiene la lista completa que usa el frontend actual
     @GetMapping("/")
-    public ResponseEntity<List<ClientEntity>> listClients() {
-        List<ClientEntity> clients = clientService.getClients();
-        return ResponseEntity.ok(clients);
+    public ResponseEntity<?> listClients(@RequestParam(required = false) String after,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(defaultValue = "false") boolean unpaged) {
+        if (unpaged) {
+            List<ClientEntity> clients = clientService.getClients();
+            return ResponseEntity.ok(clients);
+        }
+        CursorPageDTO<ClientEntity> page = clientService.getClientsPage(after, limit);
+        return ResponseEntity.ok(page);
+    }
+
+
+    // Búsqueda por RUT, prefijo de nombre o de correo, ordenada por relevancia y paginada por cursor
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/search")
+    public ResponseEntity<CursorPageDTO<ClientSummaryDTO>> searchClients(@RequestParam String q,
+                                                                         @RequestParam(required = false) String after,
+                                                                         @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(clientService.searchClients(q, after, limit));
     }
 
 
@@ -34,6 +62,14 @@ public class ClientController {
     }
 
 
+    // Préstamos activos, multas pendientes y elegibilidad del cliente en una sola respuesta
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/{id}/summary")
+    public ResponseEntity<ClientAccountSummaryDTO> getClientSummary(@PathVariable Long id) {
+        return ResponseEntity.ok(summaryService.getSummary(id));
+    }
+
+
     @PostMapping("/")
     public ResponseEntity<ClientEntity> saveClient(@RequestBody ClientEntity employee) {
         ClientEntity clientNew = clientService.saveEmployee(employee);
@@ -55,15 +91,28 @@ public class ClientController {
     }
 
     @GetMapping("/me")
-    public ResponseEntity<ClientEntity> getCurrentClient(@AuthenticationPrincipal JwtAuthenticationToken principal) {
-        ClientEntity client = clientService.getCurrentClient(principal);
+    public ResponseEntity<ClientEntity> getCurrentClient(@CurrentClient ClientIdentityDTO identity) {
+        ClientEntity client = clientService.getCurrentClient(identity);
         return ResponseEntity.ok(client);
     }
 
+    @GetMapping("/me/summary")
+    public ResponseEntity<ClientAccountSummaryDTO> getCurrentClientSummary(@CurrentClient ClientIdentityDTO identity) {
+        return ResponseEntity.ok(summaryService.getSummary(identity.getClientId()));
+    }
+
     @PutMapping("/me")
-    public ResponseEntity<ClientEntity> updateCurrentClient(@AuthenticationPrincipal JwtAuthenticationToken principal, @RequestBody ClientEntity clientDetails) {
-        ClientEntity updatedClient = clientService.updateCurrentClient(principal, clientDetails);
+    public ResponseEntity<ClientEntity> updateCurrentClient(@CurrentClient ClientIdentityDTO identity, @RequestBody ClientEntity clientDetails) {
+        ClientEntity updatedClient = clientService.updateCurrentClient(identity, clientDetails);
         return ResponseEntity.ok(updatedClient);
     }
 
+    // Reconstruye los registros de elegibilidad desde préstamos y multas; devuelve los clientes con desviación
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/eligibility/reconcile")
+    public ResponseEntity<List<Long>> reconcileEligibility() {
+        List<Long> drifted = eligibilityService.reconcile();
+        return ResponseEntity.ok(drifted);
+    }
+
 }
@@ -7,6 +7,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/config")
 @CrossOrigin("*")
@@ -17,16 +19,23 @@ public class ConfigurationController {
     private ConfigurationService configurationService;
 
 
+    // Todas las tarifas en una sola respuesta
+    @GetMapping({"", "/"})
+    public ResponseEntity<Map<String, Integer>> getAllFees() {
+        return ResponseEntity.ok(configurationService.getAllFees());
+    }
+
+
     @PutMapping("/rental-fee")
     public ResponseEntity<?> setRentalFee(@RequestBody FeeUpdateRequestDTO dto) {
-        configurationService.updateFee("daily_rental_fee", dto.getValue());
+        configurationService.updateFee("daily_rental_fee", dto.getValue(), dto.getEffectiveFrom());
         return ResponseEntity.ok("Tarifa de arriendo actualizada.");
     }
 
 
     @PutMapping("/late-fee")
     public ResponseEntity<?> setLateFee(@RequestBody FeeUpdateRequestDTO dto) {
-        configurationService.updateFee("daily_late_fee", dto.getValue());
+        configurationService.updateFee("daily_late_fee", dto.getValue(), dto.getEffectiveFrom());
         return ResponseEntity.ok("Tarifa de multa actualizada.");
     }
 
@@ -45,7 +54,7 @@ public class ConfigurationController {
 
     @PutMapping("/repair-fee")
     public ResponseEntity<?> setRepairFee(@RequestBody FeeUpdateRequestDTO dto) {
-        configurationService.updateFee("repair_fee", dto.getValue());
+        configurationService.updateFee("repair_fee", dto.getValue(), dto.getEffectiveFrom());
         return ResponseEntity.ok("Cargo por reparación actualizado.");
     }
 
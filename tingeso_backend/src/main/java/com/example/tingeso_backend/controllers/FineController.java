@@ -1,11 +1,14 @@
 package com.example.tingeso_backend.controllers;
 
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
+import com.example.tingeso_backend.dto.CursorPageDTO;
 import com.example.tingeso_backend.dto.FineDTO;
+import com.example.tingeso_backend.dto.PendingFineSummaryDTO;
+import com.example.tingeso_backend.identity.CurrentClient;
 import com.example.tingeso_backend.services.FineService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -19,21 +22,37 @@ public class FineController {
     private FineService fineService;
 
 
+    // Paginado por cursor; unpaged=true mantiene la lista completa que usa el frontend actual
     @GetMapping("/")
-    public ResponseEntity<List<FineDTO>> getAllFines() {
-        List<FineDTO> fines = fineService.getAllFines();
-        return ResponseEntity.ok(fines);
+    public ResponseEntity<?> getAllFines(@RequestParam(required = false) String after,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(defaultValue = "false") boolean unpaged) {
+        if (unpaged) {
+            List<FineDTO> fines = fineService.getAllFines();
+            return ResponseEntity.ok(fines);
+        }
+        CursorPageDTO<FineDTO> page = fineService.getFinesPage(after, limit);
+        return ResponseEntity.ok(page);
     }
 
 
     @GetMapping("/my-fines")
-    public ResponseEntity<List<FineDTO>> getMyFines(JwtAuthenticationToken principal) {
-        String keycloakId = principal.getName(); // Obtiene el 'sub' del token del usuario actual
-        List<FineDTO> fines = fineService.getFinesForUser(keycloakId);
+    public ResponseEntity<List<FineDTO>> getMyFines(@CurrentClient(required = false) ClientIdentityDTO identity) {
+        if (identity == null) {
+            return ResponseEntity.ok(List.of());
+        }
+        List<FineDTO> fines = fineService.getFinesForClient(identity.getClientId());
         return ResponseEntity.ok(fines);
     }
 
 
+    @GetMapping("/client/{clientId}/pending-summary")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PendingFineSummaryDTO> getPendingFineSummary(@PathVariable Long clientId) {
+        return ResponseEntity.ok(fineService.getPendingFineSummary(clientId));
+    }
+
+
     @PutMapping("/{id}/pay")
     public ResponseEntity<String> payFine(@PathVariable Long id) {
         fineService.payFine(id);
@@ -1,14 +1,24 @@
 package com.example.tingeso_backend.controllers;
 
+import com.example.tingeso_backend.dto.CursorPageDTO;
+import com.example.tingeso_backend.dto.KardexBalanceDTO;
 import com.example.tingeso_backend.entities.KardexEntity;
+import com.example.tingeso_backend.services.KardexBalanceService;
 import com.example.tingeso_backend.services.KardexService;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -19,13 +29,60 @@ public class KardexController {
     @Autowired
     private KardexService kardexService;
 
+    @Autowired
+    private KardexBalanceService balanceService;
+
+    // Paginado por cursor; unpaged=true mantiene la lista completa que usa el frontend actual
+    // toolId filtra una fila de herramienta; toolName, todas las que comparten el nombre (sin distinguir mayúsculas)
     @GetMapping("/")
-    public ResponseEntity<List<KardexEntity>> getMovements(
+    public ResponseEntity<?> getMovements(
+            @RequestParam(required = false) Long toolId,
             @RequestParam(required = false) String toolName,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean unpaged
+    ) {
+        if (unpaged) {
+            List<KardexEntity> movements = kardexService.getMovements(toolId, toolName, startDate, endDate);
+            return ResponseEntity.ok(movements);
+        }
+        CursorPageDTO<KardexEntity> page = kardexService.getMovementsPage(toolId, toolName, startDate, endDate, after, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    // Unidades de la herramienta en la fecha indicada (por defecto, ahora) según checkpoints diarios
+    @GetMapping("/balance")
+    public ResponseEntity<KardexBalanceDTO> getBalance(
+            @RequestParam String toolName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at
     ) {
-        List<KardexEntity> movements = kardexService.getMovements(toolName, startDate, endDate);
-        return ResponseEntity.ok(movements);
+        return ResponseEntity.ok(balanceService.getBalanceAt(toolName, at != null ? at : LocalDateTime.now()));
+    }
+
+    // Exportación en streaming (NDJSON o CSV) con los mismos filtros que el listado
+    @GetMapping("/export")
+    public void exportMovements(
+            @RequestParam(required = false) Long toolId,
+            @RequestParam(required = false) String toolName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response
+    ) throws IOException {
+        String contentType;
+        if ("csv".equalsIgnoreCase(format)) {
+            contentType = "text/csv";
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            contentType = "application/x-ndjson";
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Formato no soportado: " + format);
+        }
+        response.setContentType(contentType);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"kardex." + format.toLowerCase() + "\"");
+        kardexService.exportMovements(toolId, toolName, startDate, endDate, format, response.getOutputStream());
     }
-}
\ No newline at end of file
+}
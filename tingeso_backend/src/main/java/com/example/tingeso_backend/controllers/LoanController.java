@@ -1,10 +1,13 @@
 package com.example.tingeso_backend.controllers;
 
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
+import com.example.tingeso_backend.dto.CursorPageDTO;
 import com.example.tingeso_backend.dto.LoanDTO;
 import com.example.tingeso_backend.dto.LoanWithFineInfoDTO;
 import com.example.tingeso_backend.dto.ReturnRequestDTO;
 import com.example.tingeso_backend.entities.LoanEntity;
 import com.example.tingeso_backend.entities.ToolEntity;
+import com.example.tingeso_backend.identity.CurrentClient;
 import com.example.tingeso_backend.services.LoanService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,10 +28,17 @@ public class LoanController {
     private LoanService loanService;
 
 
+    // Paginado por cursor; unpaged=true mantiene la lista completa que usa el frontend actual
     @GetMapping("/")
-    public ResponseEntity<List<LoanWithFineInfoDTO>> listLoans() {
-        List<LoanWithFineInfoDTO> loans = loanService.getLoansWithFineInfo();
-        return ResponseEntity.ok(loans);
+    public ResponseEntity<?> listLoans(@RequestParam(required = false) String after,
+                                       @RequestParam(required = false) Integer limit,
+                                       @RequestParam(defaultValue = "false") boolean unpaged) {
+        if (unpaged) {
+            List<LoanWithFineInfoDTO> loans = loanService.getLoansWithFineInfo();
+            return ResponseEntity.ok(loans);
+        }
+        CursorPageDTO<LoanWithFineInfoDTO> page = loanService.getLoansWithFineInfoPage(after, limit);
+        return ResponseEntity.ok(page);
     }
 
 
@@ -62,9 +72,12 @@ public class LoanController {
     }
 
     @GetMapping("/my-loans")
-    public ResponseEntity<List<LoanWithFineInfoDTO>> getMyLoans(JwtAuthenticationToken principal) {
-        String keycloakId = principal.getName(); // 'sub' del token
-        List<LoanWithFineInfoDTO> loans = loanService.getLoansForUser(keycloakId);
+    public ResponseEntity<List<LoanWithFineInfoDTO>> getMyLoans(@CurrentClient(required = false) ClientIdentityDTO identity) {
+        // Sin perfil de cliente todavía: no tiene préstamos
+        if (identity == null) {
+            return ResponseEntity.ok(List.of());
+        }
+        List<LoanWithFineInfoDTO> loans = loanService.getLoansForClient(identity.getClientId());
         return ResponseEntity.ok(loans);
     }
 
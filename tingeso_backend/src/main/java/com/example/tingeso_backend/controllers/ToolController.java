@@ -1,6 +1,11 @@
 package com.example.tingeso_backend.controllers;
 
+import com.example.tingeso_backend.dto.CursorPageDTO;
+import com.example.tingeso_backend.dto.ToolFacetsDTO;
+import com.example.tingeso_backend.dto.ToolSearchCriteria;
+import com.example.tingeso_backend.dto.ToolSummaryDTO;
 import com.example.tingeso_backend.entities.ToolEntity;
+import com.example.tingeso_backend.services.ToolFacetsService;
 import com.example.tingeso_backend.services.ToolService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -16,11 +21,46 @@ public class ToolController {
     @Autowired
     ToolService toolService;
 
+    @Autowired
+    private ToolFacetsService toolFacetsService;
+
 
+    // Paginado por cursor; unpaged=true mantiene la lista completa que usa el frontend actual
     @GetMapping("/")
-    public ResponseEntity<List<ToolEntity>> listTools() {
-        List<ToolEntity> tools = toolService.getTools();
-        return ResponseEntity.ok(tools);
+    public ResponseEntity<?> listTools(@RequestParam(required = false) String after,
+                                       @RequestParam(required = false) Integer limit,
+                                       @RequestParam(defaultValue = "false") boolean unpaged) {
+        if (unpaged) {
+            List<ToolEntity> tools = toolService.getTools();
+            return ResponseEntity.ok(tools);
+        }
+        CursorPageDTO<ToolEntity> page = toolService.getToolsPage(after, limit);
+        return ResponseEntity.ok(page);
+    }
+
+
+    // Catálogo filtrado y paginado en el servidor; excluye las herramientas dadas de baja salvo que se pidan
+    @GetMapping("/search")
+    public ResponseEntity<CursorPageDTO<ToolSummaryDTO>> searchTools(@RequestParam(required = false) String category,
+                                                                     @RequestParam(required = false) String status,
+                                                                     @RequestParam(required = false) String namePrefix,
+                                                                     @RequestParam(required = false) Integer minReplacementValue,
+                                                                     @RequestParam(defaultValue = "false") boolean includeWrittenOff,
+                                                                     @RequestParam(required = false) String after,
+                                                                     @RequestParam(required = false) Integer limit) {
+        ToolSearchCriteria criteria = new ToolSearchCriteria(blankToNull(category), blankToNull(status),
+                blankToNull(namePrefix), minReplacementValue, includeWrittenOff);
+        return ResponseEntity.ok(toolService.searchTools(criteria, after, limit));
+    }
+
+    // Nombres y categorías distintos con cantidades por estado, para poblar filtros sin bajar el catálogo
+    @GetMapping("/facets")
+    public ResponseEntity<ToolFacetsDTO> getFacets() {
+        return ResponseEntity.ok(toolFacetsService.getFacets());
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
     }
 
 
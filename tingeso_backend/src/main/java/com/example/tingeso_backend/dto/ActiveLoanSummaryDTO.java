@@ -0,0 +1,21 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Préstamo activo dentro del resumen de cuenta: sólo lo que se muestra, sin el grafo del préstamo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActiveLoanSummaryDTO {
+    private Long loanId;
+    private Long toolId;
+    private String toolName;
+    private LocalDate loanDate;
+    private LocalDate dueDate;
+    private Boolean overdue;
+    private Integer accruedLateFee;
+}
@@ -0,0 +1,27 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Situación de un cliente en una sola respuesta: préstamos activos, multas pendientes y si puede pedir prestado
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientAccountSummaryDTO {
+    private Long clientId;
+    private String name;
+    private String status;
+    private List<ActiveLoanSummaryDTO> activeLoans;
+    private int activeLoanCount;
+    private int overdueLoanCount;
+    private LocalDate earliestDueDate;
+    private long pendingFineCount;
+    private long pendingFineTotal;
+    private String restrictionReason; // null cuando puede pedir prestado
+    private boolean eligibleToBorrow;
+    private LocalDate computedOn;
+}
@@ -0,0 +1,14 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Cliente asociado al usuario autenticado: lo mínimo para las pantallas /me sin cargar la entidad
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientIdentityDTO {
+    private Long clientId;
+    private String status;
+}
@@ -0,0 +1,17 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Préstamos activos de un cliente agregados en la base: cantidad y vencimiento más próximo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientLoanStatsDTO {
+    private Long clientId;
+    private Long activeLoanCount;
+    private LocalDate earliestDueDate;
+}
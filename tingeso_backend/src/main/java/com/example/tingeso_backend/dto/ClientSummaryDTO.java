@@ -0,0 +1,19 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila de la búsqueda de clientes; match indica por qué coincidió ("rut", "name" o "email"), en ese orden de relevancia
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientSummaryDTO {
+    private Long id;
+    private String name;
+    private String rut;
+    private String email;
+    private String phone;
+    private String status;
+    private String match;
+}
@@ -2,7 +2,11 @@ package com.example.tingeso_backend.dto;
 
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 @Data
 public class FeeUpdateRequestDTO {
     private int value;
+    // Opcional: fecha desde la que rige la nueva tarifa; si falta, rige de inmediato
+    private LocalDateTime effectiveFrom;
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Unidades de una herramienta (todas las filas con ese nombre) según el kardex en el instante "at"
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KardexBalanceDTO {
+    private String toolName;
+    private LocalDateTime at;
+    private long balance;
+}
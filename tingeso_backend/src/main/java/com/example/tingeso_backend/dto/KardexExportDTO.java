@@ -0,0 +1,21 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Fila plana del kardex para exportación: sólo el id y nombre de la herramienta, no la entidad completa
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KardexExportDTO {
+    private Long id;
+    private LocalDateTime movementDate;
+    private Long toolId;
+    private String toolName;
+    private String movementType;
+    private Integer quantityAffected;
+    private String userResponsible;
+}
@@ -0,0 +1,19 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Contenido del evento de outbox "KardexMovement"; el despachador lo convierte en una fila de kardex
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KardexMovementEventDTO {
+    private Long toolId;
+    private String movementType;
+    private LocalDateTime movementDate;
+    private int quantityAffected;
+    private String userResponsible;
+}
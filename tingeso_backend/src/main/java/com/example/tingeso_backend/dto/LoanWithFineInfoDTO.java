@@ -1,8 +1,10 @@
 package com.example.tingeso_backend.dto;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.time.LocalDate;
 
 @Data // Lombok para generar getters y setters automáticamente
+@NoArgsConstructor
 public class LoanWithFineInfoDTO {
     private Long id;
     private String clientName;
@@ -16,4 +18,19 @@ public class LoanWithFineInfoDTO {
     private Long fineId;
     private Integer fineAmount;
     private String fineStatus;
-}
\ No newline at end of file
+
+    // Usado por la proyección JPQL de LoanRepository (SUM devuelve Long)
+    public LoanWithFineInfoDTO(Long id, String clientName, String toolName, LocalDate loanDate, LocalDate dueDate,
+                               LocalDate returnDate, String status, Long fineId, Long fineAmount, String fineStatus) {
+        this.id = id;
+        this.clientName = clientName;
+        this.toolName = toolName;
+        this.loanDate = loanDate;
+        this.dueDate = dueDate;
+        this.returnDate = returnDate;
+        this.status = status;
+        this.fineId = fineId;
+        this.fineAmount = (fineAmount != null) ? fineAmount.intValue() : null;
+        this.fineStatus = fineStatus;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Préstamo vencido pendiente de actualizar su monto por atraso; (dueDate, id) es la clave del keyset del barrido
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OverdueLoanDTO {
+    private Long id;
+    private LocalDate loanDate;
+    private LocalDate dueDate;
+}
@@ -0,0 +1,15 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Resumen de multas pendientes de un cliente, calculado en la base
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingFineSummaryDTO {
+    private Long clientId;
+    private Long pendingCount;
+    private Long pendingTotal;
+}
@@ -0,0 +1,15 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila del GROUP BY de facetas: un valor (nombre o categoría), un estado y cuántas herramientas lo tienen
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolFacetCountDTO {
+    private String value;
+    private String status;
+    private Long count;
+}
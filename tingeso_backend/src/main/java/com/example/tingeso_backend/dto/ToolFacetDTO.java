@@ -0,0 +1,16 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolFacetDTO {
+    private String value;
+    private long total;
+    private Map<String, Long> countsByStatus;
+}
@@ -0,0 +1,16 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Nombres (en minúsculas, sin repetir) y categorías del catálogo, ordenados alfabéticamente
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolFacetsDTO {
+    private List<ToolFacetDTO> names;
+    private List<ToolFacetDTO> categories;
+}
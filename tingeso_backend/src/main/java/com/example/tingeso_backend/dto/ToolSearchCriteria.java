@@ -0,0 +1,17 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Filtros opcionales de la búsqueda del catálogo; los nulos no restringen
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolSearchCriteria {
+    private String category;
+    private String status;
+    private String namePrefix;
+    private Integer minReplacementValue;
+    private boolean includeWrittenOff; // por defecto se excluyen las herramientas "Dada de baja"
+}
@@ -0,0 +1,19 @@
+package com.example.tingeso_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila liviana del catálogo de herramientas para búsquedas y listados
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolSummaryDTO {
+    private Long id;
+    private String name;
+    private String category;
+    private String status;
+    private Integer replacementValue;
+    private Integer availableStock;
+    private String inventoryMode;
+}
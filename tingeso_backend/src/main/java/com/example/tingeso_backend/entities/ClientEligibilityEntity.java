@@ -0,0 +1,25 @@
+package com.example.tingeso_backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Resumen precalculado de la situación de un cliente para validar préstamos con una sola lectura por clave.
+// Se mantiene en la misma transacción que los préstamos y multas; ClientEligibilityService.reconcile lo reconstruye.
+@Entity
+@Table(name = "client_eligibility")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientEligibilityEntity {
+    @Id
+    private Long clientId;
+
+    private int activeLoanCount;
+    private int pendingFineCount;
+    private LocalDate earliestDueDate; // vencimiento más próximo entre los préstamos activos
+    private boolean restricted;        // true mientras existan multas pendientes
+}
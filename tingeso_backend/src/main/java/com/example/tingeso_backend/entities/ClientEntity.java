@@ -1,20 +1,33 @@
 package com.example.tingeso_backend.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotEmpty;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
+import java.util.Locale;
 
 @Entity
-@Table(name = "clients")
+// Índices de la búsqueda de clientes (RUT exacto, prefijos de nombre y correo); ver migraciones de Flyway
+@Table(name = "clients", indexes = {
+        @Index(name = "uk_clients_rut_key", columnList = "rut_key", unique = true),
+        @Index(name = "idx_clients_name_key_id", columnList = "name_key, id"),
+        @Index(name = "idx_clients_email_key_id", columnList = "email_key, id")
+})
+// Referenciada con proxies perezosos desde préstamos; los campos internos del proxy no se serializan
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ClientEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "clients_seq")
+    @SequenceGenerator(name = "clients_seq", sequenceName = "clients_seq", allocationSize = 50)
     @Column(unique = true, nullable = false)
     private Long id;
 
@@ -30,4 +43,57 @@ public class ClientEntity {
 
     @Column(unique = true) // Cada usuario de Keycloak solo puede tener un cliente
     private String keycloakId;
+
+    // Claves de búsqueda derivadas; las fijan setRut, setName y setEmail
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private String rutKey;
+
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private String nameKey;
+
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private String emailKey;
+
+    public void setRut(String rut) {
+        this.rut = rut;
+        this.rutKey = normalizeRut(rut);
+    }
+
+    public void setName(String name) {
+        this.name = name;
+        this.nameKey = normalizeText(name);
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+        this.emailKey = normalizeText(email);
+    }
+
+    // "12.345.678-k" y "12345678K" son el mismo RUT
+    public static String normalizeRut(String rut) {
+        if (rut == null) {
+            return null;
+        }
+        String key = rut.replaceAll("[.\\s-]", "").toUpperCase(Locale.ROOT);
+        return key.isEmpty() ? null : key;
+    }
+
+    public static String normalizeText(String value) {
+        return value != null ? value.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ClientEntity other)) return false;
+        return id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return ClientEntity.class.hashCode();
+    }
 }
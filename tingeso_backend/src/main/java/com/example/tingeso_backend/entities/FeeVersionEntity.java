@@ -0,0 +1,32 @@
+package com.example.tingeso_backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Historial de tarifas: cada cambio agrega una versión vigente desde effectiveFrom, nunca se sobrescribe
+@Entity
+@Table(name = "fee_versions", indexes = {
+        @Index(name = "idx_fee_versions_key_effective_from", columnList = "config_key, effective_from")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeVersionEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fee_versions_seq")
+    @SequenceGenerator(name = "fee_versions_seq", sequenceName = "fee_versions_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String configKey;
+
+    private int feeValue;
+
+    @Column(nullable = false)
+    private LocalDateTime effectiveFrom;
+}
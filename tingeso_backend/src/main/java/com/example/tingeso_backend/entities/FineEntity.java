@@ -3,26 +3,63 @@ package com.example.tingeso_backend.entities;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.ToString;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "fines")
+@Table(name = "fines", indexes = {
+        @Index(name = "idx_fines_loan_id", columnList = "loan_id"),
+        @Index(name = "idx_fines_status", columnList = "status"),
+        @Index(name = "idx_fines_client_id_status", columnList = "client_id, status")
+})
+// Listados de multas: préstamo, cliente y herramienta se leen con la multa para armar FineDTO
+@NamedEntityGraph(name = "FineEntity.withLoanDetails",
+        attributeNodes = @NamedAttributeNode(value = "loan", subgraph = "loan"),
+        subgraphs = @NamedSubgraph(name = "loan", attributeNodes = {
+                @NamedAttributeNode("client"),
+                @NamedAttributeNode("tool")
+        }))
 @Data
 public class FineEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fines_seq")
+    @SequenceGenerator(name = "fines_seq", sequenceName = "fines_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "loan_id", nullable = false)
     @JsonBackReference
+    @ToString.Exclude
     private LoanEntity loan;
 
+    // Copia del cliente del préstamo para consultar multas por cliente sin pasar por loans
+    @Column(name = "client_id", nullable = false, updatable = false)
+    private Long clientId;
+
     private String fineType; // "Atraso", "Daño irreparable"
     private int amount;
     private String status;
 
     private LocalDate creationDate;
     private LocalDate paymentDate;
-}
\ No newline at end of file
+
+    @PrePersist
+    void copyClientFromLoan() {
+        if (clientId == null && loan != null && loan.getClient() != null) {
+            clientId = loan.getClient().getId();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FineEntity other)) return false;
+        return id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return FineEntity.class.hashCode();
+    }
+}
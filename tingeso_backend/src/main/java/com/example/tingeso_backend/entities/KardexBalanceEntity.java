@@ -0,0 +1,36 @@
+package com.example.tingeso_backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Saldo de una herramienta al cierre de cada día con movimientos: suma de quantityAffected hasta ese día inclusive.
+// Lo mantiene KardexBalanceService en la misma transacción en que se insertan los movimientos.
+@Entity
+@Table(name = "kardex_daily_balances")
+@IdClass(KardexBalanceEntity.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KardexBalanceEntity {
+
+    @Id
+    private Long toolId;
+
+    @Id
+    private LocalDate balanceDate;
+
+    private long closingBalance;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long toolId;
+        private LocalDate balanceDate;
+    }
+}
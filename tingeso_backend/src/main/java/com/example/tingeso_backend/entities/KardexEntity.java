@@ -4,25 +4,46 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "kardex")
+@Table(name = "kardex", indexes = {
+        @Index(name = "idx_kardex_movement_date_id", columnList = "movement_date, id"),
+        @Index(name = "idx_kardex_tool_id_movement_date", columnList = "tool_id, movement_date")
+}, uniqueConstraints = @UniqueConstraint(name = "uk_kardex_event_id", columnNames = {"event_id", "movement_date"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class KardexEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "kardex_seq")
+    @SequenceGenerator(name = "kardex_seq", sequenceName = "kardex_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "tool_id", nullable = false)
-
+    @ToString.Exclude
     private ToolEntity tool;
     private String movementType;
-    private LocalDateTime movementDate;
+    @Column(nullable = false)
+    private LocalDateTime movementDate; // clave de partición mensual en Postgres
     private int quantityAffected;
     private String userResponsible;
-}
\ No newline at end of file
+
+    @Column(length = 36)
+    private String eventId; // evento de outbox que originó el movimiento; único junto con movementDate
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof KardexEntity other)) return false;
+        return id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return KardexEntity.class.hashCode();
+    }
+}
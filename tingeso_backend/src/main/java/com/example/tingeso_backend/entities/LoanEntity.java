@@ -8,34 +8,67 @@ import jakarta.validation.constraints.NotEmpty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(name = "loans")
+// Índices creados por las migraciones de Flyway; se declaran aquí sólo como referencia
+@Table(name = "loans", indexes = {
+        @Index(name = "idx_loans_client_id_status", columnList = "client_id, status"),
+        // Soporta el barrido de préstamos vencidos (status = 'Activo' AND due_date < hoy), paginado por (due_date, id)
+        @Index(name = "idx_loans_status_due_date_id", columnList = "status, due_date, id")
+})
+// Devolución: el préstamo con su cliente y herramienta en una sola consulta
+@NamedEntityGraph(name = "LoanEntity.withClientAndTool", attributeNodes = {
+        @NamedAttributeNode("client"),
+        @NamedAttributeNode("tool")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class LoanEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loans_seq")
+    @SequenceGenerator(name = "loans_seq", sequenceName = "loans_seq", allocationSize = 50)
     @Column(unique = true, nullable = false)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_id", nullable = false)
+    @ToString.Exclude
     private ClientEntity client;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "tool_id", nullable = false)
+    @ToString.Exclude
     private ToolEntity tool;
     private LocalDate loanDate;
     private LocalDate dueDate;
     private LocalDate returnDate;
     private String status;
+
+    // Mantenidos por OverdueLoanSweeper mientras el préstamo siga activo y vencido
+    private Boolean overdue;
+    private Integer accruedLateFee;
+    private LocalDate lateFeeAccruedOn; // último día en que se actualizó el monto acumulado
     
-    @OneToMany(mappedBy = "loan", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "loan", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
+    @ToString.Exclude
     private List<FineEntity> fines;
+
+    // Igualdad por identidad: dos instancias son la misma entidad si comparten id (también a través de proxies)
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LoanEntity other)) return false;
+        return id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return LoanEntity.class.hashCode();
+    }
 }
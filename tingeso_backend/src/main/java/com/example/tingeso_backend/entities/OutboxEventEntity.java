@@ -0,0 +1,50 @@
+package com.example.tingeso_backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Evento de dominio escrito en la misma transacción que lo origina; processedAt queda nulo hasta despacharlo.
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_events_pending", columnList = "event_type, processed_at, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEventEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 36)
+    private String eventId; // UUID; los consumidores lo usan para descartar entregas repetidas
+
+    @Column(nullable = false)
+    private String eventType;
+
+    private Long aggregateId;
+
+    @Column(nullable = false, length = 2000)
+    private String payload; // JSON
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime processedAt;
+
+    // Un evento que no se puede despachar queda marcado en failedAt, fuera de los pendientes, con el motivo
+    // en lastError; para reintentarlo se limpia failedAt y attempts sigue acumulando
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime failedAt;
+}
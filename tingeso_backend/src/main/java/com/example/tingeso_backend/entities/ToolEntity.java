@@ -1,32 +1,85 @@
 package com.example.tingeso_backend.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.util.Locale;
 
 @Entity
-@Table(name = "tools")
+// Índices de la búsqueda del catálogo (filtro + orden por nombre, id); ver migraciones de Flyway
+@Table(name = "tools", indexes = {
+        @Index(name = "idx_tools_category_name_id", columnList = "category, name, id"),
+        @Index(name = "idx_tools_status_name_id", columnList = "status, name, id"),
+        @Index(name = "idx_tools_name_id", columnList = "name, id"),
+        @Index(name = "idx_tools_name_key", columnList = "name_key")
+})
+// Sólo se escriben las columnas modificadas, para no pisar los contadores que se actualizan con UPDATE atómicos
+@DynamicUpdate
+// Referenciada con proxies perezosos desde préstamos y kardex
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ToolEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tools_seq")
+    @SequenceGenerator(name = "tools_seq", sequenceName = "tools_seq", allocationSize = 50)
     @Column(unique = true, nullable = false)
     private Long id;
 
     @NotEmpty
     private String name;
 
+    // Nombre normalizado (sin espacios extremos, en minúsculas) para buscar por nombre con índice; lo fija setName
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private String nameKey;
+
     @NotEmpty
     private String category;
     private String stateInitial;
     
     @Min(value = 1)
     private int replacementValue;
-    private int AvailableStock;
+    private int availableStock;
     private String status;
+
+    // "Stock": la fila representa availableStock unidades intercambiables.
+    // Nulo o "Unidad": cada unidad física es su propia fila y la disponibilidad está en status.
+    private String inventoryMode;
+
+    public void setName(String name) {
+        this.name = name;
+        this.nameKey = normalizeName(name);
+    }
+
+    public static String normalizeName(String name) {
+        return name != null ? name.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    @JsonIgnore
+    public boolean isStockCounted() {
+        return "Stock".equals(inventoryMode);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ToolEntity other)) return false;
+        return id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return ToolEntity.class.hashCode();
+    }
 }
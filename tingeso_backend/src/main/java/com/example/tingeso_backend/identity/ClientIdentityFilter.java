@@ -0,0 +1,35 @@
+package com.example.tingeso_backend.identity;
+
+import com.example.tingeso_backend.services.ClientIdentityCache;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Corre después de la cadena de Spring Security (orden por defecto), cuando el token ya fue validado
+@Component
+public class ClientIdentityFilter extends OncePerRequestFilter {
+
+    public static final String ATTRIBUTE = ClientIdentityFilter.class.getName() + ".identity";
+
+    @Autowired
+    private ClientIdentityCache identityCache;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof JwtAuthenticationToken token) {
+            identityCache.resolve(token.getName()).ifPresent(identity -> request.setAttribute(ATTRIBUTE, identity));
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.tingeso_backend.identity;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Parámetro de controlador con el cliente del usuario autenticado (ClientIdentityDTO), resuelto una
+ * sola vez por request por ClientIdentityFilter. Si es obligatorio y el usuario no tiene cliente, responde 404.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CurrentClient {
+    boolean required() default true;
+}
@@ -0,0 +1,33 @@
+package com.example.tingeso_backend.identity;
+
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+
+// Entrega a los controladores la identidad que dejó ClientIdentityFilter en el request
+@Component
+public class CurrentClientArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentClient.class)
+                && ClientIdentityDTO.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Object identity = webRequest.getAttribute(ClientIdentityFilter.ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (identity == null && parameter.getParameterAnnotation(CurrentClient.class).required()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No se encontró un perfil de cliente para el usuario actual.");
+        }
+        return identity;
+    }
+}
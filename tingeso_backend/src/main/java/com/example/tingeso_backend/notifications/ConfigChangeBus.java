@@ -0,0 +1,10 @@
+package com.example.tingeso_backend.notifications;
+
+// Aviso de cambios de configuración entre réplicas. Los suscriptores recargan su copia en memoria.
+public interface ConfigChangeBus {
+
+    // Avisa a todas las réplicas, incluida ésta
+    void publish();
+
+    void subscribe(Runnable listener);
+}
@@ -0,0 +1,20 @@
+package com.example.tingeso_backend.notifications;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Sustituto en proceso para bases sin LISTEN/NOTIFY (H2 en pruebas): sólo avisa a esta JVM.
+public class LocalConfigChangeBus implements ConfigChangeBus {
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish() {
+        listeners.forEach(Runnable::run);
+    }
+
+    @Override
+    public void subscribe(Runnable listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.ClientEligibilityEntity;
+
+// Alta del registro de elegibilidad cuando dos préstamos o multas del mismo cliente lo crean a la vez
+public interface ClientEligibilityInsertRepository {
+
+    // Inserta el registro si el cliente aún no tiene uno; devuelve 0 si otra transacción lo creó primero.
+    // Requiere una transacción abierta; nunca falla por la clave primaria.
+    int insertIfAbsent(ClientEligibilityEntity eligibility);
+}
@@ -0,0 +1,70 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.ClientEligibilityEntity;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+class ClientEligibilityInsertRepositoryImpl implements ClientEligibilityInsertRepository {
+
+    private static final String INSERT = "INSERT INTO client_eligibility "
+            + "(client_id, active_loan_count, pending_fine_count, earliest_due_date, restricted) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String POSTGRES_INSERT = INSERT + " ON CONFLICT (client_id) DO NOTHING";
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private boolean postgres;
+
+    @PostConstruct
+    void detectDatabase() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        }
+    }
+
+    // Por JDBC directo, como ClientUpsertRepositoryImpl: en H2 el duplicado se descarta volviendo al savepoint
+    // sin que Hibernate marque la transacción para rollback
+    @Override
+    @Transactional
+    public int insertIfAbsent(ClientEligibilityEntity eligibility) {
+        entityManager.flush();
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            Savepoint savepoint = postgres ? null : connection.setSavepoint();
+            try (PreparedStatement insert = connection.prepareStatement(postgres ? POSTGRES_INSERT : INSERT)) {
+                insert.setLong(1, eligibility.getClientId());
+                insert.setInt(2, eligibility.getActiveLoanCount());
+                insert.setInt(3, eligibility.getPendingFineCount());
+                insert.setDate(4, eligibility.getEarliestDueDate() != null ? Date.valueOf(eligibility.getEarliestDueDate()) : null);
+                insert.setBoolean(5, eligibility.isRestricted());
+                int inserted = insert.executeUpdate();
+                if (savepoint != null) {
+                    connection.releaseSavepoint(savepoint);
+                }
+                return inserted;
+            } catch (SQLException e) {
+                if (savepoint == null || !UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    throw e;
+                }
+                connection.rollback(savepoint);
+                return 0;
+            }
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.ClientEligibilityEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+// Los contadores se actualizan con UPDATE atómicos para que réplicas concurrentes no se pisen.
+// Cada método devuelve 0 si el cliente aún no tiene registro.
+@Repository
+public interface ClientEligibilityRepository extends JpaRepository<ClientEligibilityEntity, Long>, ClientEligibilityInsertRepository {
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ClientEligibilityEntity e SET e.activeLoanCount = e.activeLoanCount + 1, "
+            + "e.earliestDueDate = CASE WHEN e.earliestDueDate IS NULL OR e.earliestDueDate > :dueDate "
+            + "THEN :dueDate ELSE e.earliestDueDate END "
+            + "WHERE e.clientId = :clientId")
+    int registerLoan(@Param("clientId") Long clientId, @Param("dueDate") LocalDate dueDate);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ClientEligibilityEntity e SET e.activeLoanCount = e.activeLoanCount - 1, "
+            + "e.earliestDueDate = :earliestDueDate WHERE e.clientId = :clientId")
+    int registerReturn(@Param("clientId") Long clientId, @Param("earliestDueDate") LocalDate earliestDueDate);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ClientEligibilityEntity e SET e.pendingFineCount = e.pendingFineCount + 1, e.restricted = true "
+            + "WHERE e.clientId = :clientId")
+    int registerFine(@Param("clientId") Long clientId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ClientEligibilityEntity e SET e.pendingFineCount = e.pendingFineCount - 1, "
+            + "e.restricted = CASE WHEN e.pendingFineCount > 1 THEN true ELSE false END "
+            + "WHERE e.clientId = :clientId")
+    int registerFinePayment(@Param("clientId") Long clientId);
+}
@@ -1,6 +1,9 @@
 package com.example.tingeso_backend.repositories;
 
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
+import com.example.tingeso_backend.dto.ClientSummaryDTO;
 import com.example.tingeso_backend.entities.ClientEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,16 +11,47 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 import java.util.Optional;
 
-public interface ClientRepository extends JpaRepository<ClientEntity, Long> {
+public interface ClientRepository extends JpaRepository<ClientEntity, Long>, ClientUpsertRepository {
 
-    public ClientEntity findByRut(String rut);
+    // rutKey: ClientEntity.normalizeRut
+    Optional<ClientEntity> findByRutKey(String rutKey);
 
     Optional<ClientEntity> findByKeycloakId(String keycloakId);
 
-    public List<ClientEntity> findByNameContainingIgnoreCase(String name);
-
-    @Query(value = "SELECT * FROM clients WHERE clients.rut = :rut", nativeQuery = true)
-    ClientEntity findByRutNativeQuery(@Param("rut") String rut);
+    @Query("SELECT new com.example.tingeso_backend.dto.ClientIdentityDTO(c.id, c.status) FROM ClientEntity c "
+            + "WHERE c.keycloakId = :keycloakId")
+    Optional<ClientIdentityDTO> findIdentityByKeycloakId(@Param("keycloakId") String keycloakId);
+
+    // Búsqueda de clientes por relevancia: RUT exacto, luego prefijo de nombre, luego prefijo de correo.
+    // Cada grupo excluye lo que ya entregó el anterior y se pagina por su propio orden (clave, id).
+    @Query("SELECT new com.example.tingeso_backend.dto.ClientSummaryDTO(c.id, c.name, c.rut, c.email, c.phone, c.status, 'rut') "
+            + "FROM ClientEntity c WHERE c.rutKey = :rutKey")
+    Optional<ClientSummaryDTO> findSummaryByRutKey(@Param("rutKey") String rutKey);
+
+    @Query("SELECT new com.example.tingeso_backend.dto.ClientSummaryDTO(c.id, c.name, c.rut, c.email, c.phone, c.status, 'name') "
+            + "FROM ClientEntity c WHERE c.nameKey LIKE :prefix ESCAPE '\\' "
+            + "AND (c.rutKey IS NULL OR c.rutKey <> :rutKey) "
+            + "AND (c.nameKey > :afterKey OR (c.nameKey = :afterKey AND c.id > :afterId)) "
+            + "ORDER BY c.nameKey, c.id")
+    List<ClientSummaryDTO> searchByNamePrefix(@Param("prefix") String prefix, @Param("rutKey") String rutKey,
+                                              @Param("afterKey") String afterKey, @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
+    @Query("SELECT new com.example.tingeso_backend.dto.ClientSummaryDTO(c.id, c.name, c.rut, c.email, c.phone, c.status, 'email') "
+            + "FROM ClientEntity c WHERE c.emailKey LIKE :prefix ESCAPE '\\' "
+            + "AND (c.rutKey IS NULL OR c.rutKey <> :rutKey) "
+            + "AND (c.nameKey IS NULL OR c.nameKey NOT LIKE :prefix ESCAPE '\\') "
+            + "AND (c.emailKey > :afterKey OR (c.emailKey = :afterKey AND c.id > :afterId)) "
+            + "ORDER BY c.emailKey, c.id")
+    List<ClientSummaryDTO> searchByEmailPrefix(@Param("prefix") String prefix, @Param("rutKey") String rutKey,
+                                               @Param("afterKey") String afterKey, @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    List<ClientEntity> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    // Siguiente bloque de ids por keyset sobre la clave primaria
+    @Query("SELECT c.id FROM ClientEntity c WHERE c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
 
 }
 
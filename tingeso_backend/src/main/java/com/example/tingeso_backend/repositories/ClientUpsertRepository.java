@@ -0,0 +1,11 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.ClientEntity;
+
+// Alta del cliente en el primer ingreso, segura cuando varias solicitudes (o réplicas) llegan a la vez
+public interface ClientUpsertRepository {
+
+    // Inserta el cliente si no existe otro con el mismo keycloakId y devuelve el que quedó en la tabla.
+    // Requiere una transacción abierta; nunca falla por la restricción única de keycloak_id.
+    ClientEntity insertIfAbsent(ClientEntity client);
+}
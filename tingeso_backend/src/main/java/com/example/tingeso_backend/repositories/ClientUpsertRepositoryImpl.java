@@ -0,0 +1,144 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.ClientEntity;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+class ClientUpsertRepositoryImpl implements ClientUpsertRepository {
+
+    // Un RUT que ya tiene otro cliente (p. ej. registrado por un administrador) se guarda sin clave,
+    // para que el primer ingreso no falle por uk_clients_rut_key. La comprobación no ve a quien inserta el mismo RUT
+    // en paralelo: si el INSERT choca igual con uk_clients_rut_key, se reintenta sin clave de RUT.
+    private static final String RUT_KEY_IF_FREE =
+            "CASE WHEN EXISTS (SELECT 1 FROM clients WHERE rut_key = %1$s) THEN NULL ELSE %1$s END";
+
+    // Inserta o no hace nada y devuelve la fila, en una sola sentencia. Si la fila en conflicto se confirmó
+    // después de que empezó la sentencia, la segunda rama no la ve y no devuelve nada. Sin columna en ON CONFLICT
+    // también absorbe el choque por uk_clients_rut_key (las dos únicas claves de clients), que deja la fila sin insertar.
+    private static final String POSTGRES_UPSERT = "WITH inserted AS ("
+            + "INSERT INTO clients (id, keycloak_id, name, name_key, email, email_key, rut, rut_key, phone, status) "
+            + "VALUES (nextval('clients_seq'), :keycloakId, :name, :nameKey, :email, :emailKey, :rut, "
+            + RUT_KEY_IF_FREE.formatted("CAST(:rutKey AS varchar)") + ", :phone, :status) "
+            + "ON CONFLICT DO NOTHING RETURNING *) "
+            + "SELECT * FROM inserted UNION ALL SELECT * FROM clients WHERE keycloak_id = :keycloakId LIMIT 1";
+
+    private static final String H2_INSERT = "INSERT INTO clients "
+            + "(id, keycloak_id, name, name_key, email, email_key, rut, rut_key, phone, status) "
+            + "VALUES (NEXT VALUE FOR clients_seq, ?, ?, ?, ?, ?, ?, " + RUT_KEY_IF_FREE.formatted("CAST(? AS varchar)")
+            + ", ?, ?)";
+
+    private static final String SELECT_BY_KEYCLOAK_ID = "SELECT * FROM clients WHERE keycloak_id = :keycloakId";
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private static final String RUT_KEY_INDEX = "uk_clients_rut_key";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private boolean postgres;
+
+    @PostConstruct
+    void detectDatabase() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        }
+    }
+
+    @Override
+    @Transactional
+    public ClientEntity insertIfAbsent(ClientEntity client) {
+        if (!postgres) {
+            // El INSERT por JDBC no dispara el flush automático de Hibernate
+            entityManager.flush();
+            insertIgnoringDuplicate(client);
+            return findByKeycloakId(client.getKeycloakId()).orElseThrow();
+        }
+        Optional<ClientEntity> inserted = upsert(client, client.getRutKey());
+        if (inserted.isPresent()) {
+            return inserted.get();
+        }
+        // Sin fila: otra transacción confirmó el cliente mientras corría el INSERT, o el RUT chocó con otro cliente
+        Optional<ClientEntity> existing = findByKeycloakId(client.getKeycloakId());
+        if (existing.isPresent() || client.getRutKey() == null) {
+            return existing.orElseThrow();
+        }
+        return upsert(client, null).or(() -> findByKeycloakId(client.getKeycloakId())).orElseThrow();
+    }
+
+    private Optional<ClientEntity> upsert(ClientEntity client, String rutKey) {
+        List<?> rows = entityManager.createNativeQuery(POSTGRES_UPSERT, ClientEntity.class)
+                .setParameter("keycloakId", client.getKeycloakId())
+                .setParameter("name", client.getName())
+                .setParameter("nameKey", client.getNameKey())
+                .setParameter("email", client.getEmail())
+                .setParameter("emailKey", client.getEmailKey())
+                .setParameter("rut", client.getRut())
+                .setParameter("rutKey", rutKey)
+                .setParameter("phone", client.getPhone())
+                .setParameter("status", client.getStatus())
+                .getResultList();
+        return rows.stream().findFirst().map(ClientEntity.class::cast);
+    }
+
+    private Optional<ClientEntity> findByKeycloakId(String keycloakId) {
+        List<?> rows = entityManager.createNativeQuery(SELECT_BY_KEYCLOAK_ID, ClientEntity.class)
+                .setParameter("keycloakId", keycloakId)
+                .getResultList();
+        return rows.stream().findFirst().map(ClientEntity.class::cast);
+    }
+
+    // H2 no tiene ON CONFLICT fuera del modo PostgreSQL: el INSERT espera a la transacción que tiene la misma
+    // clave y, si ésta confirma, falla por duplicado. Se descarta sólo ese INSERT volviendo al savepoint,
+    // por JDBC directo para que Hibernate no marque la transacción para rollback. Si el duplicado es el RUT,
+    // se inserta de nuevo sin clave de RUT.
+    private void insertIgnoringDuplicate(ClientEntity client) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            if (!insertOrSkipDuplicate(connection, client, client.getRutKey()) && client.getRutKey() != null) {
+                insertOrSkipDuplicate(connection, client, null);
+            }
+        });
+    }
+
+    // Devuelve false sólo si el INSERT chocó con uk_clients_rut_key
+    private boolean insertOrSkipDuplicate(Connection connection, ClientEntity client, String rutKey) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try (PreparedStatement insert = connection.prepareStatement(H2_INSERT)) {
+            insert.setString(1, client.getKeycloakId());
+            insert.setString(2, client.getName());
+            insert.setString(3, client.getNameKey());
+            insert.setString(4, client.getEmail());
+            insert.setString(5, client.getEmailKey());
+            insert.setString(6, client.getRut());
+            insert.setString(7, rutKey);
+            insert.setString(8, rutKey);
+            insert.setString(9, client.getPhone());
+            insert.setString(10, client.getStatus());
+            insert.executeUpdate();
+            connection.releaseSavepoint(savepoint);
+            return true;
+        } catch (SQLException e) {
+            if (!UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                throw e;
+            }
+            connection.rollback(savepoint);
+            return e.getMessage() == null || !e.getMessage().toLowerCase(Locale.ROOT).contains(RUT_KEY_INDEX);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.FeeVersionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FeeVersionRepository extends JpaRepository<FeeVersionEntity, Long> {
+
+    List<FeeVersionEntity> findAllByOrderByConfigKeyAscEffectiveFromAsc();
+}
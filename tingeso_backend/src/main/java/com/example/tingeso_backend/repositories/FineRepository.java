@@ -1,21 +1,57 @@
 package com.example.tingeso_backend.repositories;
 
+import com.example.tingeso_backend.dto.PendingFineSummaryDTO;
 import com.example.tingeso_backend.entities.FineEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface FineRepository extends JpaRepository<FineEntity, Long> {
 
-    FineEntity findByLoanId(Long loanId);
+    // Las consultas que alimentan FineDTO traen préstamo, cliente y herramienta en el mismo SELECT
+    String WITH_LOAN_DETAILS = "FineEntity.withLoanDetails";
 
-    @Query("SELECT f FROM FineEntity f WHERE f.loan.client.id = :clientId AND f.status = 'Pendiente'")
+    @Override
+    @EntityGraph(WITH_LOAN_DETAILS)
+    List<FineEntity> findAll();
+
+    List<FineEntity> findByLoanId(Long loanId);
+
+    // Pago de multa: sólo necesita el cliente del préstamo
+    @EntityGraph(attributePaths = {"loan", "loan.client"})
+    Optional<FineEntity> findWithLoanClientById(Long id);
+
+    @Query("SELECT f FROM FineEntity f WHERE f.clientId = :clientId AND f.status = 'Pendiente'")
     List<FineEntity> findPendingFinesByClientId(@Param("clientId") Long clientId);
 
-    @Query("SELECT f FROM FineEntity f WHERE f.loan.client.keycloakId = :keycloakId")
-    List<FineEntity> findByUserKeycloakId(@Param("keycloakId") String keycloakId);
+    @Query("SELECT COUNT(f) FROM FineEntity f WHERE f.clientId = :clientId AND f.status = 'Pendiente'")
+    long countPendingFinesByClientId(@Param("clientId") Long clientId);
+
+    // Se detiene en la primera fila del índice (client_id, status); no carga multas ni préstamos
+    boolean existsByClientIdAndStatus(Long clientId, String status);
+
+    @Query("SELECT new com.example.tingeso_backend.dto.PendingFineSummaryDTO(f.clientId, COUNT(f), COALESCE(SUM(f.amount), 0L)) " +
+            "FROM FineEntity f WHERE f.clientId = :clientId AND f.status = 'Pendiente' GROUP BY f.clientId")
+    Optional<PendingFineSummaryDTO> summarizePendingFinesByClientId(@Param("clientId") Long clientId);
+
+    // Misma agregación para un bloque de clientes; los clientes sin multas pendientes no aparecen
+    @Query("SELECT new com.example.tingeso_backend.dto.PendingFineSummaryDTO(f.clientId, COUNT(f), COALESCE(SUM(f.amount), 0L)) " +
+            "FROM FineEntity f WHERE f.clientId IN :clientIds AND f.status = 'Pendiente' GROUP BY f.clientId")
+    List<PendingFineSummaryDTO> summarizePendingFinesByClientIds(@Param("clientIds") Collection<Long> clientIds);
+
+    // Multas de un cliente por la columna copiada client_id, sin pasar por loans
+    @EntityGraph(WITH_LOAN_DETAILS)
+    @Query("SELECT f FROM FineEntity f WHERE f.clientId = :clientId ORDER BY f.id")
+    List<FineEntity> findByClientIdWithLoanDetails(@Param("clientId") Long clientId);
+
+    @EntityGraph(WITH_LOAN_DETAILS)
+    List<FineEntity> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
 
 }
\ No newline at end of file
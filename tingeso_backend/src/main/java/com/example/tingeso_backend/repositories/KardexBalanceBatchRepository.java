@@ -0,0 +1,12 @@
+package com.example.tingeso_backend.repositories;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+// Actualización de los cierres diarios de un lote de movimientos con sentencias por lote, no por (herramienta, día)
+public interface KardexBalanceBatchRepository {
+
+    // Suma a cada cierre desde ese día los deltas del lote (herramienta -> día -> suma de cantidades),
+    // creando antes el cierre de los días que aún no tienen uno. Requiere una transacción abierta.
+    void applyDailyDeltas(Map<Long, Map<LocalDate, Long>> deltas);
+}
@@ -0,0 +1,103 @@
+package com.example.tingeso_backend.repositories;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+class KardexBalanceBatchRepositoryImpl implements KardexBalanceBatchRepository {
+
+    // Filas por sentencia: 3 parámetros cada una, lejos del límite de 32767 de Postgres
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String DELTA_ROW = "(CAST(? AS bigint), CAST(? AS date), CAST(? AS bigint))";
+
+    private static final String DELTAS = "(VALUES %s) AS v(tool_id, balance_date, delta)";
+
+    // Cierre nuevo = cierre anterior a ese día; el UPDATE siguiente le suma los deltas. Así da igual si la sentencia
+    // ve o no los cierres que ella misma inserta para días previos de la misma herramienta.
+    private static final String INSERT_MISSING = "INSERT INTO kardex_daily_balances (tool_id, balance_date, closing_balance) "
+            + "SELECT v.tool_id, v.balance_date, COALESCE((SELECT b.closing_balance FROM kardex_daily_balances b "
+            + "WHERE b.tool_id = v.tool_id AND b.balance_date < v.balance_date ORDER BY b.balance_date DESC LIMIT 1), 0) "
+            + "FROM " + DELTAS + " WHERE NOT EXISTS (SELECT 1 FROM kardex_daily_balances b "
+            + "WHERE b.tool_id = v.tool_id AND b.balance_date = v.balance_date)";
+
+    // Un movimiento de un día cambia ese cierre y todos los siguientes; lo normal es que sea el último
+    private static final String SHIFT = "UPDATE kardex_daily_balances b SET closing_balance = b.closing_balance + "
+            + "(SELECT SUM(v.delta) FROM " + DELTAS + " WHERE v.tool_id = b.tool_id AND v.balance_date <= b.balance_date) "
+            + "WHERE EXISTS (SELECT 1 FROM " + DELTAS + " WHERE v.tool_id = b.tool_id AND v.balance_date <= b.balance_date)";
+
+    // Serializa a quienes escriben cierres hasta el fin de la transacción, por si el despacho corriera en dos nodos
+    private static final String POSTGRES_LOCK = "SELECT pg_advisory_xact_lock(hashtext('kardex_daily_balances'))";
+
+    private record Delta(long toolId, LocalDate day, long delta) {
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private boolean postgres;
+
+    @PostConstruct
+    void detectDatabase() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        }
+    }
+
+    @Override
+    @Transactional
+    public void applyDailyDeltas(Map<Long, Map<LocalDate, Long>> deltas) {
+        List<Delta> rows = new ArrayList<>();
+        deltas.forEach((toolId, byDay) -> byDay.forEach((day, delta) -> rows.add(new Delta(toolId, day, delta))));
+        if (rows.isEmpty()) {
+            return;
+        }
+        // Por JDBC: Hibernate no vacía el contexto antes de estas sentencias
+        entityManager.flush();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            if (postgres) {
+                try (PreparedStatement lock = connection.prepareStatement(POSTGRES_LOCK)) {
+                    lock.execute();
+                }
+            }
+            for (int from = 0; from < rows.size(); from += CHUNK_SIZE) {
+                List<Delta> chunk = rows.subList(from, Math.min(from + CHUNK_SIZE, rows.size()));
+                String values = String.join(", ", Collections.nCopies(chunk.size(), DELTA_ROW));
+                execute(connection, INSERT_MISSING.formatted(values), chunk, 1);
+                execute(connection, SHIFT.formatted(values, values), chunk, 2);
+            }
+        });
+    }
+
+    // La lista de VALUES aparece "times" veces en la sentencia; cada vez con los mismos parámetros
+    private static void execute(Connection connection, String sql, List<Delta> chunk, int times) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            for (int i = 0; i < times; i++) {
+                for (Delta row : chunk) {
+                    statement.setLong(index++, row.toolId());
+                    statement.setDate(index++, Date.valueOf(row.day()));
+                    statement.setLong(index++, row.delta());
+                }
+            }
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.KardexBalanceEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface KardexBalanceRepository extends JpaRepository<KardexBalanceEntity, KardexBalanceEntity.Key>,
+        KardexBalanceBatchRepository {
+
+    // Último cierre anterior a un día; recorre la clave primaria (tool_id, balance_date) hacia atrás.
+    // Se lee como escalar para no dejar entidades en el contexto que luego quedarían obsoletas por applyDailyDeltas.
+    @Query("SELECT b.closingBalance FROM KardexBalanceEntity b WHERE b.toolId = :toolId AND b.balanceDate < :day "
+            + "ORDER BY b.balanceDate DESC LIMIT 1")
+    Optional<Long> findClosingBalanceBefore(@Param("toolId") Long toolId, @Param("day") LocalDate day);
+
+    // Suma, sobre esas herramientas, del último cierre anterior al día indicado
+    @Query("SELECT COALESCE(SUM(b.closingBalance), 0) FROM KardexBalanceEntity b "
+            + "WHERE b.toolId IN :toolIds "
+            + "AND b.balanceDate = (SELECT MAX(b2.balanceDate) FROM KardexBalanceEntity b2 "
+            + "WHERE b2.toolId = b.toolId AND b2.balanceDate < :day)")
+    long sumClosingBalancesBefore(@Param("toolIds") Collection<Long> toolIds, @Param("day") LocalDate day);
+}
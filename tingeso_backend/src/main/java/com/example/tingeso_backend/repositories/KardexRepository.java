@@ -1,17 +1,96 @@
 package com.example.tingeso_backend.repositories;
 
+import com.example.tingeso_backend.dto.KardexExportDTO;
 import com.example.tingeso_backend.entities.KardexEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface KardexRepository extends JpaRepository<KardexEntity, Long> {
 
-    List<KardexEntity> findByToolNameIgnoreCase(String toolName);
+    String EXPORT_SELECT = "SELECT new com.example.tingeso_backend.dto.KardexExportDTO("
+            + "k.id, k.movementDate, t.id, t.name, k.movementType, k.quantityAffected, k.userResponsible) "
+            + "FROM KardexEntity k JOIN k.tool t ";
 
+    String EXPORT_FETCH_SIZE = "500";
+
+    // Filtros por herramienta sobre kardex.tool_id (idx_kardex_tool_id_movement_date); el nombre se resuelve antes a ids
+    @EntityGraph(attributePaths = "tool")
+    List<KardexEntity> findByToolIdIn(Collection<Long> toolIds);
+
+    @Query("SELECT k.eventId FROM KardexEntity k WHERE k.eventId IN :eventIds")
+    List<String> findExistingEventIds(@Param("eventIds") List<String> eventIds);
+
+    @EntityGraph(attributePaths = "tool")
     List<KardexEntity> findByMovementDateGreaterThanEqualAndMovementDateLessThan(LocalDateTime startDate, LocalDateTime endDate);
 
-    List<KardexEntity> findByToolNameIgnoreCaseAndMovementDateGreaterThanEqualAndMovementDateLessThan(String toolName, LocalDateTime startDate, LocalDateTime endDate);
-}
\ No newline at end of file
+    @EntityGraph(attributePaths = "tool")
+    List<KardexEntity> findByToolIdInAndMovementDateGreaterThanEqualAndMovementDateLessThan(Collection<Long> toolIds, LocalDateTime startDate, LocalDateTime endDate);
+
+    // Mantención de particiones mensuales (funciones de la migración V8, sólo Postgres)
+    @Transactional
+    @Query(value = "SELECT kardex_ensure_partitions(:fromMonth, :toMonth)", nativeQuery = true)
+    int ensureMonthlyPartitions(@Param("fromMonth") LocalDate fromMonth, @Param("toMonth") LocalDate toMonth);
+
+    @Transactional
+    @Query(value = "SELECT kardex_archive_partitions_before(:cutoff)", nativeQuery = true)
+    int archivePartitionsBefore(@Param("cutoff") LocalDate cutoff);
+
+    // Suma de cantidades de esas herramientas en [from, to]; con from mínimo es el saldo sin checkpoints
+    @Query("SELECT COALESCE(SUM(k.quantityAffected), 0) FROM KardexEntity k WHERE k.tool.id IN :toolIds "
+            + "AND k.movementDate >= :from AND k.movementDate <= :to")
+    long sumQuantityByToolIdsBetween(@Param("toolIds") Collection<Long> toolIds,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to);
+
+    // Keyset sobre (movementDate, id), respaldado por el índice idx_kardex_movement_date_id
+    @EntityGraph(attributePaths = "tool")
+    @Query("SELECT k FROM KardexEntity k WHERE k.movementDate >= :startDate AND k.movementDate < :endDate "
+            + "AND (k.movementDate > :afterDate OR (k.movementDate = :afterDate AND k.id > :afterId)) "
+            + "ORDER BY k.movementDate, k.id")
+    List<KardexEntity> findPageAfter(@Param("startDate") LocalDateTime startDate,
+                                     @Param("endDate") LocalDateTime endDate,
+                                     @Param("afterDate") LocalDateTime afterDate,
+                                     @Param("afterId") Long afterId,
+                                     Pageable pageable);
+
+    @EntityGraph(attributePaths = "tool")
+    @Query("SELECT k FROM KardexEntity k WHERE k.tool.id IN :toolIds "
+            + "AND k.movementDate >= :startDate AND k.movementDate < :endDate "
+            + "AND (k.movementDate > :afterDate OR (k.movementDate = :afterDate AND k.id > :afterId)) "
+            + "ORDER BY k.movementDate, k.id")
+    List<KardexEntity> findPageByToolIdsAfter(@Param("toolIds") Collection<Long> toolIds,
+                                              @Param("startDate") LocalDateTime startDate,
+                                              @Param("endDate") LocalDateTime endDate,
+                                              @Param("afterDate") LocalDateTime afterDate,
+                                              @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
+    // Lectura hacia adelante para exportaciones; debe consumirse dentro de una transacción y cerrarse
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(EXPORT_SELECT + "WHERE k.movementDate >= :startDate AND k.movementDate < :endDate "
+            + "ORDER BY k.movementDate, k.id")
+    Stream<KardexExportDTO> streamForExport(@Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(EXPORT_SELECT + "WHERE k.tool.id IN :toolIds "
+            + "AND k.movementDate >= :startDate AND k.movementDate < :endDate "
+            + "ORDER BY k.movementDate, k.id")
+    Stream<KardexExportDTO> streamForExportByToolIds(@Param("toolIds") Collection<Long> toolIds,
+                                                     @Param("startDate") LocalDateTime startDate,
+                                                      @Param("endDate") LocalDateTime endDate);
+}
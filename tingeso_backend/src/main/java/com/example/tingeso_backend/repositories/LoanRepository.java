@@ -1,20 +1,94 @@
 package com.example.tingeso_backend.repositories;
 
+import com.example.tingeso_backend.dto.ActiveLoanSummaryDTO;
+import com.example.tingeso_backend.dto.ClientLoanStatsDTO;
+import com.example.tingeso_backend.dto.LoanWithFineInfoDTO;
+import com.example.tingeso_backend.dto.OverdueLoanDTO;
 import com.example.tingeso_backend.entities.LoanEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface LoanRepository extends JpaRepository<LoanEntity, Long> {
 
+    // Proyección de préstamos con sus multas agregadas en una sola consulta:
+    // monto total, multa más reciente y estado "Pendiente" si alguna sigue impaga.
+    String LOAN_WITH_FINE_INFO_SELECT = "SELECT new com.example.tingeso_backend.dto.LoanWithFineInfoDTO("
+            + "l.id, c.name, t.name, l.loanDate, l.dueDate, l.returnDate, l.status, "
+            + "MAX(f.id), SUM(f.amount), "
+            + "CASE WHEN SUM(CASE WHEN f.status = 'Pendiente' THEN 1 ELSE 0 END) > 0 THEN 'Pendiente' ELSE MAX(f.status) END) "
+            + "FROM LoanEntity l JOIN l.client c JOIN l.tool t LEFT JOIN l.fines f ";
+
+    String LOAN_WITH_FINE_INFO_GROUP_BY = "GROUP BY l.id, c.name, t.name, l.loanDate, l.dueDate, l.returnDate, l.status "
+            + "ORDER BY l.id";
+
+    // Devolución: cliente y herramienta se usan para multas, kardex y stock
+    @EntityGraph("LoanEntity.withClientAndTool")
+    Optional<LoanEntity> findForReturnById(Long id);
+
     int countByClientIdAndStatus(Long clientId, String status);
 
+    // Marca la devolución sólo si el préstamo sigue activo: de dos devoluciones simultáneas, una recibe 0
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE LoanEntity l SET l.status = 'Devuelto', l.returnDate = :returnDate WHERE l.id = :id AND l.status = 'Activo'")
+    int claimReturn(@Param("id") Long id, @Param("returnDate") LocalDate returnDate);
+
     boolean existsByClientIdAndToolIdAndStatus(Long clientId, Long toolId, String status);
 
     List<LoanEntity> findByClientIdAndDueDateBeforeAndStatus(Long clientId, LocalDate today, String status);
 
+    @EntityGraph("LoanEntity.withClientAndTool")
     List<LoanEntity> findByClientKeycloakId(String keycloakId);
-}
\ No newline at end of file
+
+    @Query("SELECT MIN(l.dueDate) FROM LoanEntity l WHERE l.client.id = :clientId AND l.status = 'Activo'")
+    LocalDate findEarliestActiveDueDate(@Param("clientId") Long clientId);
+
+    // Cantidad y vencimiento más próximo de los préstamos activos de un bloque de clientes; los que no tienen no aparecen
+    @Query("SELECT new com.example.tingeso_backend.dto.ClientLoanStatsDTO(l.client.id, COUNT(l), MIN(l.dueDate)) "
+            + "FROM LoanEntity l WHERE l.client.id IN :clientIds AND l.status = 'Activo' GROUP BY l.client.id")
+    List<ClientLoanStatsDTO> summarizeActiveLoansByClientIds(@Param("clientIds") Collection<Long> clientIds);
+
+    // Préstamos activos del cliente para su resumen de cuenta; vencido se calcula contra hoy, no contra el barrido nocturno
+    @Query("SELECT new com.example.tingeso_backend.dto.ActiveLoanSummaryDTO("
+            + "l.id, t.id, t.name, l.loanDate, l.dueDate, CASE WHEN l.dueDate < :today THEN true ELSE false END, l.accruedLateFee) "
+            + "FROM LoanEntity l JOIN l.tool t WHERE l.client.id = :clientId AND l.status = 'Activo' ORDER BY l.dueDate, l.id")
+    List<ActiveLoanSummaryDTO> findActiveLoanSummaries(@Param("clientId") Long clientId, @Param("today") LocalDate today);
+
+    // Préstamos vencidos cuyo monto por atraso aún no se actualizó hoy, en orden (due_date, id) a partir del cursor;
+    // recorre idx_loans_status_due_date_id
+    @Query("SELECT new com.example.tingeso_backend.dto.OverdueLoanDTO(l.id, l.loanDate, l.dueDate) FROM LoanEntity l "
+            + "WHERE l.status = 'Activo' AND l.dueDate < :today "
+            + "AND (l.dueDate > :afterDueDate OR (l.dueDate = :afterDueDate AND l.id > :afterId)) "
+            + "AND (l.lateFeeAccruedOn IS NULL OR l.lateFeeAccruedOn < :today) ORDER BY l.dueDate, l.id")
+    List<OverdueLoanDTO> findOverdueLoansToAccrue(@Param("today") LocalDate today,
+                                                  @Param("afterDueDate") LocalDate afterDueDate,
+                                                  @Param("afterId") Long afterId,
+                                                  Pageable pageable);
+
+    // Fija el mismo monto a los préstamos indicados; sólo toca los que siguen activos y pendientes de hoy
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE LoanEntity l SET l.overdue = true, l.accruedLateFee = :amount, l.lateFeeAccruedOn = :today "
+            + "WHERE l.id IN :ids AND l.status = 'Activo' "
+            + "AND (l.lateFeeAccruedOn IS NULL OR l.lateFeeAccruedOn < :today)")
+    int accrueLateFee(@Param("ids") List<Long> ids, @Param("amount") int amount, @Param("today") LocalDate today);
+
+    @Query(LOAN_WITH_FINE_INFO_SELECT + LOAN_WITH_FINE_INFO_GROUP_BY)
+    List<LoanWithFineInfoDTO> findAllWithFineInfo();
+
+    @Query(LOAN_WITH_FINE_INFO_SELECT + "WHERE c.id = :clientId " + LOAN_WITH_FINE_INFO_GROUP_BY)
+    List<LoanWithFineInfoDTO> findWithFineInfoByClientId(@Param("clientId") Long clientId);
+
+    // Página siguiente por keyset sobre la clave primaria
+    @Query(LOAN_WITH_FINE_INFO_SELECT + "WHERE l.id > :afterId " + LOAN_WITH_FINE_INFO_GROUP_BY)
+    List<LoanWithFineInfoDTO> findWithFineInfoAfter(@Param("afterId") Long afterId, Pageable pageable);
+}
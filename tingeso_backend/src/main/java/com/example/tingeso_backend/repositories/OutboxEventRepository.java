@@ -0,0 +1,32 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.OutboxEventEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, Long> {
+
+    // Eventos pendientes en orden de escritura; los marcados como fallidos no se reintentan solos
+    List<OutboxEventEntity> findByEventTypeAndProcessedAtIsNullAndFailedAtIsNullOrderByIdAsc(String eventType, Pageable pageable);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE OutboxEventEntity e SET e.processedAt = :processedAt WHERE e.id IN :ids")
+    int markProcessed(@Param("ids") List<Long> ids, @Param("processedAt") LocalDateTime processedAt);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE OutboxEventEntity e SET e.attempts = e.attempts + 1, e.lastError = :error, e.failedAt = :failedAt "
+            + "WHERE e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("error") String error, @Param("failedAt") LocalDateTime failedAt);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEventEntity e WHERE e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
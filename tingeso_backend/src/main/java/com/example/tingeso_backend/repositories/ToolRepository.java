@@ -1,11 +1,70 @@
 package com.example.tingeso_backend.repositories;
 
+import com.example.tingeso_backend.dto.ToolFacetCountDTO;
 import com.example.tingeso_backend.entities.ToolEntity;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 
-public interface ToolRepository extends JpaRepository<ToolEntity, Long> {
+public interface ToolRepository extends JpaRepository<ToolEntity, Long>, ToolSearchRepository {
+
+    List<ToolEntity> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    // Facetas del catálogo: los nombres se agrupan por nombre normalizado, igual que el filtro del kardex
+    @Query("SELECT new com.example.tingeso_backend.dto.ToolFacetCountDTO(t.nameKey, t.status, COUNT(t)) "
+            + "FROM ToolEntity t GROUP BY t.nameKey, t.status")
+    List<ToolFacetCountDTO> countByNameAndStatus();
+
+    // Ids de todas las filas con ese nombre normalizado (ver ToolEntity.normalizeName), por idx_tools_name_key
+    @Query("SELECT t.id FROM ToolEntity t WHERE t.nameKey = :nameKey")
+    List<Long> findIdsByNameKey(@Param("nameKey") String nameKey);
+
+    @Query("SELECT t.id FROM ToolEntity t WHERE t.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.example.tingeso_backend.dto.ToolFacetCountDTO(t.category, t.status, COUNT(t)) "
+            + "FROM ToolEntity t GROUP BY t.category, t.status")
+    List<ToolFacetCountDTO> countByCategoryAndStatus();
+
+    // Cambio de estado condicionado en el WHERE: devuelve 0 si otra transacción ya lo cambió.
+    // Es atómico en la base de datos, por lo que es seguro entre réplicas sin bloqueos explícitos.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ToolEntity t SET t.status = :newStatus WHERE t.id = :id AND t.status = :expectedStatus")
+    int transitionStatus(@Param("id") Long id,
+                         @Param("expectedStatus") String expectedStatus,
+                         @Param("newStatus") String newStatus);
+
+    // Modo "Stock": retira una unidad sólo si queda al menos una disponible
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ToolEntity t SET t.availableStock = t.availableStock - 1 "
+            + "WHERE t.id = :id AND t.status = 'Disponible' AND t.availableStock >= 1")
+    int takeOneUnit(@Param("id") Long id);
+
+    // Modo "Stock": reingresa una unidad devuelta en buen estado; devuelve 0 si el ítem ya se dio de baja
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ToolEntity t SET t.availableStock = t.availableStock + 1 "
+            + "WHERE t.id = :id AND t.status <> 'Dada de baja'")
+    int returnOneUnit(@Param("id") Long id);
+
+    // Lectura con bloqueo de fila (SELECT ... FOR UPDATE): takeOneUnit y returnOneUnit esperan a que termine la transacción
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM ToolEntity t WHERE t.id = :id")
+    Optional<ToolEntity> findForUpdateById(@Param("id") Long id);
 
+    // Modo "Stock": da de baja el ítem y todas sus unidades en bodega; 0 si ya estaba dado de baja
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ToolEntity t SET t.status = 'Dada de baja', t.availableStock = 0 "
+            + "WHERE t.id = :id AND t.status <> 'Dada de baja'")
+    int writeOffStock(@Param("id") Long id);
 }
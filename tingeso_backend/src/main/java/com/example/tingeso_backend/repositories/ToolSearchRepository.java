@@ -0,0 +1,13 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.dto.ToolSearchCriteria;
+import com.example.tingeso_backend.dto.ToolSummaryDTO;
+
+import java.util.List;
+
+// Búsqueda del catálogo armada según los filtros presentes, para que cada combinación use su índice
+public interface ToolSearchRepository {
+
+    // Página ordenada por (nombre, id) a partir de la última fila entregada; afterName nulo parte desde el inicio
+    List<ToolSummaryDTO> searchSummaries(ToolSearchCriteria criteria, String afterName, Long afterId, int limit);
+}
@@ -0,0 +1,64 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.dto.ToolSearchCriteria;
+import com.example.tingeso_backend.dto.ToolSummaryDTO;
+import com.example.tingeso_backend.entities.ToolEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class ToolSearchRepositoryImpl implements ToolSearchRepository {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ToolSummaryDTO> searchSummaries(ToolSearchCriteria criteria, String afterName, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ToolSummaryDTO> query = cb.createQuery(ToolSummaryDTO.class);
+        Root<ToolEntity> tool = query.from(ToolEntity.class);
+
+        // Sólo se agregan las condiciones de los filtros recibidos: sin "(:p IS NULL OR ...)" el plan puede usar índices
+        List<Predicate> where = new ArrayList<>();
+        if (criteria.getCategory() != null) {
+            where.add(cb.equal(tool.get("category"), criteria.getCategory()));
+        }
+        if (criteria.getStatus() != null) {
+            where.add(cb.equal(tool.get("status"), criteria.getStatus()));
+        } else if (!criteria.isIncludeWrittenOff()) {
+            // status <> 'Dada de baja' es desconocido con status nulo y descartaría esas filas
+            where.add(cb.or(cb.isNull(tool.get("status")), cb.notEqual(tool.get("status"), "Dada de baja")));
+        }
+        if (criteria.getNamePrefix() != null) {
+            where.add(cb.like(cb.lower(tool.get("name")), escapeLike(criteria.getNamePrefix().toLowerCase()) + "%", LIKE_ESCAPE));
+        }
+        if (criteria.getMinReplacementValue() != null) {
+            where.add(cb.greaterThanOrEqualTo(tool.get("replacementValue"), criteria.getMinReplacementValue()));
+        }
+        if (afterName != null) {
+            where.add(cb.or(
+                    cb.greaterThan(tool.get("name"), afterName),
+                    cb.and(cb.equal(tool.get("name"), afterName), cb.greaterThan(tool.get("id"), afterId))));
+        }
+
+        query.select(cb.construct(ToolSummaryDTO.class,
+                        tool.get("id"), tool.get("name"), tool.get("category"), tool.get("status"),
+                        tool.get("replacementValue"), tool.get("availableStock"), tool.get("inventoryMode")))
+                .where(where.toArray(new Predicate[0]))
+                .orderBy(cb.asc(tool.get("name")), cb.asc(tool.get("id")));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
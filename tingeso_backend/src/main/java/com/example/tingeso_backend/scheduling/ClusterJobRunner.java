@@ -0,0 +1,125 @@
+package com.example.tingeso_backend.scheduling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Ejecuta un trabajo programado sólo en la réplica que obtiene su candado; las demás omiten esa ejecución.
+@Component
+public class ClusterJobRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterJobRunner.class);
+
+    @Autowired
+    private JobLock jobLock;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${jobs.lease.renew-interval-ms:10000}")
+    private long renewIntervalMs;
+
+    // Atraso máximo con que una réplica puede ejecutar un disparo de cron y que aún cuente como el mismo disparo
+    @Value("${jobs.trigger.max-delay-ms:3600000}")
+    private long triggerMaxDelayMs;
+
+    private final ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "job-lease-renewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Devuelve false si otra réplica tiene el candado y el trabajo no se ejecutó aquí
+    public boolean runIfLeader(String jobName, Consumer<JobLease> job) {
+        return run(jobName, null, job);
+    }
+
+    // Para trabajos con cron: además del candado, cada disparo queda registrado en la base. Una réplica cuyo
+    // cron se dispara unos segundos después, cuando el líder ya liberó el candado, encuentra el disparo
+    // registrado y no lo repite. Devuelve false si el trabajo no se ejecutó aquí.
+    public boolean runOncePerTrigger(String jobName, String cron, Consumer<JobLease> job) {
+        LocalDateTime fireTime = lastFireTime(CronExpression.parse(cron), LocalDateTime.now(),
+                Duration.ofMillis(triggerMaxDelayMs));
+        return run(jobName, fireTime, job);
+    }
+
+    // Último disparo del cron dentro de la ventana; si no hay ninguno (ejecución muy atrasada) se usa el instante actual
+    static LocalDateTime lastFireTime(CronExpression cron, LocalDateTime now, Duration maxDelay) {
+        LocalDateTime last = null;
+        for (LocalDateTime next = cron.next(now.minus(maxDelay)); next != null && !next.isAfter(now); next = cron.next(next)) {
+            last = next;
+        }
+        return last != null ? last : now.truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private boolean run(String jobName, LocalDateTime fireTime, Consumer<JobLease> job) {
+        long waitStart = System.nanoTime();
+        boolean acquired = jobLock.tryAcquire(jobName);
+        Timer.builder("jobs.lock.wait")
+                .tag("job", jobName)
+                .tag("acquired", String.valueOf(acquired))
+                .register(meterRegistry)
+                .record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            logger.debug("Trabajo {} omitido: otra réplica tiene el candado", jobName);
+            return false;
+        }
+        // El registro se consulta y actualiza con el candado tomado, así ninguna otra réplica lo hace a la vez
+        boolean alreadyRan;
+        try {
+            alreadyRan = fireTime != null && !jobLock.recordRun(jobName, fireTime);
+        } catch (RuntimeException e) {
+            jobLock.release(jobName);
+            throw e;
+        }
+        if (alreadyRan) {
+            jobLock.release(jobName);
+            logger.debug("Trabajo {} omitido: el disparo de {} ya se ejecutó", jobName, fireTime);
+            return false;
+        }
+
+        AtomicBoolean valid = new AtomicBoolean(true);
+        ScheduledFuture<?> renewal = renewer.scheduleAtFixedRate(() -> {
+            if (valid.get() && !jobLock.renew(jobName)) {
+                valid.set(false);
+                logger.warn("Se perdió el candado del trabajo {}; se detendrá en el siguiente bloque", jobName);
+            }
+        }, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            job.accept(valid::get);
+            outcome = valid.get() ? "success" : "lease_lost";
+        } finally {
+            renewal.cancel(false);
+            jobLock.release(jobName);
+            Timer.builder("jobs.duration")
+                    .tag("job", jobName)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renewer.shutdownNow();
+    }
+}
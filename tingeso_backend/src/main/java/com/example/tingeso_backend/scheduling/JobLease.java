@@ -0,0 +1,8 @@
+package com.example.tingeso_backend.scheduling;
+
+// Los trabajos largos deben consultar isValid() entre bloques y detenerse si se perdió el liderazgo.
+@FunctionalInterface
+public interface JobLease {
+
+    boolean isValid();
+}
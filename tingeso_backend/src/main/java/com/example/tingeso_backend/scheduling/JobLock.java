@@ -0,0 +1,19 @@
+package com.example.tingeso_backend.scheduling;
+
+import java.time.LocalDateTime;
+
+// Candado exclusivo por nombre de trabajo compartido entre todas las réplicas del backend.
+public interface JobLock {
+
+    // Intenta tomar el candado sin esperar; true si esta réplica quedó como líder del trabajo
+    boolean tryAcquire(String jobName);
+
+    // Confirma que el candado sigue en poder de esta réplica; false si se perdió
+    boolean renew(String jobName);
+
+    // Registra que el disparo fireTime del trabajo se ejecuta; false si ese disparo (o uno posterior) ya se
+    // ejecutó. Se llama con el candado tomado.
+    boolean recordRun(String jobName, LocalDateTime fireTime);
+
+    void release(String jobName);
+}
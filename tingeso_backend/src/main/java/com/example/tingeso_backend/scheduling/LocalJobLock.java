@@ -0,0 +1,38 @@
+package com.example.tingeso_backend.scheduling;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Sustituto para bases sin candados consultivos (H2 en pruebas): exclusión sólo dentro de esta JVM.
+public class LocalJobLock implements JobLock {
+
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+    private final Map<String, LocalDateTime> lastRuns = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean tryAcquire(String jobName) {
+        return held.add(jobName);
+    }
+
+    @Override
+    public boolean renew(String jobName) {
+        return held.contains(jobName);
+    }
+
+    @Override
+    public boolean recordRun(String jobName, LocalDateTime fireTime) {
+        LocalDateTime previous = lastRuns.get(jobName);
+        if (previous != null && !previous.isBefore(fireTime)) {
+            return false;
+        }
+        lastRuns.put(jobName, fireTime);
+        return true;
+    }
+
+    @Override
+    public void release(String jobName) {
+        held.remove(jobName);
+    }
+}
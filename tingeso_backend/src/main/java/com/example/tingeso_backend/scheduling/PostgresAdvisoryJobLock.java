@@ -0,0 +1,144 @@
+package com.example.tingeso_backend.scheduling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Candado basado en pg_try_advisory_lock a nivel de sesión. La conexión que obtuvo el candado se
+ * mantiene abierta mientras dure el trabajo; si la réplica muere, Postgres cierra la sesión, libera
+ * el candado y la siguiente ejecución la toma otra réplica.
+ * El candado sólo evita ejecuciones simultáneas; la tabla job_runs registra el último disparo ejecutado de
+ * cada trabajo para que una réplica rezagada no repita uno que ya terminó.
+ */
+public class PostgresAdvisoryJobLock implements JobLock {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresAdvisoryJobLock.class);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final DataSource dataSource;
+    private final Map<String, Connection> held = new HashMap<>();
+
+    public PostgresAdvisoryJobLock(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public synchronized boolean tryAcquire(String jobName) {
+        if (held.containsKey(jobName)) {
+            return false;
+        }
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(true);
+            if (queryBoolean(connection, "SELECT pg_try_advisory_lock(?)", lockKey(jobName))) {
+                held.put(jobName, connection);
+                return true;
+            }
+            connection.close();
+            return false;
+        } catch (SQLException e) {
+            logger.warn("No se pudo solicitar el candado del trabajo {}", jobName, e);
+            closeQuietly(connection);
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized boolean renew(String jobName) {
+        Connection connection = held.get(jobName);
+        if (connection == null) {
+            return false;
+        }
+        // Una sesión viva no basta: se confirma en pg_locks que esta sesión sigue reteniendo el candado.
+        // Una clave bigint de pg_advisory_lock se publica repartida en classid (32 bits altos) y objid (bajos).
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT EXISTS (SELECT 1 FROM pg_locks WHERE locktype = 'advisory' AND granted "
+                        + "AND pid = pg_backend_pid() AND objsubid = 1 "
+                        + "AND ((classid::bigint << 32) | objid::bigint) = ?)")) {
+            statement.setQueryTimeout(VALIDATION_TIMEOUT_SECONDS);
+            statement.setLong(1, lockKey(jobName));
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Se ejecuta en la sesión que retiene el candado; la fila sólo avanza si el disparo es posterior al registrado
+    @Override
+    public synchronized boolean recordRun(String jobName, LocalDateTime fireTime) {
+        Connection connection = held.get(jobName);
+        if (connection == null) {
+            throw new IllegalStateException("El candado del trabajo " + jobName + " no está en poder de esta réplica");
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO job_runs (job_name, fire_time, ran_at) VALUES (?, ?, now()) "
+                        + "ON CONFLICT (job_name) DO UPDATE SET fire_time = EXCLUDED.fire_time, ran_at = EXCLUDED.ran_at "
+                        + "WHERE job_runs.fire_time < EXCLUDED.fire_time")) {
+            statement.setString(1, jobName);
+            statement.setObject(2, fireTime);
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo registrar la ejecución del trabajo " + jobName, e);
+        }
+    }
+
+    @Override
+    public synchronized void release(String jobName) {
+        Connection connection = held.remove(jobName);
+        if (connection == null) {
+            return;
+        }
+        try {
+            queryBoolean(connection, "SELECT pg_advisory_unlock(?)", lockKey(jobName));
+            connection.close();
+        } catch (SQLException e) {
+            // Descartar la conexión física para no devolver al pool una sesión que aún retiene el candado
+            logger.warn("No se pudo liberar el candado del trabajo {}; se descarta la conexión", jobName, e);
+            try {
+                connection.abort(Runnable::run);
+            } catch (SQLException ignored) {
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    static long lockKey(String jobName) {
+        CRC32 crc = new CRC32();
+        crc.update(("tingeso:" + jobName).getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private static boolean queryBoolean(Connection connection, String sql, long key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, key);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // la conexión ya no es utilizable
+        }
+    }
+}
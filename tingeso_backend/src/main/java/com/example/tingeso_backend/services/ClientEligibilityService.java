@@ -0,0 +1,175 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.ClientLoanStatsDTO;
+import com.example.tingeso_backend.dto.PendingFineSummaryDTO;
+import com.example.tingeso_backend.entities.ClientEligibilityEntity;
+import com.example.tingeso_backend.repositories.ClientEligibilityRepository;
+import com.example.tingeso_backend.repositories.ClientRepository;
+import com.example.tingeso_backend.repositories.FineRepository;
+import com.example.tingeso_backend.repositories.LoanRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class ClientEligibilityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientEligibilityService.class);
+
+    public static final int MAX_ACTIVE_LOANS = 5;
+
+    @Autowired
+    private ClientEligibilityRepository eligibilityRepository;
+    @Autowired
+    private LoanRepository loanRepository;
+    @Autowired
+    private FineRepository fineRepository;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private ClientSummaryService summaryService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${clients.eligibility.reconcile-chunk-size:500}")
+    private int reconcileChunkSize;
+
+    // Lectura por clave primaria; los clientes sin registro se reconstruyen desde las tablas de origen
+    @Transactional
+    public ClientEligibilityEntity getEligibility(Long clientId) {
+        return eligibilityRepository.findById(clientId).orElseGet(() -> {
+            createIfAbsent(clientId);
+            return eligibilityRepository.findById(clientId).orElseThrow();
+        });
+    }
+
+    // Los siguientes métodos deben llamarse dentro de la transacción del préstamo o multa que los origina
+
+    public void onLoanCreated(Long clientId, LocalDate dueDate) {
+        if (eligibilityRepository.registerLoan(clientId, dueDate) == 0 && !createIfAbsent(clientId)) {
+            eligibilityRepository.registerLoan(clientId, dueDate);
+        }
+        summaryService.invalidate(clientId);
+    }
+
+    // Llamar después de marcar el préstamo como devuelto
+    public void onLoanReturned(Long clientId) {
+        LocalDate earliestDueDate = loanRepository.findEarliestActiveDueDate(clientId);
+        if (eligibilityRepository.registerReturn(clientId, earliestDueDate) == 0 && !createIfAbsent(clientId)) {
+            eligibilityRepository.registerReturn(clientId, earliestDueDate);
+        }
+        summaryService.invalidate(clientId);
+    }
+
+    public void onFineCreated(Long clientId) {
+        if (eligibilityRepository.registerFine(clientId) == 0 && !createIfAbsent(clientId)) {
+            eligibilityRepository.registerFine(clientId);
+        }
+        summaryService.invalidate(clientId);
+    }
+
+    public void onFinePaid(Long clientId) {
+        if (eligibilityRepository.registerFinePayment(clientId) == 0 && !createIfAbsent(clientId)) {
+            eligibilityRepository.registerFinePayment(clientId);
+        }
+        summaryService.invalidate(clientId);
+    }
+
+    // Crea el registro desde las tablas de origen, que ya incluyen el cambio de esta transacción.
+    // Devuelve false si otra transacción lo creó primero: su cálculo no ve este cambio y hay que aplicarlo
+    // con el UPDATE atómico.
+    private boolean createIfAbsent(Long clientId) {
+        return eligibilityRepository.insertIfAbsent(computeFromSource(clientId)) == 1;
+    }
+
+    /**
+     * Recalcula el registro de cada cliente desde préstamos y multas y corrige las diferencias.
+     * Recorre los clientes por bloques de id; cada bloque se resuelve con consultas agrupadas y en su propia
+     * transacción, para no retener bloqueos durante todo el recorrido.
+     * Devuelve los ids de los clientes cuyo registro se había desviado de las tablas de origen.
+     */
+    public List<Long> reconcile() {
+        List<Long> drifted = new ArrayList<>();
+        long afterId = 0L;
+        List<Long> clientIds;
+        do {
+            clientIds = clientRepository.findIdsAfter(afterId, PageRequest.of(0, reconcileChunkSize));
+            if (clientIds.isEmpty()) {
+                break;
+            }
+            List<Long> chunk = clientIds;
+            drifted.addAll(transactionTemplate.execute(status -> reconcileChunk(chunk)));
+            afterId = clientIds.get(clientIds.size() - 1);
+        } while (clientIds.size() == reconcileChunkSize);
+        return drifted;
+    }
+
+    private List<Long> reconcileChunk(List<Long> clientIds) {
+        Map<Long, ClientLoanStatsDTO> loans = loanRepository.summarizeActiveLoansByClientIds(clientIds).stream()
+                .collect(Collectors.toMap(ClientLoanStatsDTO::getClientId, Function.identity()));
+        Map<Long, Long> pendingFines = fineRepository.summarizePendingFinesByClientIds(clientIds).stream()
+                .collect(Collectors.toMap(PendingFineSummaryDTO::getClientId, PendingFineSummaryDTO::getPendingCount));
+        Map<Long, ClientEligibilityEntity> recorded = eligibilityRepository.findAllById(clientIds).stream()
+                .collect(Collectors.toMap(ClientEligibilityEntity::getClientId, Function.identity()));
+
+        List<Long> drifted = new ArrayList<>();
+        List<ClientEligibilityEntity> corrected = new ArrayList<>();
+        for (Long clientId : clientIds) {
+            ClientLoanStatsDTO activeLoans = loans.get(clientId);
+            int fines = pendingFines.getOrDefault(clientId, 0L).intValue();
+            ClientEligibilityEntity expected = new ClientEligibilityEntity(clientId,
+                    activeLoans != null ? activeLoans.getActiveLoanCount().intValue() : 0, fines,
+                    activeLoans != null ? activeLoans.getEarliestDueDate() : null, fines > 0);
+            ClientEligibilityEntity current = recorded.get(clientId);
+            if (expected.equals(current)) {
+                continue;
+            }
+            if (current == null) {
+                eligibilityRepository.insertIfAbsent(expected);
+                continue;
+            }
+            logger.warn("Elegibilidad desviada para cliente {}: registrado={}, calculado={}", clientId, current, expected);
+            drifted.add(clientId);
+            corrected.add(expected);
+        }
+        eligibilityRepository.saveAll(corrected);
+        return drifted;
+    }
+
+    // Motivo por el que el cliente no puede pedir un préstamo, en el orden en que lo valida LoanService; null si puede
+    public static String restrictionReason(String clientStatus, LocalDate earliestDueDate, long pendingFineCount,
+                                           int activeLoanCount, LocalDate today) {
+        if (!"Activo".equals(clientStatus)) {
+            return "El cliente está restringido y no puede solicitar préstamos.";
+        }
+        if (earliestDueDate != null && earliestDueDate.isBefore(today)) {
+            return "El cliente tiene préstamos vencidos pendientes de devolución.";
+        }
+        if (pendingFineCount > 0) {
+            return "El cliente tiene multas impagas y no puede solicitar nuevos préstamos.";
+        }
+        if (activeLoanCount >= MAX_ACTIVE_LOANS) {
+            return "El cliente ha alcanzado el límite máximo de " + MAX_ACTIVE_LOANS + " préstamos activos.";
+        }
+        return null;
+    }
+
+    private ClientEligibilityEntity computeFromSource(Long clientId) {
+        int activeLoans = loanRepository.countByClientIdAndStatus(clientId, "Activo");
+        int pendingFines = (int) fineRepository.countPendingFinesByClientId(clientId);
+        LocalDate earliestDueDate = loanRepository.findEarliestActiveDueDate(clientId);
+        return new ClientEligibilityEntity(clientId, activeLoans, pendingFines, earliestDueDate, pendingFines > 0);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
+import com.example.tingeso_backend.repositories.ClientRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Mapa keycloakId -> (id, estado) del cliente, acotado (se descarta el menos usado) y con vencimiento.
+ * También recuerda los usuarios sin cliente, para no consultar la base en cada request de un administrador;
+ * esas entradas vencen antes, porque el primer ingreso puede crear el cliente en otra réplica.
+ * Los cambios de cliente y las multas que cambian su estado invalidan la entrada en esta réplica; el plazo acota lo que puede
+ * quedar desactualizado por cambios hechos en otra.
+ */
+@Service
+public class ClientIdentityCache {
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${clients.identity-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${clients.identity-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${clients.identity-cache.negative-ttl-ms:5000}")
+    private long negativeTtlMs;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxSize) {
+                forgetClient(eldest.getValue(), eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<Long, String> keycloakIdByClient = new HashMap<>();
+
+    // Aumenta con cada invalidación; una carga que empezó antes no se guarda
+    private long generation;
+
+    private Counter hits;
+    private Counter misses;
+
+    private record Entry(ClientIdentityDTO identity, long expiresAt) {
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        hits = Counter.builder("clients.identity.cache").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("clients.identity.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("clients.identity.cache.size", this, cache -> cache.size()).register(meterRegistry);
+        Gauge.builder("clients.identity.cache.hit.ratio", this, cache -> cache.hitRatio()).register(meterRegistry);
+    }
+
+    public Optional<ClientIdentityDTO> resolve(String keycloakId) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(keycloakId);
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+                hits.increment();
+                return Optional.ofNullable(entry.identity());
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        Optional<ClientIdentityDTO> loaded = clientRepository.findIdentityByKeycloakId(keycloakId);
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                store(keycloakId, loaded.orElse(null));
+            }
+        }
+        return loaded;
+    }
+
+    // Para el cliente recién creado en el primer ingreso
+    public synchronized void put(String keycloakId, ClientIdentityDTO identity) {
+        generation++;
+        store(keycloakId, identity);
+    }
+
+    public synchronized void invalidate(String keycloakId) {
+        generation++;
+        Entry removed = entries.remove(keycloakId);
+        if (removed != null) {
+            forgetClient(removed, keycloakId);
+        }
+    }
+
+    // Se descarta ahora y otra vez al terminar la transacción en curso, para que un request concurrente
+    // no vuelva a guardar el estado leído antes del commit
+    public void invalidateClient(Long clientId) {
+        evictClient(clientId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictClient(clientId);
+                }
+            });
+        }
+    }
+
+    private synchronized void evictClient(Long clientId) {
+        generation++;
+        String keycloakId = keycloakIdByClient.remove(clientId);
+        if (keycloakId != null) {
+            entries.remove(keycloakId);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private void store(String keycloakId, ClientIdentityDTO identity) {
+        long ttl = identity != null ? ttlMs : negativeTtlMs;
+        Entry previous = entries.put(keycloakId, new Entry(identity, System.currentTimeMillis() + ttl));
+        if (previous != null) {
+            forgetClient(previous, keycloakId);
+        }
+        if (identity != null) {
+            keycloakIdByClient.put(identity.getClientId(), keycloakId);
+        }
+    }
+
+    private void forgetClient(Entry entry, String keycloakId) {
+        if (entry.identity() != null) {
+            keycloakIdByClient.remove(entry.identity().getClientId(), keycloakId);
+        }
+    }
+}
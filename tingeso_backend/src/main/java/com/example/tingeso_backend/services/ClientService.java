@@ -1,28 +1,47 @@
 package com.example.tingeso_backend.services;
 
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
+import com.example.tingeso_backend.dto.ClientSummaryDTO;
+import com.example.tingeso_backend.dto.CursorPageDTO;
 import com.example.tingeso_backend.entities.ClientEntity;
 import com.example.tingeso_backend.repositories.ClientRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class ClientService {
     @Autowired
     ClientRepository clientRepository;
 
+    @Autowired
+    ClientIdentityCache identityCache;
+
+    @Autowired
+    ClientSummaryService summaryService;
+
     public ArrayList<ClientEntity> getClients(){
         return (ArrayList<ClientEntity>) clientRepository.findAll();
     }
 
-    public ClientEntity saveEmployee(ClientEntity employee){
+    public CursorPageDTO<ClientEntity> getClientsPage(String after, Integer limit) {
+        int pageSize = CursorSupport.resolveLimit(limit);
+        List<ClientEntity> rows = clientRepository.findByIdGreaterThanOrderByIdAsc(
+                CursorSupport.decodeId(after), CursorSupport.probe(pageSize));
+        return CursorSupport.page(rows, pageSize, client -> String.valueOf(client.getId()));
+    }
 
+    public ClientEntity saveEmployee(ClientEntity employee){
+        requireRutAvailable(employee.getRutKey(), employee.getId());
         return clientRepository.save(employee);
     }
 
@@ -31,26 +50,98 @@ public class ClientService {
     }
 
     public ClientEntity getClientByRut(String rut){
+        String rutKey = ClientEntity.normalizeRut(rut);
+        return rutKey != null ? clientRepository.findByRutKey(rutKey).orElse(null) : null;
+    }
+
+    // Búsqueda por RUT exacto (con o sin puntos y guion), prefijo de nombre o prefijo de correo, en ese orden.
+    // El cursor codifica "grupo:id:clave" de la última fila: 0 = RUT, 1 = nombre, 2 = correo.
+    public CursorPageDTO<ClientSummaryDTO> searchClients(String query, String after, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El parámetro q es obligatorio.");
+        }
+        int pageSize = CursorSupport.resolveLimit(limit);
+        int group = 0;
+        long afterId = 0L;
+        String afterKey = "";
+        if (after != null && !after.isEmpty()) {
+            String[] key = CursorSupport.decode(after).split(":", 3);
+            try {
+                group = Integer.parseInt(key[0]);
+                afterId = Long.parseLong(key[1]);
+                afterKey = key[2];
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw CursorSupport.invalidCursor();
+            }
+        }
 
-        return clientRepository.findByRut(rut);
+        String rutKey = ClientEntity.normalizeRut(query);
+        String excludedRut = rutKey != null ? rutKey : "";
+        String prefix = escapeLike(ClientEntity.normalizeText(query)) + "%";
+        int wanted = pageSize + 1;
+        List<ClientSummaryDTO> rows = new ArrayList<>();
+        if (group == 0 && rutKey != null) {
+            clientRepository.findSummaryByRutKey(rutKey).ifPresent(rows::add);
+        }
+        if (group <= 1 && rows.size() < wanted) {
+            rows.addAll(clientRepository.searchByNamePrefix(prefix, excludedRut,
+                    group == 1 ? afterKey : "", group == 1 ? afterId : 0L, PageRequest.of(0, wanted - rows.size())));
+        }
+        if (rows.size() < wanted) {
+            rows.addAll(clientRepository.searchByEmailPrefix(prefix, excludedRut,
+                    group == 2 ? afterKey : "", group == 2 ? afterId : 0L, PageRequest.of(0, wanted - rows.size())));
+        }
+        return CursorSupport.page(rows, pageSize, ClientService::searchCursorKey);
     }
 
+    private static String searchCursorKey(ClientSummaryDTO row) {
+        return switch (row.getMatch()) {
+            case "rut" -> "0:" + row.getId() + ":";
+            case "name" -> "1:" + row.getId() + ":" + ClientEntity.normalizeText(row.getName());
+            default -> "2:" + row.getId() + ":" + ClientEntity.normalizeText(row.getEmail());
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // El RUT normalizado es único: un segundo cliente con el mismo RUT se rechaza antes de llegar a la restricción
+    private void requireRutAvailable(String rutKey, Long clientId) {
+        if (rutKey == null) {
+            return;
+        }
+        clientRepository.findByRutKey(rutKey)
+                .filter(other -> !other.getId().equals(clientId))
+                .ifPresent(other -> {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Ya existe un cliente con el RUT " + other.getRut());
+                });
+    }
+
+    @Transactional
     public ClientEntity updateClient(Long id, ClientEntity clientDetails) {
         //buscar el cliente existente por su id
         ClientEntity client = clientRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cliente no encontrado con id: " + id));
 
+        requireRutAvailable(clientDetails.getRutKey(), id);
         client.setName(clientDetails.getName());
         client.setRut(clientDetails.getRut());
         client.setPhone(clientDetails.getPhone());
         client.setEmail(clientDetails.getEmail());
         client.setStatus(clientDetails.getStatus());
 
-        return clientRepository.save(client);
+        ClientEntity saved = clientRepository.save(client);
+        identityCache.invalidateClient(id);
+        summaryService.invalidate(id);
+        return saved;
     }
+    @Transactional
     public boolean deleteClient(Long id) throws Exception {
         try{
             clientRepository.deleteById(id);
+            identityCache.invalidateClient(id);
+            summaryService.invalidate(id);
             return true;
         } catch (Exception e) {
             throw new Exception(e.getMessage());
@@ -62,47 +153,51 @@ public class ClientService {
     public ClientEntity findOrCreateClient(JwtAuthenticationToken principal) {
         //  id unico del usuario desde el token
         String keycloakId = principal.getName();
-        // crear cliente si no existe
-        return clientRepository.findByKeycloakId(keycloakId).orElseGet(() -> {
-            System.out.println("Cliente con Keycloak ID '" + keycloakId + "' no encontrado. Creando nuevo cliente...");
-
-            Map<String, Object> claims = principal.getToken().getClaims();
-
-            // obtener datos del token
-            String name = (String) claims.get("name");
-            String email = (String) claims.get("email");
-            String rut = (String) claims.get("RUT");       
-            String phone = (String) claims.get("phone");     
-
-            ClientEntity newClient = new ClientEntity();
-            newClient.setKeycloakId(keycloakId);
-            newClient.setName(name);
-            newClient.setEmail(email);
-            newClient.setRut(rut);      
-            newClient.setPhone(phone);   
-            newClient.setStatus("Activo"); 
-
-            System.out.println("Nuevo cliente creado -> Nombre: " + name + ", RUT: " + rut);
-
-            return clientRepository.save(newClient);
-        });
+        // El cliente ya conocido se lee por clave primaria
+        Optional<ClientIdentityDTO> known = identityCache.resolve(keycloakId);
+        if (known.isPresent()) {
+            return clientRepository.findById(known.get().getClientId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cliente no encontrado con id: " + known.get().getClientId()));
+        }
+        // Primer ingreso: un único INSERT que, si otra solicitud ya creó el cliente, devuelve ese
+        ClientEntity client = clientRepository.insertIfAbsent(newClientFromToken(principal));
+        identityCache.put(keycloakId, new ClientIdentityDTO(client.getId(), client.getStatus()));
+        return client;
     }
 
-    public ClientEntity getCurrentClient(JwtAuthenticationToken principal) {
-        String keycloakId = principal.getName(); // 'sub' del token
-        return clientRepository.findByKeycloakId(keycloakId)
+    private ClientEntity newClientFromToken(JwtAuthenticationToken principal) {
+        Map<String, Object> claims = principal.getToken().getClaims();
+
+        ClientEntity newClient = new ClientEntity();
+        newClient.setKeycloakId(principal.getName());
+        newClient.setName((String) claims.get("name"));
+        newClient.setEmail((String) claims.get("email"));
+        newClient.setRut((String) claims.get("RUT"));
+        newClient.setPhone((String) claims.get("phone"));
+        newClient.setStatus("Activo");
+        return newClient;
+    }
+
+    // La identidad viene resuelta por ClientIdentityFilter; aquí sólo se lee por clave primaria
+    public ClientEntity getCurrentClient(ClientIdentityDTO identity) {
+        return clientRepository.findById(identity.getClientId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No se encontró un perfil de cliente para el usuario actual."));
     }
 
      //Actualiza la información del cliente actualmente autenticado.
-    public ClientEntity updateCurrentClient(JwtAuthenticationToken principal, ClientEntity clientDetails) {
-        ClientEntity clientToUpdate = getCurrentClient(principal);
+    @Transactional
+    public ClientEntity updateCurrentClient(ClientIdentityDTO identity, ClientEntity clientDetails) {
+        ClientEntity clientToUpdate = getCurrentClient(identity);
+        requireRutAvailable(clientDetails.getRutKey(), clientToUpdate.getId());
 
         clientToUpdate.setName(clientDetails.getName());
         clientToUpdate.setRut(clientDetails.getRut());
         clientToUpdate.setPhone(clientDetails.getPhone());
         clientToUpdate.setEmail(clientDetails.getEmail());
 
-        return clientRepository.save(clientToUpdate);
+        ClientEntity saved = clientRepository.save(clientToUpdate);
+        identityCache.invalidateClient(saved.getId());
+        summaryService.invalidate(saved.getId());
+        return saved;
     }
 }
@@ -0,0 +1,120 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.ActiveLoanSummaryDTO;
+import com.example.tingeso_backend.dto.ClientAccountSummaryDTO;
+import com.example.tingeso_backend.dto.PendingFineSummaryDTO;
+import com.example.tingeso_backend.entities.ClientEntity;
+import com.example.tingeso_backend.repositories.ClientRepository;
+import com.example.tingeso_backend.repositories.FineRepository;
+import com.example.tingeso_backend.repositories.LoanRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resumen de cuenta por cliente, armado con tres consultas (cliente, préstamos activos, total de multas pendientes)
+ * y guardado hasta que llega un evento de préstamo o multa de ese cliente. Las entradas también vencen por plazo
+ * y al cambiar el día, porque un préstamo pasa a vencido sin que ocurra ningún evento.
+ */
+@Service
+public class ClientSummaryService {
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private FineRepository fineRepository;
+
+    @Value("${clients.summary-cache.max-size:10000}")
+    private int maxSize;
+
+    // Acota lo que puede quedar desactualizado por eventos procesados en otra réplica
+    @Value("${clients.summary-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    // Aumenta con cada invalidación; un cálculo que empezó antes no se guarda
+    private long generation;
+
+    private record Entry(ClientAccountSummaryDTO summary, long expiresAt) {
+    }
+
+    public ClientAccountSummaryDTO getSummary(Long clientId) {
+        LocalDate today = LocalDate.now();
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(clientId);
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()
+                    && today.equals(entry.summary().getComputedOn())) {
+                return entry.summary();
+            }
+            loadGeneration = generation;
+        }
+        ClientAccountSummaryDTO summary = compute(clientId, today);
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                entries.put(clientId, new Entry(summary, System.currentTimeMillis() + ttlMs));
+            }
+        }
+        return summary;
+    }
+
+    // Se descarta ahora y otra vez al terminar la transacción en curso, para que una lectura
+    // concurrente no vuelva a guardar el resumen anterior al cambio
+    public void invalidate(Long clientId) {
+        evict(clientId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(clientId);
+                }
+            });
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void evict(Long clientId) {
+        generation++;
+        entries.remove(clientId);
+    }
+
+    private ClientAccountSummaryDTO compute(Long clientId, LocalDate today) {
+        ClientEntity client = clientRepository.findById(clientId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cliente no encontrado con id: " + clientId));
+        List<ActiveLoanSummaryDTO> activeLoans = loanRepository.findActiveLoanSummaries(clientId, today);
+        PendingFineSummaryDTO fines = fineRepository.summarizePendingFinesByClientId(clientId)
+                .orElse(new PendingFineSummaryDTO(clientId, 0L, 0L));
+
+        // Los préstamos vienen ordenados por vencimiento
+        LocalDate earliestDueDate = activeLoans.isEmpty() ? null : activeLoans.get(0).getDueDate();
+        int overdue = (int) activeLoans.stream().filter(loan -> Boolean.TRUE.equals(loan.getOverdue())).count();
+        String restriction = ClientEligibilityService.restrictionReason(client.getStatus(), earliestDueDate,
+                fines.getPendingCount(), activeLoans.size(), today);
+
+        return new ClientAccountSummaryDTO(client.getId(), client.getName(), client.getStatus(), activeLoans,
+                activeLoans.size(), overdue, earliestDueDate, fines.getPendingCount(), fines.getPendingTotal(),
+                restriction, restriction == null, today);
+    }
+}
@@ -1,9 +1,27 @@
 package com.example.tingeso_backend.services;
 
 import com.example.tingeso_backend.entities.ConfigurationEntity;
+import com.example.tingeso_backend.entities.FeeVersionEntity;
+import com.example.tingeso_backend.notifications.ConfigChangeBus;
 import com.example.tingeso_backend.repositories.ConfigurationRepository;
+import com.example.tingeso_backend.repositories.FeeVersionRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class ConfigurationService {
@@ -11,23 +29,177 @@ public class ConfigurationService {
     @Autowired
     private ConfigurationRepository configurationRepository;
 
+    @Autowired
+    private FeeVersionRepository feeVersionRepository;
+
+    @Autowired
+    private ConfigChangeBus configChangeBus;
+
+    // Copia inmutable de la tabla de tarifas y su historial; se reemplaza completa al recargar
+    private final AtomicReference<FeeSnapshot> snapshot = new AtomicReference<>();
+
+    @PostConstruct
+    void subscribeToChanges() {
+        configChangeBus.subscribe(this::reload);
+    }
+
+    // Tarifa vigente en este momento
     public int getFee(String key) {
-        ConfigurationEntity config = configurationRepository.findByConfigKey(key)
-                .orElseThrow(() -> new RuntimeException("Configuración no encontrada: " + key));
-        return Integer.parseInt(config.getConfigValue());
+        FeeSnapshot current = currentSnapshot();
+        if (current.timelines().containsKey(key)) {
+            return current.timelines().get(key).valueAt(LocalDateTime.now());
+        }
+        Integer fee = current.fees().get(key);
+        if (fee != null) {
+            return fee;
+        }
+        String invalid = current.invalidValues().get(key);
+        if (invalid != null) {
+            throw new IllegalStateException("La configuración " + key + " no tiene un valor numérico: " + invalid);
+        }
+        throw new RuntimeException("Configuración no encontrada: " + key);
+    }
+
+    // Tarifa vigente en la fecha indicada; se resuelve en memoria sin consultar la base
+    public int getFeeAt(String key, LocalDateTime at) {
+        FeeTimeline timeline = currentSnapshot().timelines().get(key);
+        return timeline != null ? timeline.valueAt(at) : getFee(key);
+    }
+
+    // Las condiciones de un préstamo son las tarifas vigentes al comenzar el día en que se pactó: el préstamo sólo
+    // guarda la fecha, y así un cambio hecho durante el día no alcanza a los préstamos tomados antes ese mismo día.
+    // Un cambio de tarifa rige para los préstamos desde el día siguiente a su vigencia.
+    public int getFeeForLoan(String key, LocalDate loanDate) {
+        return loanDate != null ? getFeeAt(key, loanDate.atStartOfDay()) : getFee(key);
+    }
+
+    // Todas las tarifas vigentes con valor numérico, por clave
+    public Map<String, Integer> getAllFees() {
+        FeeSnapshot current = currentSnapshot();
+        Map<String, Integer> fees = new HashMap<>(current.fees());
+        LocalDateTime now = LocalDateTime.now();
+        current.timelines().forEach((key, timeline) -> fees.put(key, timeline.valueAt(now)));
+        return Map.copyOf(fees);
     }
 
+    @Transactional
     public ConfigurationEntity updateFee(String key, int newValue) {
+        return updateFee(key, newValue, null);
+    }
+
+    // Agrega una versión de la tarifa; sin fecha de vigencia rige desde ahora (para préstamos, ver getFeeForLoan)
+    @Transactional
+    public ConfigurationEntity updateFee(String key, int newValue, LocalDateTime effectiveFrom) {
         if (newValue < 0) {
             throw new IllegalArgumentException("El valor de la tarifa no puede ser negativo.");
         }
+        LocalDateTime now = LocalDateTime.now();
+        if (effectiveFrom != null && effectiveFrom.isBefore(now)) {
+            throw new IllegalArgumentException("La fecha de vigencia no puede ser anterior a la fecha actual.");
+        }
+        LocalDateTime from = effectiveFrom != null ? effectiveFrom : now;
+
+        FeeVersionEntity version = new FeeVersionEntity();
+        version.setConfigKey(key);
+        version.setFeeValue(newValue);
+        version.setEffectiveFrom(from);
+        feeVersionRepository.save(version);
 
         ConfigurationEntity config = configurationRepository.findByConfigKey(key)
                 .orElse(new ConfigurationEntity());
 
-        config.setConfigKey(key);
-        config.setConfigValue(String.valueOf(newValue));
+        // La tabla de configuración guarda el valor actual; un cambio programado no la modifica todavía
+        ConfigurationEntity saved = config;
+        if (effectiveFrom == null || config.getId() == null) {
+            config.setConfigKey(key);
+            config.setConfigValue(String.valueOf(newValue));
+            saved = configurationRepository.save(config);
+        }
+        notifyAfterCommit();
+        return saved;
+    }
+
+    // La copia local y las demás réplicas recargan cuando la nueva versión ya es visible en la base
+    private void notifyAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reload();
+            configChangeBus.publish();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reload();
+                configChangeBus.publish();
+            }
+        });
+    }
+
+    // Cota de desactualización si se pierde un aviso entre réplicas
+    @Scheduled(fixedDelayString = "${config.refresh-interval-ms:60000}", initialDelayString = "${config.refresh-interval-ms:60000}")
+    public void reload() {
+        snapshot.set(FeeSnapshot.of(configurationRepository.findAll(),
+                feeVersionRepository.findAllByOrderByConfigKeyAscEffectiveFromAsc()));
+    }
+
+    private FeeSnapshot currentSnapshot() {
+        FeeSnapshot current = snapshot.get();
+        if (current == null) {
+            reload();
+            current = snapshot.get();
+        }
+        return current;
+    }
+
+    private record FeeSnapshot(Map<String, Integer> fees, Map<String, String> invalidValues,
+                               Map<String, FeeTimeline> timelines) {
+
+        static FeeSnapshot of(List<ConfigurationEntity> rows, List<FeeVersionEntity> versions) {
+            Map<String, Integer> fees = new HashMap<>();
+            Map<String, String> invalidValues = new HashMap<>();
+            for (ConfigurationEntity row : rows) {
+                try {
+                    fees.put(row.getConfigKey(), Integer.parseInt(row.getConfigValue()));
+                } catch (NumberFormatException e) {
+                    invalidValues.put(row.getConfigKey(), String.valueOf(row.getConfigValue()));
+                }
+            }
+            Map<String, List<FeeVersionEntity>> byKey = new HashMap<>();
+            for (FeeVersionEntity version : versions) {
+                byKey.computeIfAbsent(version.getConfigKey(), k -> new ArrayList<>()).add(version);
+            }
+            Map<String, FeeTimeline> timelines = new HashMap<>();
+            byKey.forEach((key, keyVersions) -> timelines.put(key, FeeTimeline.of(keyVersions)));
+            return new FeeSnapshot(Map.copyOf(fees), Map.copyOf(invalidValues), Map.copyOf(timelines));
+        }
+    }
+
+    // Versiones de una tarifa ordenadas por vigencia, en arreglos paralelos para búsqueda binaria
+    private record FeeTimeline(long[] effectiveFrom, int[] values) {
 
-        return configurationRepository.save(config);
+        // versions debe venir ordenado por effectiveFrom ascendente
+        static FeeTimeline of(List<FeeVersionEntity> versions) {
+            long[] effectiveFrom = new long[versions.size()];
+            int[] values = new int[versions.size()];
+            for (int i = 0; i < versions.size(); i++) {
+                effectiveFrom[i] = versions.get(i).getEffectiveFrom().toEpochSecond(ZoneOffset.UTC);
+                values[i] = versions.get(i).getFeeValue();
+            }
+            return new FeeTimeline(effectiveFrom, values);
+        }
+
+        // Última versión con vigencia <= at; antes de la primera versión se usa la más antigua
+        int valueAt(LocalDateTime at) {
+            int index = Arrays.binarySearch(effectiveFrom, at.toEpochSecond(ZoneOffset.UTC));
+            if (index < 0) {
+                index = Math.max(-index - 2, 0);
+            } else {
+                // con vigencias repetidas, la última versión registrada es la que rige
+                while (index + 1 < effectiveFrom.length && effectiveFrom[index + 1] == effectiveFrom[index]) {
+                    index++;
+                }
+            }
+            return values[index];
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.CursorPageDTO;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Utilidades comunes para la paginación por cursor (keyset) de los listados.
+ * El cursor es opaco para el cliente: la clave de la última fila entregada codificada en Base64.
+ */
+final class CursorSupport {
+
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 500;
+
+    private CursorSupport() {
+    }
+
+    static int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El parámetro limit debe ser mayor que cero.");
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    // Se pide una fila extra para saber si existe una página siguiente sin contar la tabla
+    static Pageable probe(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    static String encode(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalidCursor();
+        }
+    }
+
+    // Cursor de los listados ordenados por id; sin cursor se parte desde el inicio
+    static long decodeId(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(decode(cursor));
+        } catch (NumberFormatException e) {
+            throw invalidCursor();
+        }
+    }
+
+    static <T> CursorPageDTO<T> page(List<T> rows, int limit, Function<T, String> keyOf) {
+        if (rows.size() <= limit) {
+            return new CursorPageDTO<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new CursorPageDTO<>(items, encode(keyOf.apply(items.get(limit - 1))));
+    }
+
+    static ResponseStatusException invalidCursor() {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor de paginación inválido.");
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.tingeso_backend.services;
 
+import com.example.tingeso_backend.dto.CursorPageDTO;
 import com.example.tingeso_backend.dto.FineDTO;
+import com.example.tingeso_backend.dto.PendingFineSummaryDTO;
 import com.example.tingeso_backend.entities.ClientEntity;
 import com.example.tingeso_backend.entities.FineEntity;
 import com.example.tingeso_backend.entities.LoanEntity;
@@ -23,6 +25,12 @@ public class FineService {
     @Autowired
     private ConfigurationService configurationService;
 
+    @Autowired
+    private ClientEligibilityService eligibilityService;
+
+    @Autowired
+    private ClientIdentityCache identityCache;
+
 
     public List<FineDTO> getAllFines() {
         return fineRepository.findAll().stream()
@@ -30,6 +38,16 @@ public class FineService {
                 .collect(Collectors.toList());
     }
 
+    // Página de multas ordenada por id a partir del cursor recibido
+    public CursorPageDTO<FineDTO> getFinesPage(String after, Integer limit) {
+        int pageSize = CursorSupport.resolveLimit(limit);
+        List<FineDTO> rows = fineRepository.findByIdGreaterThanOrderByIdAsc(
+                        CursorSupport.decodeId(after), CursorSupport.probe(pageSize)).stream()
+                .map(this::buildFineDTO)
+                .collect(Collectors.toList());
+        return CursorSupport.page(rows, pageSize, dto -> String.valueOf(dto.getId()));
+    }
+
     // Convierte una FineEntity a FineDTO
     private FineDTO buildFineDTO(FineEntity fine) {
         FineDTO dto = new FineDTO();
@@ -58,8 +76,8 @@ public class FineService {
             long overdueDays = ChronoUnit.DAYS.between(loan.getDueDate(), loan.getReturnDate());
 
             if (overdueDays > 0) {
-                // Obtener la tarifa por día de multa desde la configuración
-                int lateFeePerDay = configurationService.getFee("daily_late_fee");
+                // Tarifa por día de multa vigente al momento del préstamo
+                int lateFeePerDay = feeForLoan("daily_late_fee", loan);
 
                 // Calcular el monto total de la multa
                 int totalFineAmount = (int) overdueDays * lateFeePerDay;
@@ -79,6 +97,8 @@ public class FineService {
 
                 ClientEntity client = loan.getClient();
                 client.setStatus("Restringido");
+                identityCache.invalidateClient(client.getId());
+                eligibilityService.onFineCreated(client.getId());
             }
         }
     }
@@ -96,18 +116,27 @@ public class FineService {
 
         ClientEntity client = loan.getClient();
         client.setStatus("Restringido");
+        identityCache.invalidateClient(client.getId());
+        eligibilityService.onFineCreated(client.getId());
     }
 
     // Verifica si un cliente tiene multas pendientes
     public boolean hasPendingFines(Long clientId) {
-        return !fineRepository.findPendingFinesByClientId(clientId).isEmpty();
+        return fineRepository.existsByClientIdAndStatus(clientId, "Pendiente");
+    }
+
+    // Cantidad y monto total de multas pendientes de un cliente
+    public PendingFineSummaryDTO getPendingFineSummary(Long clientId) {
+        return fineRepository.summarizePendingFinesByClientId(clientId)
+                .orElse(new PendingFineSummaryDTO(clientId, 0L, 0L));
     }
 
     @Transactional
     public void payFine(Long fineId) {
         // Buscar y actualizar la multa
-        FineEntity fine = fineRepository.findById(fineId)
+        FineEntity fine = fineRepository.findWithLoanClientById(fineId)
                 .orElseThrow(() -> new RuntimeException("Multa no encontrada"));
+        boolean wasPending = "Pendiente".equals(fine.getStatus());
 
         fine.setStatus("Pagada");
         fine.setPaymentDate(LocalDate.now());
@@ -115,15 +144,19 @@ public class FineService {
 
         // Revisar si el cliente puede volver a estado "Activo"
         ClientEntity client = fine.getLoan().getClient();
+        if (wasPending) {
+            eligibilityService.onFinePaid(client.getId());
+        }
         boolean hasOtherPendingFines = hasPendingFines(client.getId());
 
         if (!hasOtherPendingFines) {
             client.setStatus("Activo");
+            identityCache.invalidateClient(client.getId());
         }
     }
 
     public void createFineForRepairableDamage(LoanEntity loan) {
-        int repairAmount = configurationService.getFee("repair_fee");
+        int repairAmount = feeForLoan("repair_fee", loan);
 
         if (repairAmount > 0) {
             FineEntity fine = new FineEntity();
@@ -138,11 +171,17 @@ public class FineService {
 
             ClientEntity client = loan.getClient();
             client.setStatus("Restringido");
+            identityCache.invalidateClient(client.getId());
+            eligibilityService.onFineCreated(client.getId());
         }
     }
 
-    public List<FineDTO> getFinesForUser(String keycloakId) {
-        return fineRepository.findByUserKeycloakId(keycloakId).stream()
+    private int feeForLoan(String key, LoanEntity loan) {
+        return configurationService.getFeeForLoan(key, loan.getLoanDate());
+    }
+
+    public List<FineDTO> getFinesForClient(Long clientId) {
+        return fineRepository.findByClientIdWithLoanDetails(clientId).stream()
                 .map(this::buildFineDTO)
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,65 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.KardexBalanceDTO;
+import com.example.tingeso_backend.entities.KardexEntity;
+import com.example.tingeso_backend.entities.ToolEntity;
+import com.example.tingeso_backend.repositories.KardexBalanceRepository;
+import com.example.tingeso_backend.repositories.KardexRepository;
+import com.example.tingeso_backend.repositories.ToolRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checkpoints diarios del saldo por herramienta. Cada día con movimientos tiene su cierre, así el
+ * saldo en un instante es el cierre del día anterior más los movimientos de ese mismo día.
+ */
+@Service
+public class KardexBalanceService {
+
+    @Autowired
+    private KardexBalanceRepository balanceRepository;
+
+    @Autowired
+    private KardexRepository kardexRepository;
+
+    @Autowired
+    private ToolRepository toolRepository;
+
+    /**
+     * Aplica a los cierres los movimientos recién insertados. Debe llamarse en la misma transacción
+     * que los inserta. Se asume un único escritor: el despacho del outbox corre sólo en el nodo que tiene
+     * el lock de ClusterJobRunner; en Postgres un lock de transacción además serializa a quienes escriban cierres.
+     */
+    @Transactional
+    public void applyMovements(List<KardexEntity> movements) {
+        // Un delta por (herramienta, día); el lote completo se aplica con dos sentencias
+        Map<Long, Map<LocalDate, Long>> deltas = new TreeMap<>();
+        for (KardexEntity movement : movements) {
+            if (movement.getQuantityAffected() == 0) {
+                continue;
+            }
+            deltas.computeIfAbsent(movement.getTool().getId(), id -> new TreeMap<>())
+                    .merge(movement.getMovementDate().toLocalDate(), (long) movement.getQuantityAffected(), Long::sum);
+        }
+        balanceRepository.applyDailyDeltas(deltas);
+    }
+
+    @Transactional(readOnly = true)
+    public KardexBalanceDTO getBalanceAt(String toolName, LocalDateTime at) {
+        List<Long> toolIds = toolRepository.findIdsByNameKey(ToolEntity.normalizeName(toolName));
+        if (toolIds.isEmpty()) {
+            return new KardexBalanceDTO(toolName, at, 0);
+        }
+        LocalDate day = at.toLocalDate();
+        long checkpoint = balanceRepository.sumClosingBalancesBefore(toolIds, day);
+        long sameDay = kardexRepository.sumQuantityByToolIdsBetween(toolIds, day.atStartOfDay(), at);
+        return new KardexBalanceDTO(toolName, at, checkpoint + sameDay);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.scheduling.ClusterJobRunner;
+import com.example.tingeso_backend.scheduling.JobLease;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+// Vacía el outbox de movimientos hacia el kardex. Entrega al menos una vez; la inserción ignora eventos repetidos.
+@Component
+public class KardexOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(KardexOutboxDispatcher.class);
+
+    static final String DISPATCH_JOB = "kardex-outbox-dispatch";
+    static final String PURGE_JOB = "outbox-purge";
+
+    @Autowired
+    private KardexService kardexService;
+    @Autowired
+    private OutboxService outboxService;
+    @Autowired
+    private ClusterJobRunner jobRunner;
+
+    @Value("${kardex.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${outbox.purge-cron:0 30 3 * * *}")
+    private String purgeCron;
+
+    @Scheduled(fixedDelayString = "${kardex.outbox.dispatch-delay-ms:1000}")
+    public void dispatch() {
+        jobRunner.runIfLeader(DISPATCH_JOB, this::dispatch);
+    }
+
+    public int dispatch(JobLease lease) {
+        int dispatched = 0;
+        int batch;
+        do {
+            // Cada lote es una transacción: si el nodo cae, los eventos no marcados se reintentan
+            try {
+                batch = kardexService.dispatchPendingMovements(batchSize);
+            } catch (RuntimeException e) {
+                logger.warn("No se pudo confirmar un lote del outbox del kardex; se despacha de a un evento", e);
+                batch = dispatchOneByOne(batchSize);
+            }
+            dispatched += batch;
+        } while (batch == batchSize && lease.isValid());
+        return dispatched;
+    }
+
+    // Un evento que falla al escribirse revierte todo su lote; de a uno, sólo ese evento queda marcado como fallido
+    private int dispatchOneByOne(int limit) {
+        int dispatched = 0;
+        while (dispatched < limit) {
+            int processed;
+            try {
+                processed = kardexService.dispatchPendingMovements(1);
+            } catch (RuntimeException e) {
+                logger.warn("Evento del outbox del kardex marcado como fallido", e);
+                processed = kardexService.failOldestPendingMovement(String.valueOf(e.getMessage()));
+            }
+            if (processed == 0) {
+                break;
+            }
+            dispatched += processed;
+        }
+        return dispatched;
+    }
+
+    @Scheduled(cron = "${outbox.purge-cron:0 30 3 * * *}")
+    public void purgeProcessed() {
+        jobRunner.runOncePerTrigger(PURGE_JOB, purgeCron,
+                lease -> outboxService.purgeProcessedBefore(LocalDateTime.now().minusDays(retentionDays)));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.repositories.KardexRepository;
+import com.example.tingeso_backend.scheduling.ClusterJobRunner;
+import com.example.tingeso_backend.scheduling.JobLease;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+// Crea con anticipación las particiones mensuales del kardex y archiva las que superan la retención.
+// Sólo en Postgres; en H2 el kardex es una tabla común.
+@Component
+public class KardexPartitionMaintainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(KardexPartitionMaintainer.class);
+    static final String JOB_NAME = "kardex-partition-maintenance";
+
+    @Autowired
+    private KardexRepository kardexRepository;
+    @Autowired
+    private ClusterJobRunner jobRunner;
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${kardex.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${kardex.partitions.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${kardex.partitions.cron:0 15 2 * * *}")
+    private String cron;
+
+    private boolean partitioned;
+
+    @PostConstruct
+    void detectPartitioning() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            partitioned = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        }
+    }
+
+    @Scheduled(cron = "${kardex.partitions.cron:0 15 2 * * *}")
+    public void maintain() {
+        if (partitioned) {
+            jobRunner.runOncePerTrigger(JOB_NAME, cron, lease -> maintain(LocalDate.now(), lease));
+        }
+    }
+
+    public int maintain(LocalDate today, JobLease lease) {
+        LocalDate currentMonth = today.withDayOfMonth(1);
+        int created = kardexRepository.ensureMonthlyPartitions(currentMonth, currentMonth.plusMonths(monthsAhead));
+        int archived = 0;
+        // retención 0 o negativa: no se archiva nada
+        if (retentionMonths > 0 && lease.isValid()) {
+            archived = kardexRepository.archivePartitionsBefore(currentMonth.minusMonths(retentionMonths));
+        }
+        logger.info("Particiones del kardex: {} creadas, {} archivadas", created, archived);
+        return created + archived;
+    }
+}
@@ -1,34 +1,81 @@
 package com.example.tingeso_backend.services;
 
+import com.example.tingeso_backend.dto.CursorPageDTO;
+import com.example.tingeso_backend.dto.KardexExportDTO;
+import com.example.tingeso_backend.dto.KardexMovementEventDTO;
 import com.example.tingeso_backend.entities.KardexEntity;
 import com.example.tingeso_backend.entities.LoanEntity;
+import com.example.tingeso_backend.entities.OutboxEventEntity;
 import com.example.tingeso_backend.entities.ToolEntity;
 import com.example.tingeso_backend.repositories.KardexRepository;
+import com.example.tingeso_backend.repositories.OutboxEventRepository;
+import com.example.tingeso_backend.repositories.ToolRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class KardexService {
 
+    // Límites usados cuando no se filtra por fecha, para que la consulta keyset sea siempre la misma
+    private static final LocalDateTime MIN_MOVEMENT_DATE = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_MOVEMENT_DATE = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    // Cantidad de filas escritas entre cada flush de la exportación
+    private static final int EXPORT_FLUSH_ROWS = 500;
+
+    static final String KARDEX_MOVEMENT_EVENT = "KardexMovement";
+
+    private static final String CSV_HEADER = "id,movementDate,toolId,toolName,movementType,quantityAffected,userResponsible";
+
     @Autowired
     private KardexRepository kardexRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ToolRepository toolRepository;
+
+    @Autowired
+    private KardexBalanceService balanceService;
+
     /**
      * Registra el INGRESO de una nueva herramienta al inventario.
-     * Cantidad Afectada: +1
+     * Cantidad Afectada: +1, o +availableStock si la herramienta se lleva en modo "Stock"
      */
     public void createNewToolMovement(ToolEntity tool, String userResponsible) {
         KardexEntity movement = new KardexEntity();
         movement.setTool(tool);
         movement.setMovementType("Ingreso");
         movement.setMovementDate(LocalDateTime.now());
-        movement.setQuantityAffected(1);
+        movement.setQuantityAffected(tool.isStockCounted() ? tool.getAvailableStock() : 1);
         movement.setUserResponsible(userResponsible);
-        kardexRepository.save(movement);
+        enqueue(movement);
     }
 
     /**
@@ -42,7 +89,7 @@ public class KardexService {
         movement.setMovementDate(loan.getLoanDate().atStartOfDay());
         movement.setQuantityAffected(-1);
         movement.setUserResponsible(loan.getClient().getName());
-        kardexRepository.save(movement);
+        enqueue(movement);
     }
 
     /**
@@ -56,7 +103,7 @@ public class KardexService {
         movement.setMovementDate(loan.getReturnDate().atStartOfDay());
         movement.setQuantityAffected(1);
         movement.setUserResponsible(userResponsible); // Empleado que procesa la devolución
-        kardexRepository.save(movement);
+        enqueue(movement);
     }
 
     /**
@@ -64,13 +111,21 @@ public class KardexService {
      * Cantidad Afectada: -1
      */
     public void createWriteOffMovement(ToolEntity tool, String userResponsible) {
+        createWriteOffMovement(tool, 1, userResponsible);
+    }
+
+    /**
+     * Registra la BAJA de varias unidades de una herramienta en modo "Stock".
+     * Cantidad Afectada: -quantity
+     */
+    public void createWriteOffMovement(ToolEntity tool, int quantity, String userResponsible) {
         KardexEntity movement = new KardexEntity();
         movement.setTool(tool);
         movement.setMovementType("Baja");
         movement.setMovementDate(LocalDateTime.now());
-        movement.setQuantityAffected(-1);
+        movement.setQuantityAffected(-quantity);
         movement.setUserResponsible(userResponsible);
-        kardexRepository.save(movement);
+        enqueue(movement);
     }
 
     /**
@@ -85,26 +140,230 @@ public class KardexService {
         movement.setMovementDate(LocalDateTime.now());
         movement.setQuantityAffected(0); // No cambia el stock total, solo el estado
         movement.setUserResponsible(userResponsible);
-        kardexRepository.save(movement);
+        enqueue(movement);
+    }
+
+    // Los movimientos se escriben como eventos de outbox; KardexOutboxDispatcher los pasa al kardex en lotes
+    private void enqueue(KardexEntity movement) {
+        Long toolId = movement.getTool() != null ? movement.getTool().getId() : null;
+        KardexMovementEventDTO event = new KardexMovementEventDTO(toolId, movement.getMovementType(),
+                movement.getMovementDate(), movement.getQuantityAffected(), movement.getUserResponsible());
+        outboxService.append(KARDEX_MOVEMENT_EVENT, toolId, event);
     }
 
-    public List<KardexEntity> getMovements(String toolName, LocalDate startDate, LocalDate endDate) {
+    /**
+     * Inserta en el kardex hasta batchSize movimientos pendientes del outbox (Hibernate los agrupa en
+     * batches JDBC) y los marca como procesados en la misma transacción. Los eventos cuyo id ya está
+     * en el kardex se omiten, así una entrega repetida no duplica movimientos. Los cierres diarios de
+     * saldo se actualizan en la misma transacción. Un evento ilegible, incompleto o de una herramienta
+     * inexistente se marca como fallido y el resto del lote se despacha igual.
+     * Devuelve la cantidad de eventos despachados o marcados como fallidos.
+     */
+    @Transactional
+    public int dispatchPendingMovements(int batchSize) {
+        List<OutboxEventEntity> events = outboxEventRepository.findByEventTypeAndProcessedAtIsNullAndFailedAtIsNullOrderByIdAsc(
+                KARDEX_MOVEMENT_EVENT, PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<String> eventIds = events.stream().map(OutboxEventEntity::getEventId).toList();
+        Set<String> alreadyRecorded = new HashSet<>(kardexRepository.findExistingEventIds(eventIds));
+        List<Long> ids = new ArrayList<>(events.size());
+        List<OutboxEventEntity> toRecord = new ArrayList<>(events.size());
+        List<KardexMovementEventDTO> payloads = new ArrayList<>(events.size());
+        for (OutboxEventEntity event : events) {
+            if (alreadyRecorded.contains(event.getEventId())) {
+                ids.add(event.getId());
+                continue;
+            }
+            try {
+                payloads.add(readMovementPayload(event));
+                toRecord.add(event);
+            } catch (RuntimeException e) {
+                markFailed(event, e.getMessage());
+            }
+        }
+        // Una sola consulta para las herramientas del lote: un id inexistente haría fallar el INSERT completo
+        Set<Long> knownTools = payloads.isEmpty() ? Set.of() : new HashSet<>(toolRepository.findExistingIds(
+                payloads.stream().map(KardexMovementEventDTO::getToolId).collect(Collectors.toSet())));
+        List<KardexEntity> movements = new ArrayList<>(toRecord.size());
+        for (int i = 0; i < toRecord.size(); i++) {
+            OutboxEventEntity event = toRecord.get(i);
+            KardexMovementEventDTO payload = payloads.get(i);
+            if (!knownTools.contains(payload.getToolId())) {
+                markFailed(event, "Herramienta inexistente: " + payload.getToolId());
+                continue;
+            }
+            KardexEntity movement = new KardexEntity();
+            movement.setTool(toolRepository.getReferenceById(payload.getToolId()));
+            movement.setMovementType(payload.getMovementType());
+            movement.setMovementDate(payload.getMovementDate());
+            movement.setQuantityAffected(payload.getQuantityAffected());
+            movement.setUserResponsible(payload.getUserResponsible());
+            movement.setEventId(event.getEventId());
+            movements.add(movement);
+            ids.add(event.getId());
+        }
+        if (!movements.isEmpty()) {
+            kardexRepository.saveAll(movements);
+            balanceService.applyMovements(movements);
+        }
+        if (!ids.isEmpty()) {
+            outboxEventRepository.markProcessed(ids, LocalDateTime.now());
+        }
+        return events.size();
+    }
+
+    /**
+     * Marca como fallido el evento pendiente más antiguo. El despachador lo usa cuando un lote de un solo
+     * evento no se puede confirmar, para que ese evento no detenga a los siguientes.
+     */
+    @Transactional
+    public int failOldestPendingMovement(String error) {
+        List<OutboxEventEntity> oldest = outboxEventRepository.findByEventTypeAndProcessedAtIsNullAndFailedAtIsNullOrderByIdAsc(
+                KARDEX_MOVEMENT_EVENT, PageRequest.of(0, 1));
+        oldest.forEach(event -> markFailed(event, error));
+        return oldest.size();
+    }
+
+    private KardexMovementEventDTO readMovementPayload(OutboxEventEntity event) {
+        KardexMovementEventDTO payload = outboxService.readPayload(event, KardexMovementEventDTO.class);
+        if (payload.getToolId() == null || payload.getMovementType() == null || payload.getMovementDate() == null) {
+            throw new IllegalArgumentException("Evento de kardex incompleto: " + event.getEventId());
+        }
+        return payload;
+    }
+
+    private void markFailed(OutboxEventEntity event, String error) {
+        String reason = error == null ? "Error desconocido" : error;
+        outboxEventRepository.markFailed(event.getId(), reason.length() > 1000 ? reason.substring(0, 1000) : reason,
+                LocalDateTime.now());
+    }
+
+    public List<KardexEntity> getMovements(Long toolId, String toolName, LocalDate startDate, LocalDate endDate) {
         LocalDateTime startDateTime = (startDate != null) ? startDate.atStartOfDay() : null;
         LocalDateTime endDateTime = (endDate != null) ? endDate.plusDays(1).atStartOfDay() : null;
 
-        boolean hasToolName = toolName != null && !toolName.isEmpty();
+        List<Long> toolIds = resolveToolIds(toolId, toolName);
         boolean hasDateRange = startDateTime != null && endDateTime != null;
 
-        if (hasToolName && hasDateRange) {
-            // Llama al nuevo método del repositorio
-            return kardexRepository.findByToolNameIgnoreCaseAndMovementDateGreaterThanEqualAndMovementDateLessThan(toolName, startDateTime, endDateTime);
-        } else if (hasToolName) {
-            return kardexRepository.findByToolNameIgnoreCase(toolName);
+        if (toolIds != null && toolIds.isEmpty()) {
+            return List.of();
+        } else if (toolIds != null && hasDateRange) {
+            return kardexRepository.findByToolIdInAndMovementDateGreaterThanEqualAndMovementDateLessThan(toolIds, startDateTime, endDateTime);
+        } else if (toolIds != null) {
+            return kardexRepository.findByToolIdIn(toolIds);
         } else if (hasDateRange) {
-            // Llama al nuevo método del repositorio
             return kardexRepository.findByMovementDateGreaterThanEqualAndMovementDateLessThan(startDateTime, endDateTime);
         } else {
             return kardexRepository.findAll();
         }
     }
-}
\ No newline at end of file
+
+    // Filtro por herramienta: el id indicado o todas las filas con ese nombre normalizado; null si no se filtra
+    private List<Long> resolveToolIds(Long toolId, String toolName) {
+        if (toolId != null) {
+            return List.of(toolId);
+        }
+        if (toolName == null || toolName.isEmpty()) {
+            return null;
+        }
+        return toolRepository.findIdsByNameKey(ToolEntity.normalizeName(toolName));
+    }
+
+    /**
+     * Página de movimientos ordenada por (fecha, id). El cursor codifica la fecha y el id
+     * del último movimiento entregado, por lo que cada página cuesta lo mismo que la primera.
+     */
+    public CursorPageDTO<KardexEntity> getMovementsPage(Long toolId, String toolName, LocalDate startDate, LocalDate endDate,
+                                                        String after, Integer limit) {
+        int pageSize = CursorSupport.resolveLimit(limit);
+        LocalDateTime startDateTime = (startDate != null) ? startDate.atStartOfDay() : MIN_MOVEMENT_DATE;
+        LocalDateTime endDateTime = (endDate != null) ? endDate.plusDays(1).atStartOfDay() : MAX_MOVEMENT_DATE;
+
+        LocalDateTime afterDate = startDateTime;
+        long afterId = 0L;
+        if (after != null && !after.isEmpty()) {
+            String[] key = CursorSupport.decode(after).split("\\|", 2);
+            try {
+                afterDate = LocalDateTime.parse(key[0]);
+                afterId = Long.parseLong(key[1]);
+            } catch (RuntimeException e) {
+                throw CursorSupport.invalidCursor();
+            }
+        }
+
+        List<Long> toolIds = resolveToolIds(toolId, toolName);
+        List<KardexEntity> rows;
+        if (toolIds == null) {
+            rows = kardexRepository.findPageAfter(startDateTime, endDateTime, afterDate, afterId, CursorSupport.probe(pageSize));
+        } else if (toolIds.isEmpty()) {
+            rows = List.of();
+        } else {
+            rows = kardexRepository.findPageByToolIdsAfter(toolIds, startDateTime, endDateTime, afterDate, afterId, CursorSupport.probe(pageSize));
+        }
+        return CursorSupport.page(rows, pageSize, movement -> movement.getMovementDate() + "|" + movement.getId());
+    }
+
+    /**
+     * Exporta los movimientos filtrados escribiéndolos directamente en la salida, fila a fila,
+     * desde un cursor de sólo avance. La memoria usada no depende del tamaño del kardex.
+     * Formatos soportados: "ndjson" (un objeto JSON por línea) y "csv".
+     */
+    @Transactional(readOnly = true)
+    public void exportMovements(Long toolId, String toolName, LocalDate startDate, LocalDate endDate, String format, OutputStream out) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Formato de exportación no soportado: " + format);
+        }
+        LocalDateTime startDateTime = (startDate != null) ? startDate.atStartOfDay() : MIN_MOVEMENT_DATE;
+        LocalDateTime endDateTime = (endDate != null) ? endDate.plusDays(1).atStartOfDay() : MAX_MOVEMENT_DATE;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        List<Long> toolIds = resolveToolIds(toolId, toolName);
+        try (Stream<KardexExportDTO> rows = toolIds == null
+                ? kardexRepository.streamForExport(startDateTime, endDateTime)
+                : toolIds.isEmpty()
+                ? Stream.empty()
+                : kardexRepository.streamForExportByToolIds(toolIds, startDateTime, endDateTime)) {
+            int written = 0;
+            Iterator<KardexExportDTO> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                KardexExportDTO row = iterator.next();
+                writer.write(csv ? toCsvLine(row) : objectMapper.writeValueAsString(row));
+                writer.write('\n');
+                if (++written % EXPORT_FLUSH_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private String toCsvLine(KardexExportDTO row) {
+        return String.join(",",
+                String.valueOf(row.getId()),
+                String.valueOf(row.getMovementDate()),
+                String.valueOf(row.getToolId()),
+                csvField(row.getToolName()),
+                csvField(row.getMovementType()),
+                String.valueOf(row.getQuantityAffected()),
+                csvField(row.getUserResponsible()));
+    }
+
+    // Escapa comillas y encierra el valor cuando contiene separadores (RFC 4180)
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.tingeso_backend.services;
 
+import com.example.tingeso_backend.dto.CursorPageDTO;
 import com.example.tingeso_backend.dto.LoanDTO;
 import com.example.tingeso_backend.dto.LoanWithFineInfoDTO;
+import com.example.tingeso_backend.dto.OverdueLoanDTO;
 import com.example.tingeso_backend.dto.ReturnRequestDTO;
+import com.example.tingeso_backend.entities.ClientEligibilityEntity;
 import com.example.tingeso_backend.entities.ClientEntity;
 import com.example.tingeso_backend.entities.FineEntity;
 import com.example.tingeso_backend.entities.LoanEntity;
@@ -12,13 +15,18 @@ import com.example.tingeso_backend.repositories.FineRepository;
 import com.example.tingeso_backend.repositories.LoanRepository;
 import com.example.tingeso_backend.repositories.ToolRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 public class LoanService {
@@ -37,31 +45,22 @@ public class LoanService {
     private FineRepository fineRepository;
     @Autowired
     private ClientService clientService;
+    @Autowired
+    private ClientEligibilityService eligibilityService;
+    @Autowired
+    private ConfigurationService configurationService;
 
-    // Modifica o crea un nuevo método para devolver el DTO
+    // Lista los préstamos con la información de multas resuelta en una sola consulta
     public List<LoanWithFineInfoDTO> getLoansWithFineInfo() {
-        List<LoanEntity> loans = loanRepository.findAll();
-
-        return loans.stream().map(loan -> {
-            LoanWithFineInfoDTO dto = new LoanWithFineInfoDTO();
-            dto.setId(loan.getId());
-            dto.setClientName(loan.getClient().getName()); // Asumiendo que ClientEntity tiene un getName()
-            dto.setToolName(loan.getTool().getName());     // Asumiendo que ToolEntity tiene un getName()
-            dto.setLoanDate(loan.getLoanDate());
-            dto.setDueDate(loan.getDueDate());
-            dto.setReturnDate(loan.getReturnDate());
-            dto.setStatus(loan.getStatus());
-
-            // Buscar la multa asociada a este préstamo
-            FineEntity fine = fineRepository.findByLoanId(loan.getId());
-            if (fine != null) {
-                dto.setFineId(fine.getId());
-                dto.setFineAmount(fine.getAmount());
-                dto.setFineStatus(fine.getStatus());
-            }
+        return loanRepository.findAllWithFineInfo();
+    }
 
-            return dto;
-        }).collect(Collectors.toList());
+    // Página de préstamos ordenada por id a partir del cursor recibido
+    public CursorPageDTO<LoanWithFineInfoDTO> getLoansWithFineInfoPage(String after, Integer limit) {
+        int pageSize = CursorSupport.resolveLimit(limit);
+        List<LoanWithFineInfoDTO> rows = loanRepository.findWithFineInfoAfter(
+                CursorSupport.decodeId(after), CursorSupport.probe(pageSize));
+        return CursorSupport.page(rows, pageSize, dto -> String.valueOf(dto.getId()));
     }
 
 
@@ -85,8 +84,20 @@ public class LoanService {
 
         validateLoanRequest(client, tool, loanRequest.getDueDate());
 
-        tool.setStatus("Prestada");
-        toolRepository.save(tool);
+        // La reserva se decide en un único UPDATE condicionado: si otra solicitud (en esta u otra
+        // réplica) ya tomó la herramienta, no se modifica ninguna fila y se responde 409 de inmediato.
+        if (tool.isStockCounted()) {
+            // El contador se descuenta sólo en la base de datos; la entidad no se toca para no pisarlo
+            if (toolRepository.takeOneUnit(tool.getId()) == 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "No quedan unidades disponibles de esta herramienta.");
+            }
+        } else {
+            // Igual que el stock: el estado cambia sólo en la base; modificar la entidad generaría un segundo
+            // UPDATE al confirmar que podría pisar cambios concurrentes
+            if (toolRepository.transitionStatus(tool.getId(), "Disponible", "Prestada") == 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "La herramienta ya fue prestada por otra solicitud.");
+            }
+        }
 
         LoanEntity newLoan = new LoanEntity();
         newLoan.setClient(client);
@@ -97,25 +108,29 @@ public class LoanService {
 
         LoanEntity savedLoan = loanRepository.save(newLoan);
         kardexService.createLoanMovement(savedLoan);
+        eligibilityService.onLoanCreated(client.getId(), savedLoan.getDueDate());
 
         return savedLoan;
     }
 
-    public List<LoanWithFineInfoDTO> getLoansForUser(String keycloakId) {
-        return loanRepository.findByClientKeycloakId(keycloakId).stream()
-                .map(this::buildLoanWithFineInfoDTO)
-                .collect(Collectors.toList());
+    public List<LoanWithFineInfoDTO> getLoansForClient(Long clientId) {
+        return loanRepository.findWithFineInfoByClientId(clientId);
     }
 
 // Procesa la devolución de una herramienta, calcula multas y actualiza estados.
     @Transactional
     public LoanWithFineInfoDTO processReturn(Long loanId, ReturnRequestDTO returnRequest) {
-        LoanEntity loan = loanRepository.findById(loanId)
+        LoanEntity loan = loanRepository.findForReturnById(loanId)
                 .orElseThrow(() -> new RuntimeException("Préstamo no encontrado"));
 
         if (!"Activo".equals(loan.getStatus())) {
             throw new RuntimeException("Este préstamo no está activo.");
         }
+        // La devolución se toma con un UPDATE condicionado, igual que la reserva en createLoan:
+        // si otra solicitud ya la registró no se toca el stock ni se cobran multas dos veces
+        if (loanRepository.claimReturn(loanId, LocalDate.now()) == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "La devolución de este préstamo ya fue registrada.");
+        }
 
         loan.setReturnDate(LocalDate.now());
         loan.setStatus("Devuelto");
@@ -125,14 +140,23 @@ public class LoanService {
 
         String currentUser = "empleado_actual"; // Obtener del contexto de seguridad
 
+        // En modo "Stock" el estado describe al ítem del catálogo, no a la unidad: sólo las
+        // unidades devueltas en buen estado vuelven al contador; las dañadas o dadas de baja no.
+        boolean stockCounted = tool.isStockCounted();
+
         if ("Irreparable".equals(toolStatus)) {
-            tool.setStatus("Dada de baja");
+            if (!stockCounted) tool.setStatus("Dada de baja");
             fineService.createFineForDamage(loan, tool.getReplacementValue());
             kardexService.createWriteOffMovement(tool, currentUser); // Movimiento de baja
         } else if ("Dañada".equals(toolStatus)) {
-            tool.setStatus("En reparación");
+            if (!stockCounted) tool.setStatus("En reparación");
             fineService.createFineForRepairableDamage(loan);
             kardexService.createRepairMovement(tool, currentUser); // Movimiento de reparación
+        } else if (stockCounted) {
+            // Si el ítem se dio de baja mientras estaba prestado, la unidad devuelta se registra como baja
+            if (toolRepository.returnOneUnit(tool.getId()) == 0) {
+                kardexService.createWriteOffMovement(tool, currentUser);
+            }
         } else {
             tool.setStatus("Disponible");
         }
@@ -144,6 +168,7 @@ public class LoanService {
 
         toolRepository.save(tool);
         LoanEntity savedLoan = loanRepository.save(loan);
+        eligibilityService.onLoanReturned(loan.getClient().getId());
         return buildLoanWithFineInfoDTO(savedLoan);
     }
 
@@ -158,12 +183,25 @@ public class LoanService {
         dto.setReturnDate(loan.getReturnDate());
         dto.setStatus(loan.getStatus());
 
-        // Busca la multa (que ahora sí existirá dentro de la misma transacción)
-        FineEntity fine = fineRepository.findByLoanId(loan.getId());
-        if (fine != null) {
-            dto.setFineId(fine.getId());
-            dto.setFineAmount(fine.getAmount());
-            dto.setFineStatus(fine.getStatus());
+        // Busca las multas (que ahora sí existirán dentro de la misma transacción).
+        // Se agregan igual que en LoanRepository: total, la más reciente y "Pendiente" si alguna lo está.
+        List<FineEntity> fines = fineRepository.findByLoanId(loan.getId());
+        if (!fines.isEmpty()) {
+            int totalAmount = 0;
+            Long lastFineId = null;
+            String lastStatus = null;
+            boolean anyPending = false;
+            for (FineEntity fine : fines) {
+                totalAmount += fine.getAmount();
+                if (lastFineId == null || (fine.getId() != null && fine.getId() > lastFineId)) {
+                    lastFineId = fine.getId();
+                    lastStatus = fine.getStatus();
+                }
+                anyPending |= "Pendiente".equals(fine.getStatus());
+            }
+            dto.setFineId(lastFineId);
+            dto.setFineAmount(totalAmount);
+            dto.setFineStatus(anyPending ? "Pendiente" : lastStatus);
         }
         return dto;
     }
@@ -173,26 +211,41 @@ public class LoanService {
         if (dueDate.isBefore(LocalDate.now())) {
             throw new IllegalArgumentException("La fecha de devolución no puede ser anterior a la fecha actual.");
         }
-        if (!"Disponible".equals(tool.getStatus())) { // Usando el campo 'status'
+        if (!"Disponible".equals(tool.getStatus()) || (tool.isStockCounted() && tool.getAvailableStock() < 1)) {
             throw new RuntimeException("La herramienta no está disponible o no tiene stock.");
         }
-        if (!"Activo".equals(client.getStatus())) { // Asumiendo que ClientEntity tiene un campo 'status'
-            throw new RuntimeException("El cliente está restringido y no puede solicitar préstamos.");
-        }
-        if (!loanRepository.findByClientIdAndDueDateBeforeAndStatus(client.getId(), LocalDate.now(), "Activo").isEmpty()) {
-            throw new RuntimeException("El cliente tiene préstamos vencidos pendientes de devolución.");
-        }
-        if (fineService.hasPendingFines(client.getId())) {
-            throw new RuntimeException("El cliente tiene multas impagas y no puede solicitar nuevos préstamos.");
-        }
-        if (loanRepository.countByClientIdAndStatus(client.getId(), "Activo") >= 5) {
-            throw new RuntimeException("El cliente ha alcanzado el límite máximo de 5 préstamos activos.");
+        // Estado del cliente, préstamos vencidos, multas y cantidad de préstamos se evalúan en restrictionReason;
+        // todo salvo el estado se lee del registro precalculado del cliente
+        ClientEligibilityEntity eligibility = eligibilityService.getEligibility(client.getId());
+        String restriction = ClientEligibilityService.restrictionReason(client.getStatus(), eligibility.getEarliestDueDate(),
+                eligibility.getPendingFineCount(), eligibility.getActiveLoanCount(), LocalDate.now());
+        if (restriction != null) {
+            throw new RuntimeException(restriction);
         }
         if (loanRepository.existsByClientIdAndToolIdAndStatus(client.getId(), tool.getId(), "Activo")) {
             throw new RuntimeException("El cliente ya tiene en préstamo una unidad de esta misma herramienta.");
         }
     }
 
+    // Actualiza el monto acumulado por atraso de hasta chunkSize préstamos posteriores al cursor (afterDueDate, afterId),
+    // en una transacción. Devuelve los préstamos procesados; el último es el cursor del bloque siguiente y menos de
+    // chunkSize indica que no quedan pendientes para hoy.
+    @Transactional
+    public List<OverdueLoanDTO> accrueOverdueChunk(LocalDate today, LocalDate afterDueDate, long afterId, int chunkSize) {
+        List<OverdueLoanDTO> loans = loanRepository.findOverdueLoansToAccrue(today, afterDueDate, afterId,
+                PageRequest.of(0, chunkSize));
+        // Cada préstamo se valoriza con la tarifa de su fecha de préstamo (ver getFeeForLoan), igual que la multa al devolverlo;
+        // un UPDATE por monto distinto
+        Map<Integer, List<Long>> idsByAmount = new LinkedHashMap<>();
+        for (OverdueLoanDTO loan : loans) {
+            int overdueDays = (int) ChronoUnit.DAYS.between(loan.getDueDate(), today);
+            int lateFeePerDay = configurationService.getFeeForLoan("daily_late_fee", loan.getLoanDate());
+            idsByAmount.computeIfAbsent(overdueDays * lateFeePerDay, amount -> new ArrayList<>()).add(loan.getId());
+        }
+        idsByAmount.forEach((amount, ids) -> loanRepository.accrueLateFee(ids, amount, today));
+        return loans;
+    }
+
     //Actualiza un préstamo existente.
     public LoanEntity updateLoan(LoanEntity loan) {
         return loanRepository.save(loan);
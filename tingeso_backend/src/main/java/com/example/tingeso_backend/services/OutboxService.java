@@ -0,0 +1,57 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.entities.OutboxEventEntity;
+import com.example.tingeso_backend.repositories.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Service
+public class OutboxService {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Se llama dentro de la transacción de negocio: el evento se confirma o descarta junto con ella.
+    // Sin transacción en curso falla, en vez de confirmar el evento por separado.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEventEntity append(String eventType, Long aggregateId, Object payload) {
+        OutboxEventEntity event = new OutboxEventEntity();
+        event.setEventId(UUID.randomUUID().toString());
+        event.setEventType(eventType);
+        event.setAggregateId(aggregateId);
+        event.setPayload(writePayload(eventType, payload));
+        event.setCreatedAt(LocalDateTime.now());
+        return outboxEventRepository.save(event);
+    }
+
+    public <T> T readPayload(OutboxEventEntity event, Class<T> type) {
+        try {
+            return objectMapper.readValue(event.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Evento de outbox ilegible: " + event.getEventId(), e);
+        }
+    }
+
+    @Transactional
+    public int purgeProcessedBefore(LocalDateTime before) {
+        return outboxEventRepository.deleteProcessedBefore(before);
+    }
+
+    private String writePayload(String eventType, Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo serializar el evento " + eventType, e);
+        }
+    }
+}
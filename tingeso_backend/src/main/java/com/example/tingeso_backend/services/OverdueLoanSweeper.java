@@ -0,0 +1,60 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.OverdueLoanDTO;
+import com.example.tingeso_backend.scheduling.ClusterJobRunner;
+import com.example.tingeso_backend.scheduling.JobLease;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Marca como atrasados los préstamos activos vencidos y actualiza su monto acumulado por atraso.
+// Cada ejecución sólo toca préstamos que no se actualizaron en el día; repetirla el mismo día no cambia nada.
+@Component
+public class OverdueLoanSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverdueLoanSweeper.class);
+    static final String JOB_NAME = "overdue-loan-sweep";
+
+    @Autowired
+    private LoanService loanService;
+    @Autowired
+    private ClusterJobRunner jobRunner;
+
+    @Value("${loans.overdue-sweep.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${loans.overdue-sweep.cron:0 5 0 * * *}")
+    private String cron;
+
+    @Scheduled(cron = "${loans.overdue-sweep.cron:0 5 0 * * *}")
+    public void sweep() {
+        // Con varias réplicas sólo una ejecuta cada disparo del barrido
+        jobRunner.runOncePerTrigger(JOB_NAME, cron, lease -> sweep(LocalDate.now(), lease));
+    }
+
+    public int sweep(LocalDate today, JobLease lease) {
+        // Keyset (due_date, id): cada bloque sigue desde el último préstamo del anterior
+        LocalDate afterDueDate = LocalDate.EPOCH;
+        long afterId = 0L;
+        int processed = 0;
+        List<OverdueLoanDTO> chunk;
+        do {
+            // Cada bloque confirma su propia transacción para no retener bloqueos durante todo el barrido
+            chunk = loanService.accrueOverdueChunk(today, afterDueDate, afterId, chunkSize);
+            processed += chunk.size();
+            if (!chunk.isEmpty()) {
+                OverdueLoanDTO last = chunk.get(chunk.size() - 1);
+                afterDueDate = last.getDueDate();
+                afterId = last.getId();
+            }
+        } while (chunk.size() == chunkSize && lease.isValid());
+        logger.info("Barrido de préstamos vencidos: {} préstamos actualizados", processed);
+        return processed;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.ToolFacetCountDTO;
+import com.example.tingeso_backend.dto.ToolFacetDTO;
+import com.example.tingeso_backend.dto.ToolFacetsDTO;
+import com.example.tingeso_backend.repositories.ToolRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+public class ToolFacetsService {
+
+    @Autowired
+    private ToolRepository toolRepository;
+
+    // Los cambios hechos por ToolService invalidan de inmediato; este plazo acota lo que puede
+    // quedar desactualizado por préstamos, devoluciones o cambios hechos en otra réplica
+    @Value("${tools.facets.ttl-ms:30000}")
+    private long ttlMs;
+
+    private final AtomicReference<CachedFacets> cache = new AtomicReference<>();
+
+    public ToolFacetsDTO getFacets() {
+        CachedFacets current = cache.get();
+        long now = System.currentTimeMillis();
+        if (current == null || now - current.loadedAt() >= ttlMs) {
+            current = new CachedFacets(load(), now);
+            cache.set(current);
+        }
+        return current.facets();
+    }
+
+    // Dentro de una transacción se descarta al confirmarla: antes del commit una lectura concurrente
+    // volvería a cargar y guardar los conteos anteriores
+    public void invalidate() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.set(null);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.set(null);
+            }
+        });
+    }
+
+    private ToolFacetsDTO load() {
+        return new ToolFacetsDTO(
+                fold(toolRepository.countByNameAndStatus()),
+                fold(toolRepository.countByCategoryAndStatus()));
+    }
+
+    // Junta las filas (valor, estado, cantidad) en una faceta por valor, ordenadas alfabéticamente
+    private static List<ToolFacetDTO> fold(List<ToolFacetCountDTO> rows) {
+        Map<String, Map<String, Long>> byValue = new TreeMap<>();
+        for (ToolFacetCountDTO row : rows) {
+            if (row.getValue() == null) {
+                continue;
+            }
+            String status = row.getStatus() != null ? row.getStatus() : "Sin estado";
+            byValue.computeIfAbsent(row.getValue(), v -> new TreeMap<>()).merge(status, row.getCount(), Long::sum);
+        }
+        List<ToolFacetDTO> facets = new ArrayList<>(byValue.size());
+        byValue.forEach((value, counts) -> facets.add(new ToolFacetDTO(value,
+                counts.values().stream().mapToLong(Long::longValue).sum(), counts)));
+        return List.copyOf(facets);
+    }
+
+    private record CachedFacets(ToolFacetsDTO facets, long loadedAt) {
+    }
+}
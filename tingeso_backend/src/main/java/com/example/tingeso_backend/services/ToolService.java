@@ -1,11 +1,18 @@
 package com.example.tingeso_backend.services;
 
+import com.example.tingeso_backend.dto.CursorPageDTO;
+import com.example.tingeso_backend.dto.ToolSearchCriteria;
+import com.example.tingeso_backend.dto.ToolSummaryDTO;
 import com.example.tingeso_backend.entities.ToolEntity;
 import com.example.tingeso_backend.repositories.ToolRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class ToolService {
@@ -15,15 +22,50 @@ public class ToolService {
     @Autowired
     private KardexService kardexService;
 
+    @Autowired
+    private ToolFacetsService toolFacetsService;
+
     public ArrayList<ToolEntity> getTools(){
         return (ArrayList<ToolEntity>) toolRepository.findAll();
     }
 
+    public CursorPageDTO<ToolEntity> getToolsPage(String after, Integer limit) {
+        int pageSize = CursorSupport.resolveLimit(limit);
+        List<ToolEntity> rows = toolRepository.findByIdGreaterThanOrderByIdAsc(
+                CursorSupport.decodeId(after), CursorSupport.probe(pageSize));
+        return CursorSupport.page(rows, pageSize, tool -> String.valueOf(tool.getId()));
+    }
+
+    // Búsqueda del catálogo paginada por (nombre, id); el cursor codifica "id:nombre" de la última fila
+    public CursorPageDTO<ToolSummaryDTO> searchTools(ToolSearchCriteria criteria, String after, Integer limit) {
+        int pageSize = CursorSupport.resolveLimit(limit);
+        String afterName = null;
+        Long afterId = null;
+        if (after != null && !after.isEmpty()) {
+            String key = CursorSupport.decode(after);
+            int separator = key.indexOf(':');
+            if (separator < 1) {
+                throw CursorSupport.invalidCursor();
+            }
+            try {
+                afterId = Long.parseLong(key.substring(0, separator));
+            } catch (NumberFormatException e) {
+                throw CursorSupport.invalidCursor();
+            }
+            afterName = key.substring(separator + 1);
+        }
+        List<ToolSummaryDTO> rows = toolRepository.searchSummaries(criteria, afterName, afterId, pageSize + 1);
+        return CursorSupport.page(rows, pageSize, tool -> tool.getId() + ":" + tool.getName());
+    }
+
+    // La herramienta y su evento de kardex en el outbox se confirman juntos
+    @Transactional
     public ToolEntity saveTool(ToolEntity tool){
         String currentUser = "ADMIN";
         tool.setStatus("Disponible");
         ToolEntity newTool = toolRepository.save(tool);
         kardexService.createNewToolMovement(newTool, currentUser);
+        toolFacetsService.invalidate();
         return newTool;
     }
 
@@ -31,30 +73,57 @@ public class ToolService {
         return toolRepository.findById(id).get();
     }
 
+    // Se copian sólo los campos editables sobre la entidad administrada: availableStock lo mueven
+    // takeOneUnit/returnOneUnit y nunca se escribe desde el formulario
+    @Transactional
     public ToolEntity updateTool(Long id, ToolEntity tool) {
-        return toolRepository.save(tool);
+        ToolEntity existing = toolRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Herramienta no encontrada con id: " + id));
+        existing.setName(tool.getName());
+        existing.setCategory(tool.getCategory());
+        existing.setStateInitial(tool.getStateInitial());
+        existing.setReplacementValue(tool.getReplacementValue());
+        existing.setInventoryMode(tool.getInventoryMode());
+        // El formulario es la única vía para devolver a "Disponible" una herramienta reparada
+        if (tool.getStatus() != null) {
+            existing.setStatus(tool.getStatus());
+        }
+        ToolEntity updated = toolRepository.save(existing);
+        toolFacetsService.invalidate();
+        return updated;
     }
 
     public boolean deleteTool(Long id) throws Exception {
         try{
             toolRepository.deleteById(id);
+            toolFacetsService.invalidate();
             return true;
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
 
     }
+    @Transactional
     public boolean logicalDeleteTool(Long id) {
-        // Buscar la herramienta existente
-        ToolEntity tool = toolRepository.findById(id)
+        // Bloquea la fila: ningún préstamo o devolución cambia el stock entre la lectura y la baja
+        ToolEntity tool = toolRepository.findForUpdateById(id)
                 .orElseThrow(() -> new RuntimeException("Herramienta no encontrada con id: " + id));
 
         // Cambiar el estado en lugar de borrar
-        tool.setStatus("Dada de baja");
-        toolRepository.save(tool);
-
         String currentUser = "ADMIN"; // Obtener del contexto de seguridad
-        kardexService.createWriteOffMovement(tool, currentUser);
+        if (tool.isStockCounted()) {
+            // Se dan de baja todas las unidades en bodega de una sola vez
+            int unitsWrittenOff = tool.getAvailableStock();
+            if (toolRepository.writeOffStock(id) == 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "La herramienta ya fue dada de baja.");
+            }
+            kardexService.createWriteOffMovement(tool, unitsWrittenOff, currentUser);
+        } else {
+            tool.setStatus("Dada de baja");
+            toolRepository.save(tool);
+            kardexService.createWriteOffMovement(tool, currentUser);
+        }
+        toolFacetsService.invalidate();
 
 
         return true;
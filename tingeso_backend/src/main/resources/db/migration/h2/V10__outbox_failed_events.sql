@@ -0,0 +1,3 @@
+ALTER TABLE outbox_events ADD COLUMN attempts integer DEFAULT 0 NOT NULL;
+ALTER TABLE outbox_events ADD COLUMN last_error varchar(1000);
+ALTER TABLE outbox_events ADD COLUMN failed_at timestamp(6);
@@ -0,0 +1,102 @@
+-- Esquema completo para H2 (pruebas). Debe mantenerse equivalente a las migraciones de postgresql.
+-- Las claves foráneas se agregan al final para que reutilicen los índices declarados.
+
+CREATE TABLE clients (
+    id           bigint PRIMARY KEY,
+    name         varchar(255),
+    rut          varchar(255),
+    phone        varchar(255),
+    email        varchar(255),
+    state_client varchar(255),
+    status       varchar(255),
+    keycloak_id  varchar(255) UNIQUE
+);
+
+CREATE TABLE tools (
+    id                bigint PRIMARY KEY,
+    name              varchar(255),
+    category          varchar(255),
+    state_initial     varchar(255),
+    replacement_value integer NOT NULL,
+    available_stock   integer NOT NULL,
+    status            varchar(255),
+    inventory_mode    varchar(255)
+);
+
+CREATE TABLE configurations (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    config_key   varchar(255) NOT NULL UNIQUE,
+    config_value varchar(255)
+);
+
+CREATE TABLE loans (
+    id                  bigint PRIMARY KEY,
+    client_id           bigint NOT NULL,
+    tool_id             bigint NOT NULL,
+    loan_date           date,
+    due_date            date,
+    return_date         date,
+    status              varchar(255),
+    overdue             boolean,
+    accrued_late_fee    integer,
+    late_fee_accrued_on date
+);
+
+CREATE TABLE fines (
+    id            bigint PRIMARY KEY,
+    loan_id       bigint NOT NULL,
+    fine_type     varchar(255),
+    amount        integer NOT NULL,
+    status        varchar(255),
+    creation_date date,
+    payment_date  date
+);
+
+CREATE TABLE kardex (
+    id                bigint PRIMARY KEY,
+    tool_id           bigint NOT NULL,
+    movement_type     varchar(255),
+    movement_date     timestamp(6),
+    quantity_affected integer NOT NULL,
+    user_responsible  varchar(255),
+    event_id          varchar(36)
+);
+
+CREATE TABLE client_eligibility (
+    client_id          bigint PRIMARY KEY,
+    active_loan_count  integer NOT NULL,
+    pending_fine_count integer NOT NULL,
+    earliest_due_date  date,
+    restricted         boolean NOT NULL
+);
+
+CREATE TABLE outbox_events (
+    id           bigint PRIMARY KEY,
+    event_id     varchar(36)   NOT NULL UNIQUE,
+    event_type   varchar(255)  NOT NULL,
+    aggregate_id bigint,
+    payload      varchar(2000) NOT NULL,
+    created_at   timestamp(6)  NOT NULL,
+    processed_at timestamp(6)
+);
+
+CREATE SEQUENCE clients_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE tools_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE loans_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE fines_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE kardex_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE outbox_events_seq START WITH 1 INCREMENT BY 50;
+
+CREATE UNIQUE INDEX uk_kardex_event_id ON kardex (event_id);
+CREATE INDEX idx_kardex_movement_date_id ON kardex (movement_date, id);
+CREATE INDEX idx_kardex_tool_id_movement_date ON kardex (tool_id, movement_date);
+CREATE INDEX idx_loans_client_id_status ON loans (client_id, status);
+CREATE INDEX idx_loans_status_due_date ON loans (status, due_date);
+CREATE INDEX idx_fines_loan_id ON fines (loan_id);
+CREATE INDEX idx_fines_status ON fines (status);
+CREATE INDEX idx_outbox_events_pending ON outbox_events (event_type, processed_at, id);
+
+ALTER TABLE loans ADD CONSTRAINT fk_loans_client FOREIGN KEY (client_id) REFERENCES clients (id);
+ALTER TABLE loans ADD CONSTRAINT fk_loans_tool FOREIGN KEY (tool_id) REFERENCES tools (id);
+ALTER TABLE fines ADD CONSTRAINT fk_fines_loan FOREIGN KEY (loan_id) REFERENCES loans (id);
+ALTER TABLE kardex ADD CONSTRAINT fk_kardex_tool FOREIGN KEY (tool_id) REFERENCES tools (id);
@@ -0,0 +1,9 @@
+CREATE SEQUENCE fee_versions_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE fee_versions (
+    id             bigint PRIMARY KEY,
+    config_key     varchar(255) NOT NULL,
+    fee_value      integer      NOT NULL,
+    effective_from timestamp(6) NOT NULL
+);
+CREATE INDEX idx_fee_versions_key_effective_from ON fee_versions (config_key, effective_from);
@@ -0,0 +1,3 @@
+ALTER TABLE fines ADD COLUMN client_id bigint NOT NULL;
+ALTER TABLE fines ADD CONSTRAINT fk_fines_client FOREIGN KEY (client_id) REFERENCES clients (id);
+CREATE INDEX idx_fines_client_id_status ON fines (client_id, status);
@@ -0,0 +1,3 @@
+CREATE INDEX idx_tools_category_name_id ON tools (category, name, id);
+CREATE INDEX idx_tools_status_name_id ON tools (status, name, id);
+CREATE INDEX idx_tools_name_id ON tools (name, id);
@@ -0,0 +1,6 @@
+CREATE TABLE kardex_daily_balances (
+    tool_id         bigint NOT NULL,
+    balance_date    date   NOT NULL,
+    closing_balance bigint NOT NULL,
+    PRIMARY KEY (tool_id, balance_date)
+);
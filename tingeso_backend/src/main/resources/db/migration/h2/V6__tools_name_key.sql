@@ -0,0 +1,3 @@
+ALTER TABLE tools ADD COLUMN name_key varchar(255);
+
+CREATE INDEX idx_tools_name_key ON tools (name_key);
@@ -0,0 +1,7 @@
+ALTER TABLE clients ADD COLUMN rut_key varchar(255);
+ALTER TABLE clients ADD COLUMN name_key varchar(255);
+ALTER TABLE clients ADD COLUMN email_key varchar(255);
+
+CREATE UNIQUE INDEX uk_clients_rut_key ON clients (rut_key);
+CREATE INDEX idx_clients_name_key_id ON clients (name_key, id);
+CREATE INDEX idx_clients_email_key_id ON clients (email_key, id);
@@ -0,0 +1,3 @@
+CREATE INDEX idx_loans_status_due_date_id ON loans (status, due_date, id);
+
+DROP INDEX idx_loans_status_due_date;
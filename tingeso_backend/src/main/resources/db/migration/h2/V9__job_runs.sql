@@ -0,0 +1,5 @@
+CREATE TABLE job_runs (
+    job_name  varchar(255) PRIMARY KEY,
+    fire_time timestamp(6) NOT NULL,
+    ran_at    timestamp(6) NOT NULL
+);
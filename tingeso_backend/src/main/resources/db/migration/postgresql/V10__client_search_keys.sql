@@ -0,0 +1,29 @@
+-- Claves normalizadas de clientes para GET /api/v1/clients/search (ver ClientEntity):
+--   rut_key:   RUT sin puntos, guiones ni espacios y en mayúsculas; único
+--   name_key:  nombre sin espacios extremos y en minúsculas
+--   email_key: correo sin espacios extremos y en minúsculas
+-- Los prefijos de nombre y correo usan índices de trigramas (LIKE 'abc%' con cualquier collation) y los
+-- índices (clave, id) dan el orden del keyset. Corre fuera de transacción (ver .conf) por CONCURRENTLY.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE clients ADD COLUMN IF NOT EXISTS rut_key varchar(255);
+ALTER TABLE clients ADD COLUMN IF NOT EXISTS name_key varchar(255);
+ALTER TABLE clients ADD COLUMN IF NOT EXISTS email_key varchar(255);
+
+UPDATE clients
+SET rut_key   = NULLIF(upper(regexp_replace(rut, '[.\s-]', '', 'g')), ''),
+    name_key  = lower(btrim(name)),
+    email_key = lower(btrim(email));
+
+-- Un RUT repetido queda sólo en el cliente más antiguo; los demás conservan rut pero sin clave
+UPDATE clients c
+SET rut_key = NULL
+WHERE rut_key IS NOT NULL
+  AND EXISTS (SELECT 1 FROM clients o WHERE o.rut_key = c.rut_key AND o.id < c.id);
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_clients_rut_key ON clients (rut_key);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clients_name_key_id ON clients (name_key, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clients_email_key_id ON clients (email_key, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clients_name_key_trgm ON clients USING gin (name_key gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clients_email_key_trgm ON clients USING gin (email_key gin_trgm_ops);
@@ -0,0 +1,7 @@
+-- El barrido de préstamos vencidos avanza por keyset (due_date, id) dentro de status = 'Activo'.
+-- El índice nuevo cubre también las consultas que usaban (status, due_date), que se elimina.
+-- Corre fuera de transacción (ver .conf) para construir el índice con CONCURRENTLY.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_loans_status_due_date_id ON loans (status, due_date, id);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_loans_status_due_date;
@@ -0,0 +1,8 @@
+-- Último disparo ejecutado de cada trabajo programado. Se consulta y actualiza con el candado consultivo
+-- del trabajo tomado, para que una réplica cuyo cron se dispara más tarde no repita el mismo disparo.
+
+CREATE TABLE IF NOT EXISTS job_runs (
+    job_name  varchar(255) PRIMARY KEY,
+    fire_time timestamp(6) NOT NULL,
+    ran_at    timestamp(6) NOT NULL
+);
@@ -0,0 +1,6 @@
+-- Eventos del outbox que no se pudieron despachar: quedan fuera de los pendientes con la cantidad de
+-- intentos y el último error, para que un evento defectuoso no detenga al resto.
+
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS attempts integer NOT NULL DEFAULT 0;
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS last_error varchar(1000);
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS failed_at timestamp(6);
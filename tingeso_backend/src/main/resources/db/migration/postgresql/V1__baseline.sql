@@ -0,0 +1,58 @@
+-- Esquema inicial, tal como lo generaba ddl-auto=update antes de adoptar migraciones.
+-- En bases existentes Flyway registra esta versión como baseline sin ejecutarla.
+
+CREATE TABLE clients (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         varchar(255),
+    rut          varchar(255),
+    phone        varchar(255),
+    email        varchar(255),
+    state_client varchar(255),
+    status       varchar(255),
+    keycloak_id  varchar(255) UNIQUE
+);
+
+CREATE TABLE tools (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name              varchar(255),
+    category          varchar(255),
+    state_initial     varchar(255),
+    replacement_value integer NOT NULL,
+    available_stock   integer NOT NULL,
+    status            varchar(255)
+);
+
+CREATE TABLE configurations (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    config_key   varchar(255) NOT NULL UNIQUE,
+    config_value varchar(255)
+);
+
+CREATE TABLE loans (
+    id          bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    client_id   bigint NOT NULL REFERENCES clients (id),
+    tool_id     bigint NOT NULL REFERENCES tools (id),
+    loan_date   date,
+    due_date    date,
+    return_date date,
+    status      varchar(255)
+);
+
+CREATE TABLE fines (
+    id            bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    loan_id       bigint NOT NULL REFERENCES loans (id),
+    fine_type     varchar(255),
+    amount        integer NOT NULL,
+    status        varchar(255),
+    creation_date date,
+    payment_date  date
+);
+
+CREATE TABLE kardex (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    tool_id           bigint NOT NULL REFERENCES tools (id),
+    movement_type     varchar(255),
+    movement_date     timestamp(6),
+    quantity_affected integer NOT NULL,
+    user_responsible  varchar(255)
+);
@@ -0,0 +1,47 @@
+-- Cambios de esquema que antes aplicaba ddl-auto=update. Son idempotentes porque una base
+-- existente puede tener ya parte de ellos.
+
+ALTER TABLE tools ADD COLUMN IF NOT EXISTS inventory_mode varchar(255);
+
+ALTER TABLE loans ADD COLUMN IF NOT EXISTS overdue boolean;
+ALTER TABLE loans ADD COLUMN IF NOT EXISTS accrued_late_fee integer;
+ALTER TABLE loans ADD COLUMN IF NOT EXISTS late_fee_accrued_on date;
+
+ALTER TABLE kardex ADD COLUMN IF NOT EXISTS event_id varchar(36);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_kardex_event_id ON kardex (event_id);
+CREATE INDEX IF NOT EXISTS idx_kardex_movement_date_id ON kardex (movement_date, id);
+
+CREATE TABLE IF NOT EXISTS client_eligibility (
+    client_id          bigint PRIMARY KEY,
+    active_loan_count  integer NOT NULL,
+    pending_fine_count integer NOT NULL,
+    earliest_due_date  date,
+    restricted         boolean NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id           bigint PRIMARY KEY,
+    event_id     varchar(36)   NOT NULL UNIQUE,
+    event_type   varchar(255)  NOT NULL,
+    aggregate_id bigint,
+    payload      varchar(2000) NOT NULL,
+    created_at   timestamp(6)  NOT NULL,
+    processed_at timestamp(6)
+);
+CREATE INDEX IF NOT EXISTS idx_outbox_events_pending ON outbox_events (event_type, processed_at, id);
+
+-- Secuencias con optimizador pooled (allocationSize = 50). Se adelantan al id máximo de cada
+-- tabla para conservar los ids emitidos por las columnas IDENTITY; nunca retroceden.
+CREATE SEQUENCE IF NOT EXISTS clients_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS tools_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS loans_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS fines_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS kardex_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS outbox_events_seq START WITH 1 INCREMENT BY 50;
+
+SELECT setval('clients_seq', GREATEST((SELECT COALESCE(MAX(id), 1) FROM clients), (SELECT last_value FROM clients_seq)));
+SELECT setval('tools_seq', GREATEST((SELECT COALESCE(MAX(id), 1) FROM tools), (SELECT last_value FROM tools_seq)));
+SELECT setval('loans_seq', GREATEST((SELECT COALESCE(MAX(id), 1) FROM loans), (SELECT last_value FROM loans_seq)));
+SELECT setval('fines_seq', GREATEST((SELECT COALESCE(MAX(id), 1) FROM fines), (SELECT last_value FROM fines_seq)));
+SELECT setval('kardex_seq', GREATEST((SELECT COALESCE(MAX(id), 1) FROM kardex), (SELECT last_value FROM kardex_seq)));
+SELECT setval('outbox_events_seq', GREATEST((SELECT COALESCE(MAX(id), 1) FROM outbox_events), (SELECT last_value FROM outbox_events_seq)));
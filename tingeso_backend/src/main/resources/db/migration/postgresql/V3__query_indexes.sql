@@ -0,0 +1,13 @@
+-- Índices para las consultas de los repositorios. CONCURRENTLY evita bloquear escrituras
+-- mientras se construyen, por eso esta migración corre fuera de transacción (ver .conf).
+
+-- countByClientIdAndStatus, existsByClientIdAndToolIdAndStatus, findEarliestActiveDueDate
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_loans_client_id_status ON loans (client_id, status);
+-- barrido de préstamos vencidos: status = 'Activo' AND due_date < hoy
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_loans_status_due_date ON loans (status, due_date);
+-- multas de un préstamo y join de la proyección de préstamos
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_fines_loan_id ON fines (loan_id);
+-- multas pendientes
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_fines_status ON fines (status);
+-- movimientos de una herramienta en un rango de fechas
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_kardex_tool_id_movement_date ON kardex (tool_id, movement_date);
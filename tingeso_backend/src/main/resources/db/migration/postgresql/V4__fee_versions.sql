@@ -0,0 +1,17 @@
+-- Versiones de tarifas con fecha de vigencia. Los valores actuales se cargan como vigentes
+-- desde siempre, porque no hay registro de cuándo se fijaron.
+
+CREATE SEQUENCE IF NOT EXISTS fee_versions_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS fee_versions (
+    id             bigint PRIMARY KEY,
+    config_key     varchar(255) NOT NULL,
+    fee_value      integer      NOT NULL,
+    effective_from timestamp(6) NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_fee_versions_key_effective_from ON fee_versions (config_key, effective_from);
+
+INSERT INTO fee_versions (id, config_key, fee_value, effective_from)
+SELECT nextval('fee_versions_seq'), config_key, CAST(config_value AS integer), TIMESTAMP '1900-01-01 00:00:00'
+FROM configurations
+WHERE config_value ~ '^[0-9]+$';
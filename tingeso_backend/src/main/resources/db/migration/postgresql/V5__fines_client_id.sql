@@ -0,0 +1,15 @@
+-- Cliente de la multa copiado desde el préstamo, para responder "¿tiene multas pendientes?"
+-- con el índice (client_id, status) sin recorrer loans.
+
+ALTER TABLE fines ADD COLUMN IF NOT EXISTS client_id bigint;
+
+UPDATE fines f
+SET client_id = l.client_id
+FROM loans l
+WHERE f.loan_id = l.id AND f.client_id IS NULL;
+
+ALTER TABLE fines ALTER COLUMN client_id SET NOT NULL;
+ALTER TABLE fines DROP CONSTRAINT IF EXISTS fk_fines_client;
+ALTER TABLE fines ADD CONSTRAINT fk_fines_client FOREIGN KEY (client_id) REFERENCES clients (id);
+
+CREATE INDEX IF NOT EXISTS idx_fines_client_id_status ON fines (client_id, status);
@@ -0,0 +1,8 @@
+-- Índices de GET /api/v1/tools/search: cada filtro de igualdad seguido del orden (name, id) del keyset.
+-- CONCURRENTLY evita bloquear escrituras mientras se construyen, por eso corre fuera de transacción (ver .conf).
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tools_category_name_id ON tools (category, name, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tools_status_name_id ON tools (status, name, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tools_name_id ON tools (name, id);
+-- prefijo de nombre sin distinguir mayúsculas: lower(name) LIKE 'abc%'
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tools_lower_name_prefix ON tools (lower(name) varchar_pattern_ops);
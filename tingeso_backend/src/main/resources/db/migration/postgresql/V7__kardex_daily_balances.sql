@@ -0,0 +1,18 @@
+-- Cierre diario del saldo por herramienta para responder "unidades en la fecha D" sin sumar todo el kardex.
+-- Se carga con el historial existente: un cierre por cada (herramienta, día) con movimientos.
+
+CREATE TABLE IF NOT EXISTS kardex_daily_balances (
+    tool_id         bigint NOT NULL,
+    balance_date    date   NOT NULL,
+    closing_balance bigint NOT NULL,
+    PRIMARY KEY (tool_id, balance_date)
+);
+
+INSERT INTO kardex_daily_balances (tool_id, balance_date, closing_balance)
+SELECT tool_id, day, SUM(day_total) OVER (PARTITION BY tool_id ORDER BY day)
+FROM (
+    SELECT tool_id, CAST(movement_date AS date) AS day, SUM(quantity_affected) AS day_total
+    FROM kardex
+    GROUP BY tool_id, CAST(movement_date AS date)
+) daily
+ON CONFLICT (tool_id, balance_date) DO NOTHING;
@@ -0,0 +1,96 @@
+-- Kardex particionado por mes de movement_date: las consultas por rango de fechas sólo leen los meses
+-- pedidos y los meses antiguos se pueden separar sin DELETE masivos.
+-- Postgres exige que la clave de partición forme parte de la clave primaria y de los índices únicos:
+-- event_id queda único junto con movement_date, que es fijo para un mismo evento, así una entrega
+-- repetida del outbox sigue chocando con la fila original.
+
+CREATE SCHEMA IF NOT EXISTS kardex_archive;
+
+ALTER TABLE kardex RENAME TO kardex_unpartitioned;
+ALTER INDEX kardex_pkey RENAME TO kardex_unpartitioned_pkey;
+DROP INDEX IF EXISTS uk_kardex_event_id;
+DROP INDEX IF EXISTS idx_kardex_movement_date_id;
+DROP INDEX IF EXISTS idx_kardex_tool_id_movement_date;
+
+CREATE TABLE kardex (
+    id                bigint       NOT NULL,
+    tool_id           bigint       NOT NULL REFERENCES tools (id),
+    movement_type     varchar(255),
+    movement_date     timestamp(6) NOT NULL,
+    quantity_affected integer      NOT NULL,
+    user_responsible  varchar(255),
+    event_id          varchar(36),
+    PRIMARY KEY (id, movement_date),
+    CONSTRAINT uk_kardex_event_id UNIQUE (event_id, movement_date)
+) PARTITION BY RANGE (movement_date);
+
+-- Recibe lo que cae fuera de los meses creados; kardex_ensure_partitions lo reparte al crear el mes
+CREATE TABLE kardex_default PARTITION OF kardex DEFAULT;
+
+CREATE INDEX idx_kardex_movement_date_id ON kardex (movement_date, id);
+CREATE INDEX idx_kardex_tool_id_movement_date ON kardex (tool_id, movement_date);
+
+-- Crea las particiones mensuales faltantes entre los meses de from_month y to_month (inclusive).
+-- Las filas de ese mes que estaban en la partición por defecto se mueven a la nueva antes de adjuntarla.
+CREATE OR REPLACE FUNCTION kardex_ensure_partitions(from_month date, to_month date) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    month_start date := date_trunc('month', from_month);
+    month_end   date;
+    part_name   text;
+    created     integer := 0;
+BEGIN
+    WHILE month_start <= date_trunc('month', to_month) LOOP
+        month_end := month_start + interval '1 month';
+        part_name := 'kardex_' || to_char(month_start, '"y"YYYY"m"MM');
+        IF to_regclass(part_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE kardex INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part_name);
+            EXECUTE format('WITH moved AS (DELETE FROM kardex_default WHERE movement_date >= %L AND movement_date < %L RETURNING *) '
+                           'INSERT INTO %I SELECT * FROM moved', month_start, month_end, part_name);
+            EXECUTE format('ALTER TABLE kardex ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           part_name, month_start, month_end);
+            created := created + 1;
+        END IF;
+        month_start := month_end;
+    END LOOP;
+    RETURN created;
+END;
+$$;
+
+-- Separa las particiones mensuales que terminan antes de cutoff y las deja en el esquema kardex_archive
+-- (siguen consultables allí; los saldos de kardex_daily_balances no dependen de ellas).
+CREATE OR REPLACE FUNCTION kardex_archive_partitions_before(cutoff date) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    part     record;
+    archived integer := 0;
+BEGIN
+    FOR part IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'kardex'::regclass
+          AND c.relname ~ '^kardex_y[0-9]{4}m[0-9]{2}$'
+          AND to_date(substr(c.relname, 9), 'YYYY"m"MM') + interval '1 month' <= cutoff
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format('ALTER TABLE kardex DETACH PARTITION %I', part.relname);
+        EXECUTE format('ALTER TABLE %I SET SCHEMA kardex_archive', part.relname);
+        archived := archived + 1;
+    END LOOP;
+    RETURN archived;
+END;
+$$;
+
+-- Meses con historial más tres meses por delante, para que los préstamos futuros no caigan en la partición por defecto
+SELECT kardex_ensure_partitions(
+        COALESCE((SELECT MIN(movement_date) FROM kardex_unpartitioned), CURRENT_DATE)::date,
+        (CURRENT_DATE + interval '3 months')::date);
+
+-- Filas sin fecha (no las genera la aplicación) quedan en la partición por defecto con la fecha del epoch
+INSERT INTO kardex (id, tool_id, movement_type, movement_date, quantity_affected, user_responsible, event_id)
+SELECT id, tool_id, movement_type, COALESCE(movement_date, TIMESTAMP '1970-01-01 00:00:00'),
+       quantity_affected, user_responsible, event_id
+FROM kardex_unpartitioned;
+
+DROP TABLE kardex_unpartitioned;
@@ -0,0 +1,9 @@
+-- Nombre normalizado de la herramienta (ToolEntity.normalizeName: sin espacios extremos y en minúsculas).
+-- Los filtros por nombre del kardex lo resuelven a ids con este índice en vez de aplicar upper() sobre el join.
+-- Corre fuera de transacción (ver .conf) para construir el índice con CONCURRENTLY.
+
+ALTER TABLE tools ADD COLUMN IF NOT EXISTS name_key varchar(255);
+
+UPDATE tools SET name_key = lower(btrim(name)) WHERE name_key IS DISTINCT FROM lower(btrim(name));
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tools_name_key ON tools (name_key);
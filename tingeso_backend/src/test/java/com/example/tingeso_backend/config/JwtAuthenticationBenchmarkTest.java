@@ -0,0 +1,71 @@
+package com.example.tingeso_backend.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Costo de autenticar un request con token bearer: validación completa vs. JwtAuthenticationCache.
+// Ejecutar con: mvn test -Dtest=JwtAuthenticationBenchmarkTest -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JwtAuthenticationBenchmarkTest {
+
+    private static final int TOKENS = 50;        // usuarios distintos, cada uno reutiliza su token
+    private static final int ITERATIONS = 20_000;
+    private static final int WARMUP = 5_000;
+
+    private double[] run(AuthenticationManager manager, List<String> tokens) {
+        for (int i = 0; i < WARMUP; i++) {
+            manager.authenticate(new BearerTokenAuthenticationToken(tokens.get(i % tokens.size())));
+        }
+        double[] samples = new double[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            BearerTokenAuthenticationToken bearer = new BearerTokenAuthenticationToken(tokens.get(i % tokens.size()));
+            long start = System.nanoTime();
+            manager.authenticate(bearer);
+            samples[i] = (System.nanoTime() - start) / 1_000.0;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        return sorted[(int) Math.ceil(sorted.length * p) - 1];
+    }
+
+    @Test
+    void perRequestAuthenticationOverhead() {
+        JwtTestTokens tokens = new JwtTestTokens();
+        List<String> values = IntStream.range(0, TOKENS)
+                .mapToObj(i -> tokens.token("kc-" + i, Instant.now().plusSeconds(3600)))
+                .toList();
+
+        JwtAuthenticationProvider uncached = new JwtAuthenticationProvider(tokens.decoder());
+        uncached.setJwtAuthenticationConverter(SecurityConfig.jwtAuthenticationConverter());
+
+        JwtAuthenticationCache cached = new JwtAuthenticationCache();
+        ReflectionTestUtils.setField(cached, "jwtDecoder", tokens.decoder());
+        ReflectionTestUtils.setField(cached, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cached, "maxSize", 10_000);
+        cached.init();
+
+        double[] without = run(uncached::authenticate, values);
+        double[] with = run(cached, values);
+
+        System.out.printf("Autenticación JWT por request (%d tokens, %d iteraciones): "
+                        + "sin caché p50 %.1f µs / p95 %.1f µs; con caché p50 %.1f µs / p95 %.1f µs%n",
+                TOKENS, ITERATIONS, percentile(without, 0.5), percentile(without, 0.95),
+                percentile(with, 0.5), percentile(with, 0.95));
+        assertTrue(percentile(with, 0.5) < percentile(without, 0.5));
+    }
+}
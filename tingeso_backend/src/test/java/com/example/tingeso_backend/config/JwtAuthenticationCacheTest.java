@@ -0,0 +1,114 @@
+package com.example.tingeso_backend.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.ProviderNotFoundException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtAuthenticationCacheTest {
+
+    private static final JwtTestTokens TOKENS = new JwtTestTokens();
+
+    private final AtomicInteger decodes = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private JwtAuthenticationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = newCache(100);
+    }
+
+    private JwtAuthenticationCache newCache(int maxSize) {
+        JwtDecoder counting = token -> {
+            decodes.incrementAndGet();
+            return TOKENS.decoder().decode(token);
+        };
+        JwtAuthenticationCache created = new JwtAuthenticationCache();
+        ReflectionTestUtils.setField(created, "jwtDecoder", counting);
+        ReflectionTestUtils.setField(created, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(created, "maxSize", maxSize);
+        created.init();
+        return created;
+    }
+
+    private Authentication authenticate(String token, Object details) {
+        BearerTokenAuthenticationToken bearer = new BearerTokenAuthenticationToken(token);
+        bearer.setDetails(details);
+        return cache.authenticate(bearer);
+    }
+
+    @Test
+    void authenticate_sameToken_verifiesSignatureOnceAndKeepsRoles() {
+        String token = TOKENS.token("kc-1", Instant.now().plusSeconds(300));
+
+        Authentication first = authenticate(token, "10.0.0.1");
+        Authentication second = authenticate(token, "10.0.0.2");
+
+        assertEquals(1, decodes.get());
+        assertEquals("kc-1", second.getName());
+        assertEquals(Set.of("ROLE_USER", "ROLE_offline_access", "ROLE_ADMIN"),
+                AuthorityUtils.authorityListToSet(second.getAuthorities()));
+        assertEquals(first.getAuthorities(), second.getAuthorities());
+        assertEquals("10.0.0.2", second.getDetails());
+        assertEquals(1, meterRegistry.get("security.jwt.cache").tag("result", "hit").counter().count());
+        assertEquals(0.5, meterRegistry.get("security.jwt.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void authenticate_rejectedToken_isNotRemembered() {
+        String token = TOKENS.token("kc-1", Instant.now().plusSeconds(300));
+        String tampered = token.substring(0, token.length() - 4) + "AAAA";
+
+        assertThrows(AuthenticationException.class, () -> authenticate(tampered, null));
+        assertThrows(AuthenticationException.class, () -> authenticate(tampered, null));
+
+        assertEquals(2, decodes.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void authenticate_tokenWithoutExpiry_isNotCached() {
+        String token = TOKENS.token("kc-1", null);
+
+        authenticate(token, null);
+        authenticate(token, null);
+
+        assertEquals(2, decodes.get());
+    }
+
+    @Test
+    void authenticate_beyondMaxSize_evictsLeastRecentlyUsed() {
+        cache = newCache(1);
+        String first = TOKENS.token("kc-1", Instant.now().plusSeconds(300));
+        String second = TOKENS.token("kc-2", Instant.now().plusSeconds(300));
+
+        authenticate(first, null);
+        authenticate(second, null);
+        authenticate(first, null);
+
+        assertEquals(3, decodes.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void authenticate_nonBearerAuthentication_isNotSupported() {
+        UsernamePasswordAuthenticationToken password = new UsernamePasswordAuthenticationToken("kc-1", "secreto");
+
+        assertThrows(ProviderNotFoundException.class, () -> cache.authenticate(password));
+        assertEquals(0, decodes.get());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.tingeso_backend.config;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.*;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+// Tokens firmados con una clave RSA local, con los claims de rol que emite Keycloak
+class JwtTestTokens {
+
+    private final JwtEncoder encoder;
+    private final JwtDecoder decoder;
+
+    JwtTestTokens() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            KeyPair keyPair = generator.generateKeyPair();
+            RSAKey key = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic()).privateKey(keyPair.getPrivate()).build();
+            encoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(key)));
+            decoder = NimbusJwtDecoder.withPublicKey((RSAPublicKey) keyPair.getPublic()).build();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    JwtDecoder decoder() {
+        return decoder;
+    }
+
+    String token(String subject, Instant expiresAt) {
+        JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+                .subject(subject)
+                .issuedAt(Instant.now())
+                .claim("realm_access", Map.of("roles", List.of("USER", "offline_access")))
+                .claim("resource_access", Map.of("toolrent-backend", Map.of("roles", List.of("ADMIN"))));
+        if (expiresAt != null) {
+            claims.expiresAt(expiresAt);
+        }
+        JwsHeader header = JwsHeader.with(SignatureAlgorithm.RS256).build();
+        return encoder.encode(JwtEncoderParameters.from(header, claims.build())).getTokenValue();
+    }
+}
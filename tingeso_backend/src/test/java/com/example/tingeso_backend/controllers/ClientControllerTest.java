@@ -1,7 +1,14 @@
 package com.example.tingeso_backend.controllers;
 
+import com.example.tingeso_backend.dto.ClientAccountSummaryDTO;
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
+import com.example.tingeso_backend.dto.ClientSummaryDTO;
+import com.example.tingeso_backend.dto.CursorPageDTO;
 import com.example.tingeso_backend.entities.ClientEntity;
+import com.example.tingeso_backend.identity.ClientIdentityFilter;
+import com.example.tingeso_backend.identity.CurrentClientArgumentResolver;
 import com.example.tingeso_backend.services.ClientService;
+import com.example.tingeso_backend.services.ClientSummaryService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +18,9 @@ import org.mockito.Mock;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.LocalDate;
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -24,13 +34,18 @@ class ClientControllerTest {
     @Mock
     private ClientService clientService;
 
+    @Mock
+    private ClientSummaryService summaryService;
+
     @InjectMocks
     private ClientController controller;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new CurrentClientArgumentResolver())
+                .build();
     }
 
     @Test
@@ -68,6 +83,19 @@ class ClientControllerTest {
         verify(clientService).saveEmployee(any(ClientEntity.class));
     }
 
+    @Test
+    void searchClients_passesQueryAndCursor() throws Exception {
+        ClientSummaryDTO row = new ClientSummaryDTO(5L, "Martina", "1-9", "m@x.com", null, "Activo", "name");
+        when(clientService.searchClients("mart", "abc", 20)).thenReturn(new CursorPageDTO<>(List.of(row), null));
+
+        mockMvc.perform(get("/api/v1/clients/search").param("q", "mart").param("after", "abc").param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(5))
+                .andExpect(jsonPath("$.items[0].match").value("name"));
+
+        verify(clientService).searchClients("mart", "abc", 20);
+    }
+
     @Test
     void deleteClient_returnsNoContent_success() throws Exception {
         when(clientService.deleteClient(1L)).thenReturn(true);
@@ -77,4 +105,32 @@ class ClientControllerTest {
 
         verify(clientService).deleteClient(1L);
     }
+
+    @Test
+    void getCurrentClientSummary_usesResolvedIdentity() throws Exception {
+        ClientAccountSummaryDTO summary = new ClientAccountSummaryDTO(4L, "Ana", "Restringido", List.of(), 0, 0, null,
+                2L, 10000L, "El cliente está restringido y no puede solicitar préstamos.", false, LocalDate.now());
+        when(summaryService.getSummary(4L)).thenReturn(summary);
+
+        mockMvc.perform(get("/api/v1/clients/me/summary")
+                        .requestAttr(ClientIdentityFilter.ATTRIBUTE, new ClientIdentityDTO(4L, "Restringido")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pendingFineTotal").value(10000))
+                .andExpect(jsonPath("$.eligibleToBorrow").value(false));
+
+        verify(summaryService).getSummary(4L);
+        verifyNoInteractions(clientService);
+    }
+
+    @Test
+    void getClientSummary_byId() throws Exception {
+        ClientAccountSummaryDTO summary = new ClientAccountSummaryDTO(7L, "Luis", "Activo", List.of(), 0, 0, null,
+                0L, 0L, null, true, LocalDate.now());
+        when(summaryService.getSummary(7L)).thenReturn(summary);
+
+        mockMvc.perform(get("/api/v1/clients/7/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.clientId").value(7))
+                .andExpect(jsonPath("$.eligibleToBorrow").value(true));
+    }
 }
@@ -2,6 +2,7 @@
 package com.example.tingeso_backend.controllers;
 
 import com.example.tingeso_backend.entities.ConfigurationEntity;
+import com.example.tingeso_backend.services.ClientIdentityCache;
 import com.example.tingeso_backend.services.ConfigurationService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -12,6 +13,9 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -26,8 +30,23 @@ class ConfigurationControllerTest {
     @MockBean
     private ConfigurationService configurationService;
 
+    @MockBean
+    private ClientIdentityCache identityCache;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Test
+    void getAllFees_returnsEveryFeeInOneResponse() throws Exception {
+        when(configurationService.getAllFees()).thenReturn(Map.of("daily_late_fee", 7, "repair_fee", 250));
+
+        mockMvc.perform(get("/config"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.daily_late_fee").value(7))
+                .andExpect(jsonPath("$.repair_fee").value(250));
+
+        verify(configurationService).getAllFees();
+    }
+
     @Test
     void getRentalFee_returnsValue() throws Exception {
         when(configurationService.getFee("daily_rental_fee")).thenReturn(15);
@@ -64,7 +83,7 @@ class ConfigurationControllerTest {
     @Test
     void setRentalFee_callsServiceAndReturnsOk() throws Exception {
         String body = objectMapper.writeValueAsString(new FeeDto(10));
-        when(configurationService.updateFee(eq("daily_rental_fee"), eq(10))).thenReturn(new ConfigurationEntity());
+        when(configurationService.updateFee(eq("daily_rental_fee"), eq(10), isNull())).thenReturn(new ConfigurationEntity());
 
         mockMvc.perform(put("/config/rental-fee")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -72,13 +91,13 @@ class ConfigurationControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Tarifa de arriendo actualizada."));
 
-        verify(configurationService).updateFee("daily_rental_fee", 10);
+        verify(configurationService).updateFee("daily_rental_fee", 10, null);
     }
 
     @Test
     void setLateFee_callsServiceAndReturnsOk() throws Exception {
         String body = objectMapper.writeValueAsString(new FeeDto(5));
-        when(configurationService.updateFee(eq("daily_late_fee"), eq(5))).thenReturn(new ConfigurationEntity());
+        when(configurationService.updateFee(eq("daily_late_fee"), eq(5), isNull())).thenReturn(new ConfigurationEntity());
 
         mockMvc.perform(put("/config/late-fee")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -86,13 +105,13 @@ class ConfigurationControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Tarifa de multa actualizada."));
 
-        verify(configurationService).updateFee("daily_late_fee", 5);
+        verify(configurationService).updateFee("daily_late_fee", 5, null);
     }
 
     @Test
     void setRepairFee_callsServiceAndReturnsOk() throws Exception {
         String body = objectMapper.writeValueAsString(new FeeDto(120));
-        when(configurationService.updateFee(eq("repair_fee"), eq(120))).thenReturn(new ConfigurationEntity());
+        when(configurationService.updateFee(eq("repair_fee"), eq(120), isNull())).thenReturn(new ConfigurationEntity());
 
         mockMvc.perform(put("/config/repair-fee")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -100,7 +119,20 @@ class ConfigurationControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Cargo por reparación actualizado."));
 
-        verify(configurationService).updateFee("repair_fee", 120);
+        verify(configurationService).updateFee("repair_fee", 120, null);
+    }
+
+    @Test
+    void setLateFee_passesEffectiveFromToService() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        when(configurationService.updateFee("daily_late_fee", 8, from)).thenReturn(new ConfigurationEntity());
+
+        mockMvc.perform(put("/config/late-fee")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"value\": 8, \"effectiveFrom\": \"2030-01-01T00:00:00\"}"))
+                .andExpect(status().isOk());
+
+        verify(configurationService).updateFee("daily_late_fee", 8, from);
     }
 
     // DTO auxiliar pequeño para serializar el cuerpo { "value": X }
@@ -1,6 +1,9 @@
 package com.example.tingeso_backend.controllers;
 
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
 import com.example.tingeso_backend.dto.FineDTO;
+import com.example.tingeso_backend.identity.ClientIdentityFilter;
+import com.example.tingeso_backend.identity.CurrentClientArgumentResolver;
 import com.example.tingeso_backend.services.FineService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,7 +11,6 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
@@ -32,7 +34,9 @@ class FineControllerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new CurrentClientArgumentResolver())
+                .build();
     }
 
     @Test
@@ -51,7 +55,7 @@ class FineControllerTest {
 
         when(fineService.getAllFines()).thenReturn(fines);
 
-        mockMvc.perform(get("/api/v1/fines/"))
+        mockMvc.perform(get("/api/v1/fines/").param("unpaged", "true"))
                 .andExpect(status().isOk())
                 .andExpect(content().json(mapper.writeValueAsString(fines)));
 
@@ -67,16 +71,14 @@ class FineControllerTest {
 
         List<FineDTO> fines = List.of(f);
 
-        JwtAuthenticationToken principal = mock(JwtAuthenticationToken.class);
-        when(principal.getName()).thenReturn("user-keycloak-id");
+        when(fineService.getFinesForClient(8L)).thenReturn(fines);
 
-        when(fineService.getFinesForUser("user-keycloak-id")).thenReturn(fines);
-
-        mockMvc.perform(get("/api/v1/fines/my-fines").principal(principal))
+        mockMvc.perform(get("/api/v1/fines/my-fines")
+                        .requestAttr(ClientIdentityFilter.ATTRIBUTE, new ClientIdentityDTO(8L, "Restringido")))
                 .andExpect(status().isOk())
                 .andExpect(content().json(mapper.writeValueAsString(fines)));
 
-        verify(fineService).getFinesForUser("user-keycloak-id");
+        verify(fineService).getFinesForClient(8L);
     }
 
     @Test
@@ -1,8 +1,11 @@
 // java
 package com.example.tingeso_backend.controllers;
 
+import com.example.tingeso_backend.dto.KardexBalanceDTO;
 import com.example.tingeso_backend.entities.KardexEntity;
 import com.example.tingeso_backend.entities.ToolEntity;
+import com.example.tingeso_backend.services.ClientIdentityCache;
+import com.example.tingeso_backend.services.KardexBalanceService;
 import com.example.tingeso_backend.services.KardexService;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.hamcrest.Matchers;
@@ -13,12 +16,16 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -33,6 +40,12 @@ class KardexControllerTest {
     @MockBean
     private KardexService kardexService;
 
+    @MockBean
+    private ClientIdentityCache identityCache;
+
+    @MockBean
+    private KardexBalanceService balanceService;
+
     private KardexEntity buildMovement(Long id, String toolName, String movementType, LocalDateTime date, int qty, String user) {
         ToolEntity tool = new ToolEntity();
         try {
@@ -55,9 +68,9 @@ class KardexControllerTest {
         KardexEntity m1 = buildMovement(1L, "Taladro A", "Ingreso", LocalDateTime.of(2025,1,1,10,0), 1, "Usuario1");
         KardexEntity m2 = buildMovement(2L, "Sierra B", "Préstamo", LocalDateTime.of(2025,1,2,11,0), -1, "ClienteX");
 
-        when(kardexService.getMovements(null, null, null)).thenReturn(List.of(m1, m2));
+        when(kardexService.getMovements(null, null, null, null)).thenReturn(List.of(m1, m2));
 
-        mockMvc.perform(get("/api/v1/kardex/"))
+        mockMvc.perform(get("/api/v1/kardex/").param("unpaged", "true"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", Matchers.hasSize(2)))
                 .andExpect(jsonPath("$[0].id").value(1))
@@ -65,22 +78,35 @@ class KardexControllerTest {
                 .andExpect(jsonPath("$[0].tool.name").value("Taladro A"))
                 .andExpect(jsonPath("$[1].id").value(2));
 
-        verify(kardexService).getMovements(null, null, null);
+        verify(kardexService).getMovements(null, null, null, null);
     }
 
     @Test
     void getMovements_withToolName_returnsFiltered() throws Exception {
         KardexEntity m = buildMovement(3L, "TaladroFiltro", "Préstamo", LocalDateTime.of(2025,2,1,9,0), -1, "ClienteY");
 
-        when(kardexService.getMovements(eq("TaladroFiltro"), eq(null), eq(null))).thenReturn(List.of(m));
+        when(kardexService.getMovements(isNull(), eq("TaladroFiltro"), isNull(), isNull())).thenReturn(List.of(m));
 
-        mockMvc.perform(get("/api/v1/kardex/").param("toolName", "TaladroFiltro"))
+        mockMvc.perform(get("/api/v1/kardex/").param("toolName", "TaladroFiltro").param("unpaged", "true"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", Matchers.hasSize(1)))
                 .andExpect(jsonPath("$[0].tool.name").value("TaladroFiltro"))
                 .andExpect(jsonPath("$[0].movementType").value("Préstamo"));
 
-        verify(kardexService).getMovements("TaladroFiltro", null, null);
+        verify(kardexService).getMovements(null, "TaladroFiltro", null, null);
+    }
+
+    @Test
+    void getMovements_withToolId_passesIdToService() throws Exception {
+        KardexEntity m = buildMovement(5L, "Sierra", "Ingreso", LocalDateTime.of(2025,2,1,9,0), 1, "Admin");
+
+        when(kardexService.getMovements(eq(12L), isNull(), isNull(), isNull())).thenReturn(List.of(m));
+
+        mockMvc.perform(get("/api/v1/kardex/").param("toolId", "12").param("unpaged", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(5));
+
+        verify(kardexService).getMovements(12L, null, null, null);
     }
 
     @Test
@@ -89,9 +115,9 @@ class KardexControllerTest {
         LocalDate end = LocalDate.of(2025, 1, 31);
         KardexEntity m = buildMovement(4L, "HerramientaD", "Devolución", LocalDateTime.of(2025,1,15,8,0), 1, "EmpleadoZ");
 
-        when(kardexService.getMovements(eq(null), eq(start), eq(end))).thenReturn(List.of(m));
+        when(kardexService.getMovements(isNull(), isNull(), eq(start), eq(end))).thenReturn(List.of(m));
 
-        mockMvc.perform(get("/api/v1/kardex/")
+        mockMvc.perform(get("/api/v1/kardex/").param("unpaged", "true")
                         .param("startDate", start.toString())
                         .param("endDate", end.toString()))
                 .andExpect(status().isOk())
@@ -99,6 +125,40 @@ class KardexControllerTest {
                 .andExpect(jsonPath("$[0].movementType").value("Devolución"))
                 .andExpect(jsonPath("$[0].tool.name").value("HerramientaD"));
 
-        verify(kardexService).getMovements(null, start, end);
+        verify(kardexService).getMovements(null, null, start, end);
+    }
+
+    @Test
+    void exportMovements_csv_streamsServiceOutputWithHeaders() throws Exception {
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(5);
+            out.write("id,movementDate\n1,2025-01-01T10:00\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(kardexService).exportMovements(isNull(), eq("Taladro"), isNull(), isNull(), eq("csv"), any(OutputStream.class));
+
+        mockMvc.perform(get("/api/v1/kardex/export").param("toolName", "Taladro").param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", Matchers.containsString("kardex.csv")))
+                .andExpect(content().string("id,movementDate\n1,2025-01-01T10:00\n"));
+    }
+
+    @Test
+    void exportMovements_unknownFormat_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/kardex/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(kardexService);
+    }
+
+    @Test
+    void getBalance_passesToolNameAndInstantToService() throws Exception {
+        LocalDateTime at = LocalDateTime.of(2025, 3, 10, 12, 0);
+        when(balanceService.getBalanceAt("Taladro", at)).thenReturn(new KardexBalanceDTO("Taladro", at, 4));
+
+        mockMvc.perform(get("/api/v1/kardex/balance").param("toolName", "Taladro").param("at", "2025-03-10T12:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.toolName").value("Taladro"))
+                .andExpect(jsonPath("$.balance").value(4));
     }
 }
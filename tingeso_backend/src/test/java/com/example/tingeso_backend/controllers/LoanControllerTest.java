@@ -1,10 +1,14 @@
 // java
 package com.example.tingeso_backend.controllers;
 
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
+import com.example.tingeso_backend.dto.CursorPageDTO;
 import com.example.tingeso_backend.dto.LoanDTO;
 import com.example.tingeso_backend.dto.LoanWithFineInfoDTO;
 import com.example.tingeso_backend.dto.ReturnRequestDTO;
 import com.example.tingeso_backend.entities.LoanEntity;
+import com.example.tingeso_backend.identity.ClientIdentityFilter;
+import com.example.tingeso_backend.services.ClientIdentityCache;
 import com.example.tingeso_backend.services.LoanService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -40,6 +44,9 @@ class LoanControllerTest {
     @MockBean
     private LoanService loanService;
 
+    @MockBean
+    private ClientIdentityCache identityCache;
+
     @Test
     void listLoans_returnsOkWithBody() throws Exception {
         LoanWithFineInfoDTO dto = new LoanWithFineInfoDTO();
@@ -48,7 +55,7 @@ class LoanControllerTest {
         dto.setToolName("Taladro");
         when(loanService.getLoansWithFineInfo()).thenReturn(List.of(dto));
 
-        mockMvc.perform(get("/api/v1/loans/"))
+        mockMvc.perform(get("/api/v1/loans/").param("unpaged", "true"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].id").value(1));
@@ -109,18 +116,39 @@ class LoanControllerTest {
     }
 
     @Test
-    void getMyLoans_usesPrincipal_andReturnsLoans() throws Exception {
-        JwtAuthenticationToken principal = Mockito.mock(JwtAuthenticationToken.class);
-        when(principal.getName()).thenReturn("kc-abc");
-
+    void getMyLoans_usesResolvedClient_andReturnsLoans() throws Exception {
         LoanWithFineInfoDTO dto = new LoanWithFineInfoDTO();
         dto.setId(11L);
-        when(loanService.getLoansForUser("kc-abc")).thenReturn(List.of(dto));
+        when(loanService.getLoansForClient(4L)).thenReturn(List.of(dto));
 
-        mockMvc.perform(get("/api/v1/loans/my-loans").principal(principal))
+        mockMvc.perform(get("/api/v1/loans/my-loans")
+                        .requestAttr(ClientIdentityFilter.ATTRIBUTE, new ClientIdentityDTO(4L, "Activo")))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].id").value(11));
 
-        verify(loanService, times(1)).getLoansForUser("kc-abc");
+        verify(loanService, times(1)).getLoansForClient(4L);
+    }
+
+    @Test
+    void getMyLoans_withoutClientProfile_returnsEmptyList() throws Exception {
+        mockMvc.perform(get("/api/v1/loans/my-loans"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        verifyNoInteractions(loanService);
+    }
+
+    @Test
+    void listLoans_pagedByDefault_returnsItemsAndNextCursor() throws Exception {
+        LoanWithFineInfoDTO dto = new LoanWithFineInfoDTO();
+        dto.setId(3L);
+        when(loanService.getLoansWithFineInfoPage("abc", 1)).thenReturn(new CursorPageDTO<>(List.of(dto), "next"));
+
+        mockMvc.perform(get("/api/v1/loans/").param("after", "abc").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(3))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+        verify(loanService, never()).getLoansWithFineInfo();
     }
 }
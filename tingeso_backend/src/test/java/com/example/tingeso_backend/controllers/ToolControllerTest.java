@@ -1,6 +1,13 @@
 package com.example.tingeso_backend.controllers;
 
+import com.example.tingeso_backend.dto.CursorPageDTO;
+import com.example.tingeso_backend.dto.ToolFacetDTO;
+import com.example.tingeso_backend.dto.ToolFacetsDTO;
+import com.example.tingeso_backend.dto.ToolSearchCriteria;
+import com.example.tingeso_backend.dto.ToolSummaryDTO;
 import com.example.tingeso_backend.entities.ToolEntity;
+import com.example.tingeso_backend.services.ToolFacetsService;
+import com.example.tingeso_backend.services.ClientIdentityCache;
 import com.example.tingeso_backend.services.ToolService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -13,6 +20,8 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
@@ -32,6 +41,12 @@ public class ToolControllerTest {
     @MockBean
     private ToolService toolService;
 
+    @MockBean
+    private ClientIdentityCache identityCache;
+
+    @MockBean
+    private ToolFacetsService toolFacetsService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -55,7 +70,7 @@ public class ToolControllerTest {
 
         when(toolService.getTools()).thenReturn(list);
 
-        mockMvc.perform(get("/api/v1/tools/"))
+        mockMvc.perform(get("/api/v1/tools/").param("unpaged", "true"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$", hasSize(2)));
@@ -95,4 +110,37 @@ public class ToolControllerTest {
 
         verify(toolService).saveTool(any(ToolEntity.class));
     }
+
+    @Test
+    public void searchTools_passesFiltersAndReturnsSummaries() throws Exception {
+        ToolSearchCriteria criteria = new ToolSearchCriteria("Manual", null, "mar", 1000, false);
+        ToolSummaryDTO summary = new ToolSummaryDTO(3L, "Martillo", "Manual", "Disponible", 5000, 1, null);
+        when(toolService.searchTools(criteria, null, 20)).thenReturn(new CursorPageDTO<>(List.of(summary), "c"));
+
+        mockMvc.perform(get("/api/v1/tools/search")
+                        .param("category", "Manual")
+                        .param("namePrefix", " mar ")
+                        .param("minReplacementValue", "1000")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].name", is("Martillo")))
+                .andExpect(jsonPath("$.nextCursor", is("c")));
+
+        verify(toolService).searchTools(criteria, null, 20);
+    }
+
+    @Test
+    public void getFacets_returnsNamesAndCategoriesWithStatusCounts() throws Exception {
+        ToolFacetsDTO facets = new ToolFacetsDTO(
+                List.of(new ToolFacetDTO("martillo", 3, Map.of("Disponible", 2L, "Prestada", 1L))),
+                List.of(new ToolFacetDTO("Manual", 3, Map.of("Disponible", 2L, "Prestada", 1L))));
+        when(toolFacetsService.getFacets()).thenReturn(facets);
+
+        mockMvc.perform(get("/api/v1/tools/facets"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.names[0].value", is("martillo")))
+                .andExpect(jsonPath("$.names[0].countsByStatus.Prestada", is(1)))
+                .andExpect(jsonPath("$.categories[0].total", is(3)));
+    }
 }
@@ -0,0 +1,37 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.ClientEligibilityEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class ClientEligibilityRepositoryTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private ClientEligibilityRepository eligibilityRepository;
+
+    @Test
+    void insertIfAbsent_secondInsertIsIgnoredAndTransactionStaysUsable() {
+        LocalDate due = LocalDate.now().plusDays(3);
+
+        assertEquals(1, eligibilityRepository.insertIfAbsent(new ClientEligibilityEntity(70L, 1, 0, due, false)));
+        assertEquals(0, eligibilityRepository.insertIfAbsent(new ClientEligibilityEntity(70L, 9, 9, null, true)));
+
+        // El duplicado no deja la transacción marcada para rollback: el UPDATE atómico sigue funcionando
+        assertEquals(1, eligibilityRepository.registerLoan(70L, due.minusDays(1)));
+        em.clear();
+        ClientEligibilityEntity stored = eligibilityRepository.findById(70L).orElseThrow();
+        assertEquals(2, stored.getActiveLoanCount());
+        assertEquals(0, stored.getPendingFineCount());
+        assertEquals(due.minusDays(1), stored.getEarliestDueDate());
+    }
+}
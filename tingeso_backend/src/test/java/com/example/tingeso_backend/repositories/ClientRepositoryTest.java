@@ -1,14 +1,29 @@
 // java
 package com.example.tingeso_backend.repositories;
 
+import com.example.tingeso_backend.dto.ClientSummaryDTO;
 import com.example.tingeso_backend.entities.ClientEntity;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,6 +34,18 @@ class ClientRepositoryTest {
     @Autowired
     private ClientRepository clientRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ClientEntity firstLogin(String keycloakId) {
+        ClientEntity client = new ClientEntity();
+        client.setKeycloakId(keycloakId);
+        client.setName("Usuario " + keycloakId);
+        client.setEmail(keycloakId + "@example.com");
+        client.setStatus("Activo");
+        return client;
+    }
+
     @Test
     void saveAndFindById_success() {
         ClientEntity client = new ClientEntity();
@@ -62,4 +89,133 @@ class ClientRepositoryTest {
         List<ClientEntity> all = clientRepository.findAll();
         assertTrue(all.size() >= 2);
     }
+
+    @Test
+    void insertIfAbsent_existingKeycloakId_returnsExistingRowUnchanged() {
+        ClientEntity existing = clientRepository.saveAndFlush(firstLogin("kc-upsert"));
+
+        ClientEntity result = clientRepository.insertIfAbsent(firstLogin("kc-upsert"));
+
+        assertEquals(existing.getId(), result.getId());
+        assertEquals(1, clientRepository.findAll().stream().filter(c -> "kc-upsert".equals(c.getKeycloakId())).count());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // cada ingreso confirma en su propia transacción
+    void insertIfAbsent_burstOfFirstLogins_createsOneClientPerUserWithoutErrors() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int sameUserLogins = 100;
+        int distinctUsers = 100;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        Set<Long> sameUserIds = ConcurrentHashMap.newKeySet();
+        Map<String, Long> distinctIds = new ConcurrentHashMap<>();
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < sameUserLogins; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    sameUserIds.add(tx.execute(status -> clientRepository.insertIfAbsent(firstLogin("kc-burst")).getId()));
+                    return null;
+                }));
+            }
+            for (int i = 0; i < distinctUsers; i++) {
+                String keycloakId = "kc-burst-" + i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    distinctIds.put(keycloakId, tx.execute(status -> clientRepository.insertIfAbsent(firstLogin(keycloakId)).getId()));
+                    return null;
+                }));
+            }
+            start.countDown();
+            // get() relanza cualquier excepción de los ingresos
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+
+            assertEquals(1, sameUserIds.size(), "Todos los ingresos del mismo usuario deben ver el mismo cliente");
+            assertEquals(sameUserIds.iterator().next(), clientRepository.findByKeycloakId("kc-burst").orElseThrow().getId());
+            assertEquals(distinctUsers, distinctIds.values().stream().distinct().count());
+        } finally {
+            pool.shutdownNow();
+            tx.executeWithoutResult(status -> clientRepository.deleteAll(clientRepository.findAll().stream()
+                    .filter(c -> c.getKeycloakId() != null && c.getKeycloakId().startsWith("kc-burst"))
+                    .toList()));
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void insertIfAbsent_concurrentUsersWithSameRut_keepOneRutKeyWithoutErrors() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int users = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                String keycloakId = "kc-same-rut-" + i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    ClientEntity client = firstLogin(keycloakId);
+                    client.setRut("11.111.111-1");
+                    return tx.execute(status -> clientRepository.insertIfAbsent(client).getId());
+                }));
+            }
+            start.countDown();
+            // Ningún ingreso falla por uk_clients_rut_key
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+
+            List<ClientEntity> created = clientRepository.findAll().stream()
+                    .filter(c -> c.getKeycloakId() != null && c.getKeycloakId().startsWith("kc-same-rut-"))
+                    .toList();
+            assertEquals(users, created.size());
+            assertEquals(1, created.stream().filter(c -> c.getRutKey() != null).count());
+        } finally {
+            pool.shutdownNow();
+            tx.executeWithoutResult(status -> clientRepository.deleteAll(clientRepository.findAll().stream()
+                    .filter(c -> c.getKeycloakId() != null && c.getKeycloakId().startsWith("kc-same-rut-"))
+                    .toList()));
+        }
+    }
+
+    private ClientEntity client(String name, String email, String rut) {
+        ClientEntity client = new ClientEntity();
+        client.setName(name);
+        client.setEmail(email);
+        client.setRut(rut);
+        return clientRepository.save(client);
+    }
+
+    @Test
+    void findByRutKey_matchesRutWrittenWithDotsAndDash() {
+        ClientEntity saved = client("Con Rut", "rut@example.com", "12.345.678-k");
+
+        assertEquals(saved.getId(), clientRepository.findByRutKey(ClientEntity.normalizeRut("12345678K")).orElseThrow().getId());
+    }
+
+    @Test
+    void searchQueries_rankRutThenNameThenEmailWithoutRepeatingRows() {
+        ClientEntity byRut = client("Zoe", "zoe@example.com", "7.654.321-0");
+        ClientEntity byName = client("Mart_in", "otro@example.com", null);
+        ClientEntity byNameAndEmail = client("mart_ina", "mart_ina@example.com", null);
+        ClientEntity byEmail = client("Ana", "Mart_ana@example.com", null);
+        client("Martin", "martin@example.com", null); // "_" es literal, no comodín
+        clientRepository.flush();
+
+        assertEquals(byRut.getId(), clientRepository.findSummaryByRutKey("76543210").orElseThrow().getId());
+
+        List<ClientSummaryDTO> names = clientRepository.searchByNamePrefix("mart\\_%", "", "", 0L, PageRequest.of(0, 10));
+        assertEquals(List.of(byName.getId(), byNameAndEmail.getId()), names.stream().map(ClientSummaryDTO::getId).toList());
+        assertEquals("name", names.get(0).getMatch());
+
+        List<ClientSummaryDTO> emails = clientRepository.searchByEmailPrefix("mart\\_%", "", "", 0L, PageRequest.of(0, 10));
+        assertEquals(List.of(byEmail.getId()), emails.stream().map(ClientSummaryDTO::getId).toList());
+
+        List<ClientSummaryDTO> nextNames = clientRepository.searchByNamePrefix("mart\\_%", "", "mart_in", byName.getId(),
+                PageRequest.of(0, 10));
+        assertEquals(List.of(byNameAndEmail.getId()), nextNames.stream().map(ClientSummaryDTO::getId).toList());
+    }
 }
@@ -0,0 +1,75 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.dto.ClientSummaryDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Búsqueda de clientes por RUT, prefijo de nombre y prefijo de correo sobre las claves normalizadas.
+// Ejecutar con: mvn test -Dtest=ClientSearchBenchmarkTest -Dbenchmark=true [-Dbenchmark.rows=1000000]
+@DataJpaTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ClientSearchBenchmarkTest {
+
+    private static final long ROWS = Long.getLong("benchmark.rows", 1_000_000L);
+    private static final int ITERATIONS = 200;
+    private static final long ID_OFFSET = 1_000_000_000L;
+    private static final PageRequest PAGE = PageRequest.of(0, 51);
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    private void loadClients() {
+        // Nombres "apellidoNNN nombreX" repartidos en 1000 apellidos; RUT = número de fila con dígito fijo
+        em.getEntityManager().createNativeQuery(
+                "INSERT INTO clients (id, name, name_key, email, email_key, rut, rut_key, status) "
+                        + "SELECT " + ID_OFFSET + " + X, 'Apellido' || MOD(X, 1000) || ' Nombre' || X, "
+                        + "'apellido' || MOD(X, 1000) || ' nombre' || X, "
+                        + "'correo' || X || '@example.com', 'correo' || X || '@example.com', "
+                        + "X || '-1', X || '1', 'Activo' FROM SYSTEM_RANGE(1, " + ROWS + ")").executeUpdate();
+        em.clear();
+    }
+
+    private double p95Millis(Supplier<List<ClientSummaryDTO>> query) {
+        double[] samples = new double[ITERATIONS];
+        query.get(); // calentamiento
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            query.get();
+            samples[i] = (System.nanoTime() - start) / 1_000_000.0;
+            em.clear();
+        }
+        Arrays.sort(samples);
+        return samples[(int) Math.ceil(ITERATIONS * 0.95) - 1];
+    }
+
+    @Test
+    void searchByRutNameAndEmailPrefix() {
+        loadClients();
+        Random random = new Random(42);
+
+        assertFalse(clientRepository.searchByNamePrefix("apellido42 %", "", "", 0L, PAGE).isEmpty());
+        double rut = p95Millis(() -> clientRepository.findSummaryByRutKey(
+                (1 + random.nextInt((int) ROWS)) + "1").stream().toList());
+        double name = p95Millis(() -> clientRepository.searchByNamePrefix(
+                "apellido" + random.nextInt(1000) + " %", "", "", 0L, PAGE));
+        double email = p95Millis(() -> clientRepository.searchByEmailPrefix(
+                "correo" + (1 + random.nextInt((int) ROWS)) + "%", "", "", 0L, PAGE));
+
+        System.out.printf("Búsqueda de clientes (%d filas), p95: RUT %.2f ms, prefijo de nombre %.2f ms, prefijo de correo %.2f ms%n",
+                ROWS, rut, name, email);
+    }
+}
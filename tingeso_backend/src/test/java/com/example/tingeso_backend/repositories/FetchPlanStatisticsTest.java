@@ -0,0 +1,187 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.ClientEntity;
+import com.example.tingeso_backend.entities.FineEntity;
+import com.example.tingeso_backend.entities.KardexEntity;
+import com.example.tingeso_backend.entities.LoanEntity;
+import com.example.tingeso_backend.entities.ToolEntity;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sentencias SQL y entidades cargadas por cada caso de uso, con las asociaciones perezosas y sus entity graphs.
+// Cada acción recorre los mismos campos que el servicio correspondiente al armar su respuesta.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FetchPlanStatisticsTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private FineRepository fineRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private KardexRepository kardexRepository;
+
+    private ClientEntity client;
+    private LoanEntity loanWithTwoFines;
+    private FineEntity fine;
+
+    private record Usage(long statements, long entities) {}
+
+    private Usage measure(Runnable action) {
+        Statistics statistics = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        em.clear();
+        statistics.clear();
+        action.run();
+        return new Usage(statistics.getPrepareStatementCount(), statistics.getEntityLoadCount());
+    }
+
+    private ToolEntity persistTool(String name) {
+        ToolEntity tool = new ToolEntity();
+        tool.setName(name);
+        tool.setCategory("General");
+        tool.setReplacementValue(1);
+        tool.setAvailableStock(1);
+        tool.setStateInitial("Bueno");
+        tool.setStatus("Disponible");
+        return em.persist(tool);
+    }
+
+    private LoanEntity persistLoan(ToolEntity tool) {
+        LoanEntity loan = new LoanEntity();
+        loan.setClient(client);
+        loan.setTool(tool);
+        loan.setLoanDate(LocalDate.now());
+        loan.setDueDate(LocalDate.now().plusDays(3));
+        loan.setStatus("Activo");
+        return em.persist(loan);
+    }
+
+    private FineEntity persistFine(LoanEntity loan, String status) {
+        FineEntity f = new FineEntity();
+        f.setLoan(loan);
+        f.setFineType("Atraso");
+        f.setAmount(100);
+        f.setStatus(status);
+        f.setCreationDate(LocalDate.now());
+        return em.persist(f);
+    }
+
+    @BeforeEach
+    void setup() {
+        client = new ClientEntity();
+        client.setName("Cliente Grafo");
+        client.setEmail("grafo@example.com");
+        client.setKeycloakId("kc-grafo");
+        client.setStatus("Activo");
+        em.persist(client);
+
+        ToolEntity drill = persistTool("Taladro");
+        ToolEntity saw = persistTool("Sierra");
+        LoanEntity first = persistLoan(drill);
+        LoanEntity second = persistLoan(saw);
+        loanWithTwoFines = persistLoan(drill);
+        fine = persistFine(first, "Pendiente");
+        persistFine(second, "Pagada");
+        persistFine(loanWithTwoFines, "Pendiente");
+        persistFine(loanWithTwoFines, "Pagada");
+
+        for (int i = 0; i < 3; i++) {
+            KardexEntity movement = new KardexEntity();
+            movement.setTool(i % 2 == 0 ? drill : saw);
+            movement.setMovementType("Ingreso");
+            movement.setMovementDate(LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i));
+            movement.setQuantityAffected(1);
+            movement.setUserResponsible("tester");
+            em.persist(movement);
+        }
+        em.flush();
+    }
+
+    @Test
+    void fineList_loadsLoanClientAndToolInOneStatement() {
+        Usage usage = measure(() -> fineRepository.findAll()
+                .forEach(f -> assertNotNull(f.getLoan().getClient().getName() + f.getLoan().getTool().getName())));
+
+        assertEquals(1, usage.statements());
+        assertEquals(4 + 3 + 1 + 2, usage.entities(), "Multas, préstamos, cliente y herramientas; sin las colecciones de multas");
+    }
+
+    @Test
+    void fineListPageAndUserFines_loadInOneStatement() {
+        Usage page = measure(() -> fineRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 10))
+                .forEach(f -> assertNotNull(f.getLoan().getTool().getName())));
+        Usage mine = measure(() -> fineRepository.findByClientIdWithLoanDetails(client.getId())
+                .forEach(f -> assertNotNull(f.getLoan().getClient().getName())));
+
+        assertEquals(1, page.statements());
+        assertEquals(1, mine.statements());
+    }
+
+    @Test
+    void fineDetail_loadsOnlyTheFine() {
+        Usage usage = measure(() -> assertEquals("Pendiente", fineRepository.findById(fine.getId()).orElseThrow().getStatus()));
+
+        assertEquals(1, usage.statements());
+        assertEquals(1, usage.entities(), "Antes arrastraba préstamo, cliente, herramienta y las demás multas del préstamo");
+    }
+
+    @Test
+    void payFine_loadsFineLoanAndClientOnly() {
+        Usage usage = measure(() -> assertEquals("kc-grafo",
+                fineRepository.findWithLoanClientById(fine.getId()).orElseThrow().getLoan().getClient().getKeycloakId()));
+
+        assertEquals(1, usage.statements());
+        assertEquals(3, usage.entities());
+    }
+
+    @Test
+    void loanReturn_loadsClientAndToolButNotFines() {
+        Usage usage = measure(() -> {
+            LoanEntity loan = loanRepository.findForReturnById(loanWithTwoFines.getId()).orElseThrow();
+            assertEquals("Taladro", loan.getTool().getName());
+            assertEquals("Cliente Grafo", loan.getClient().getName());
+        });
+
+        assertEquals(1, usage.statements());
+        assertEquals(3, usage.entities());
+    }
+
+    @Test
+    void kardexPage_loadsToolsWithMovements() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        Usage usage = measure(() -> kardexRepository.findPageAfter(start, start.plusDays(1), start.minusSeconds(1), 0L, PageRequest.of(0, 10))
+                .forEach(k -> assertNotNull(k.getTool().getName())));
+
+        assertEquals(1, usage.statements());
+        assertEquals(3 + 2, usage.entities());
+    }
+
+    @Test
+    void lazyAssociations_doNotBreakIdentityEquality() {
+        em.clear();
+        FineEntity loaded = fineRepository.findById(fine.getId()).orElseThrow();
+        LoanEntity proxy = loaded.getLoan();
+        LoanEntity entity = loanRepository.findById(proxy.getId()).orElseThrow();
+
+        assertEquals(entity, proxy);
+        assertEquals(entity.hashCode(), proxy.hashCode());
+        assertEquals(List.of(entity), List.of(proxy));
+    }
+}
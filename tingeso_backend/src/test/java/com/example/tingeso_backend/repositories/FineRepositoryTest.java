@@ -1,5 +1,6 @@
 package com.example.tingeso_backend.repositories;
 
+import com.example.tingeso_backend.dto.PendingFineSummaryDTO;
 import com.example.tingeso_backend.entities.ClientEntity;
 import com.example.tingeso_backend.entities.FineEntity;
 import com.example.tingeso_backend.entities.LoanEntity;
@@ -72,10 +73,10 @@ class FineRepositoryTest {
         em.persist(fine);
         em.flush();
 
-        FineEntity found = fineRepository.findByLoanId(loan.getId());
-        assertThat(found).isNotNull();
-        assertThat(found.getLoan()).isNotNull();
-        assertThat(found.getLoan().getId()).isEqualTo(loan.getId());
+        List<FineEntity> found = fineRepository.findByLoanId(loan.getId());
+        assertThat(found).hasSize(1);
+        assertThat(found.get(0).getLoan()).isNotNull();
+        assertThat(found.get(0).getLoan().getId()).isEqualTo(loan.getId());
     }
 
     @Test
@@ -124,7 +125,7 @@ class FineRepositoryTest {
 
     @Test
     @Rollback
-    void findByUserKeycloakId_returnsFinesForKeycloakId() {
+    void findByClientIdWithLoanDetails_returnsFinesForClient() {
         ClientEntity client = new ClientEntity();
         client.setKeycloakId("kc-user");
         client.setName("Cliente C");
@@ -147,8 +148,44 @@ class FineRepositoryTest {
         em.persist(fine);
         em.flush();
 
-        List<FineEntity> fines = fineRepository.findByUserKeycloakId("kc-user");
+        List<FineEntity> fines = fineRepository.findByClientIdWithLoanDetails(client.getId());
         assertThat(fines).isNotEmpty();
         assertThat(fines).allMatch(f -> "kc-user".equals(f.getLoan().getClient().getKeycloakId()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void pendingFineQueries_useClientCopiedFromLoan() {
+        ClientEntity client = new ClientEntity();
+        client.setKeycloakId("kc-summary");
+        client.setName("Cliente D");
+        client.setEmail("clienteD@example.com");
+        em.persist(client);
+
+        LoanEntity loan = new LoanEntity();
+        loan.setClient(client);
+        loan.setTool(createAndPersistTool("Herramienta Resumen"));
+        em.persist(loan);
+
+        for (int amount : new int[]{30, 70}) {
+            FineEntity fine = new FineEntity();
+            fine.setLoan(loan);
+            fine.setStatus("Pendiente");
+            fine.setAmount(amount);
+            em.persist(fine);
+        }
+        FineEntity paid = new FineEntity();
+        paid.setLoan(loan);
+        paid.setStatus("Pagada");
+        paid.setAmount(500);
+        em.persist(paid);
+        em.flush();
+
+        assertThat(paid.getClientId()).isEqualTo(client.getId());
+        assertThat(fineRepository.existsByClientIdAndStatus(client.getId(), "Pendiente")).isTrue();
+        assertThat(fineRepository.existsByClientIdAndStatus(client.getId(), "Anulada")).isFalse();
+
+        PendingFineSummaryDTO summary = fineRepository.summarizePendingFinesByClientId(client.getId()).orElseThrow();
+        assertThat(summary.getPendingCount()).isEqualTo(2L);
+        assertThat(summary.getPendingTotal()).isEqualTo(100L);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.services.KardexBalanceService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Saldo en una fecha: suma de todo el kardex contra cierre diario + movimientos del día, sobre H2 en memoria.
+// No hay cifras registradas: sólo imprime la medición de quien lo ejecute.
+// Ejecutar con: mvn test -Dtest=KardexBalanceBenchmarkTest -Dbenchmark=true -DargLine=-Xmx6g
+// (-Dbenchmark.rows=N para otro volumen; por defecto 10 millones de movimientos)
+@DataJpaTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Import(KardexBalanceService.class)
+class KardexBalanceBenchmarkTest {
+
+    private static final long ROWS = Long.getLong("benchmark.rows", 10_000_000L);
+    private static final int TOOLS = 50;
+    private static final int ITERATIONS = 20;
+    // Ids fuera del rango que entrega la secuencia en las pruebas
+    private static final long ID_OFFSET = 1_000_000_000L;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private KardexRepository kardexRepository;
+
+    @Autowired
+    private ToolRepository toolRepository;
+
+    @Autowired
+    private KardexBalanceService balanceService;
+
+    private void loadHistory() {
+        em.getEntityManager().createNativeQuery(
+                "INSERT INTO tools (id, name, name_key, category, state_initial, replacement_value, available_stock, status) "
+                        + "SELECT " + ID_OFFSET + " + X, 'Herramienta ' || MOD(X, 10), 'herramienta ' || MOD(X, 10), "
+                        + "'General', 'Bueno', 1, 0, 'Disponible' "
+                        + "FROM SYSTEM_RANGE(1, " + TOOLS + ")").executeUpdate();
+        // Tres años de historial; uno de cada tres movimientos es una salida
+        em.getEntityManager().createNativeQuery(
+                "INSERT INTO kardex (id, tool_id, movement_type, movement_date, quantity_affected, user_responsible) "
+                        + "SELECT " + ID_OFFSET + " + X, " + ID_OFFSET + " + 1 + MOD(X, " + TOOLS + "), 'Ingreso', "
+                        + "DATEADD('SECOND', CAST(X * 94608000 / " + ROWS + " AS INT), TIMESTAMP '2023-01-01 00:00:00'), "
+                        + "CASE WHEN MOD(X, 3) = 0 THEN -1 ELSE 1 END, 'benchmark' "
+                        + "FROM SYSTEM_RANGE(1, " + ROWS + ")").executeUpdate();
+        // Misma carga inicial que la migración de Postgres
+        em.getEntityManager().createNativeQuery(
+                "INSERT INTO kardex_daily_balances (tool_id, balance_date, closing_balance) "
+                        + "SELECT tool_id, day, SUM(day_total) OVER (PARTITION BY tool_id ORDER BY day) "
+                        + "FROM (SELECT tool_id, CAST(movement_date AS date) AS day, SUM(quantity_affected) AS day_total "
+                        + "FROM kardex GROUP BY tool_id, CAST(movement_date AS date)) daily").executeUpdate();
+        em.clear();
+    }
+
+    private double millisPerCall(LongSupplier lookup) {
+        lookup.getAsLong(); // calentamiento
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            lookup.getAsLong();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+    }
+
+    @Test
+    void compareNaiveSumWithDailyCheckpoints() {
+        loadHistory();
+        String toolName = "herramienta 3";
+        LocalDateTime at = LocalDateTime.of(2025, 6, 15, 13, 30);
+
+        List<Long> toolIds = toolRepository.findIdsByNameKey(toolName);
+        long naive = kardexRepository.sumQuantityByToolIdsBetween(toolIds, LocalDateTime.of(1970, 1, 1, 0, 0), at);
+        assertEquals(naive, balanceService.getBalanceAt(toolName, at).getBalance());
+
+        double sum = millisPerCall(() -> kardexRepository.sumQuantityByToolIdsBetween(toolIds, LocalDateTime.of(1970, 1, 1, 0, 0), at));
+        double checkpoint = millisPerCall(() -> balanceService.getBalanceAt(toolName, at).getBalance());
+
+        System.out.printf("Saldo en fecha (%d movimientos): suma completa %.2f ms, cierre diario + cola %.2f ms%n",
+                ROWS, sum, checkpoint);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.KardexEntity;
+import com.example.tingeso_backend.entities.ToolEntity;
+import com.example.tingeso_backend.services.KardexBalanceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(KardexBalanceService.class)
+class KardexBalanceRepositoryTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private KardexBalanceService balanceService;
+
+    @Autowired
+    private KardexBalanceRepository balanceRepository;
+
+    @Autowired
+    private KardexRepository kardexRepository;
+
+    private ToolEntity persistTool(String name) {
+        ToolEntity tool = new ToolEntity();
+        tool.setName(name);
+        tool.setCategory("General");
+        tool.setReplacementValue(1);
+        tool.setAvailableStock(1);
+        tool.setStateInitial("Bueno");
+        return em.persistAndFlush(tool);
+    }
+
+    private KardexEntity movement(ToolEntity tool, LocalDateTime date, int qty) {
+        KardexEntity k = new KardexEntity();
+        k.setTool(tool);
+        k.setMovementType(qty >= 0 ? "Ingreso" : "Préstamo");
+        k.setMovementDate(date);
+        k.setQuantityAffected(qty);
+        k.setUserResponsible("tester");
+        return k;
+    }
+
+    // Igual que el despacho del outbox: guarda el lote y actualiza los cierres
+    private void dispatch(KardexEntity... movements) {
+        List<KardexEntity> batch = new ArrayList<>(List.of(movements));
+        kardexRepository.saveAll(batch);
+        balanceService.applyMovements(batch);
+    }
+
+    private long naive(List<Long> toolIds, LocalDateTime at) {
+        return kardexRepository.sumQuantityByToolIdsBetween(toolIds, LocalDateTime.of(1970, 1, 1, 0, 0), at);
+    }
+
+    @Test
+    void getBalanceAt_matchesNaiveSumIncludingBackdatedMovements() {
+        ToolEntity first = persistTool("Taladro");
+        ToolEntity second = persistTool("TALADRO");
+        ToolEntity other = persistTool("Sierra");
+        LocalDate day = LocalDate.of(2025, 3, 1);
+
+        dispatch(movement(first, day.atTime(9, 0), 1),
+                movement(second, day.atTime(10, 0), 1),
+                movement(other, day.atTime(10, 0), 1));
+        dispatch(movement(first, day.plusDays(2).atTime(8, 0), -1),
+                movement(first, day.plusDays(2).atTime(18, 0), 1));
+        // Un préstamo se registra con la fecha de inicio, que puede ser anterior al último cierre
+        dispatch(movement(second, day.plusDays(1).atStartOfDay(), -1));
+
+        for (LocalDateTime at : List.of(day.atTime(8, 0), day.atTime(9, 30), day.plusDays(1).atTime(12, 0),
+                day.plusDays(2).atTime(8, 0), day.plusDays(2).atTime(12, 0), day.plusDays(10).atStartOfDay())) {
+            assertThat(balanceService.getBalanceAt("taladro", at).getBalance())
+                    .as("saldo en %s", at)
+                    .isEqualTo(naive(List.of(first.getId(), second.getId()), at));
+        }
+        assertThat(balanceService.getBalanceAt("Taladro", day.plusDays(1).atTime(12, 0)).getBalance()).isEqualTo(1);
+        // El día 2 de la segunda unidad se insertó después del día 3 de la primera; cada una conserva su cierre
+        assertThat(balanceRepository.findClosingBalanceBefore(first.getId(), day.plusDays(3))).contains(1L);
+        assertThat(balanceRepository.findClosingBalanceBefore(second.getId(), day.plusDays(3))).contains(0L);
+    }
+
+    @Test
+    void applyMovements_singleBatchAcrossDaysAndTools_matchesNaiveSum() {
+        ToolEntity first = persistTool("Esmeril");
+        ToolEntity second = persistTool("Lijadora");
+        LocalDate day = LocalDate.of(2025, 4, 1);
+        dispatch(movement(first, day.atTime(9, 0), 3), movement(first, day.plusDays(5).atTime(9, 0), 1));
+
+        // Un solo lote con días nuevos, un día ya cerrado, días anteriores a cierres existentes y otra herramienta
+        dispatch(movement(first, day.plusDays(2).atTime(9, 0), -1),
+                movement(first, day.plusDays(5).atTime(12, 0), -1),
+                movement(first, day.plusDays(7).atTime(9, 0), 2),
+                movement(first, day.minusDays(1).atTime(9, 0), 1),
+                movement(second, day.plusDays(3).atTime(9, 0), 4),
+                movement(second, day.plusDays(3).atTime(10, 0), -2));
+
+        for (int offset = -2; offset <= 8; offset++) {
+            LocalDateTime at = day.plusDays(offset).atStartOfDay();
+            assertThat(balanceService.getBalanceAt("esmeril", at).getBalance())
+                    .as("saldo en %s", at)
+                    .isEqualTo(naive(List.of(first.getId()), at));
+            assertThat(balanceService.getBalanceAt("lijadora", at).getBalance())
+                    .as("saldo en %s", at)
+                    .isEqualTo(naive(List.of(second.getId()), at));
+        }
+        assertThat(balanceRepository.findClosingBalanceBefore(first.getId(), day.plusDays(8))).contains(5L);
+    }
+}
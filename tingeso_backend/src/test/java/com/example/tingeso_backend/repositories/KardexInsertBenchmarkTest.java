@@ -0,0 +1,80 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.KardexEntity;
+import com.example.tingeso_backend.entities.ToolEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Comparación de inserciones fila a fila contra batches JDBC, sobre H2 en memoria. No hay cifras registradas: sólo
+// imprime la medición de quien lo ejecute, y en H2 no refleja los viajes de red que ahorra el batch en Postgres.
+// Ejecutar con: mvn test -Dtest=KardexInsertBenchmarkTest -Dbenchmark=true
+@DataJpaTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class KardexInsertBenchmarkTest {
+
+    private static final int ROWS = 100_000;
+    private static final int BATCH_SIZE = 50; // igual a hibernate.jdbc.batch_size
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private KardexRepository kardexRepository;
+
+    private KardexEntity movement(ToolEntity tool, int i) {
+        KardexEntity k = new KardexEntity();
+        k.setTool(tool);
+        k.setMovementType("Ingreso");
+        k.setMovementDate(LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(i));
+        k.setQuantityAffected(1);
+        k.setUserResponsible("benchmark");
+        return k;
+    }
+
+    private ToolEntity persistTool() {
+        ToolEntity tool = new ToolEntity();
+        tool.setName("Benchmark");
+        tool.setCategory("General");
+        tool.setReplacementValue(1);
+        tool.setAvailableStock(1);
+        tool.setStateInitial("Bueno");
+        return em.persistAndFlush(tool);
+    }
+
+    private double insertsPerSecond(int flushEvery) {
+        ToolEntity tool = persistTool();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            em.persist(movement(tool, i));
+            if ((i + 1) % flushEvery == 0) {
+                em.flush();
+                em.clear();
+                tool = em.find(ToolEntity.class, tool.getId());
+            }
+        }
+        em.flush();
+        em.clear();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return ROWS / seconds;
+    }
+
+    @Test
+    void compareRowAtATimeWithBatchedInserts() {
+        // Fila a fila: un viaje a la base por movimiento, como ocurría con ids IDENTITY
+        double rowAtATime = insertsPerSecond(1);
+        kardexRepository.deleteAllInBatch();
+
+        double batched = insertsPerSecond(BATCH_SIZE);
+
+        System.out.printf("Kardex %d filas: fila a fila %.0f ins/s, batch de %d %.0f ins/s%n",
+                ROWS, rowAtATime, BATCH_SIZE, batched);
+        assertEquals(ROWS, kardexRepository.count());
+    }
+}
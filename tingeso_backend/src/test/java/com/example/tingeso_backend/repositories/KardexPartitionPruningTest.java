@@ -0,0 +1,139 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.KardexEntity;
+import com.example.tingeso_backend.entities.ToolEntity;
+import com.example.tingeso_backend.services.KardexBalanceService;
+import com.example.tingeso_backend.services.KardexService;
+import com.example.tingeso_backend.services.OutboxService;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Comprueba con EXPLAIN que las consultas por fecha de getMovements sólo leen la partición del mes pedido.
+// Necesita un Postgres real (el kardex de H2 no está particionado). Ejecutar con:
+// mvn test -Dtest=KardexPartitionPruningTest -Dpostgres.url=jdbc:postgresql://localhost:5432/tingeso_it -Dpostgres.username=postgres -Dpostgres.password=...
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.tingeso_backend.repositories.KardexPartitionPruningTest$RecordingInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "postgres.url", matches = ".+")
+@Import({KardexService.class, KardexBalanceService.class, OutboxService.class, JacksonAutoConfiguration.class})
+class KardexPartitionPruningTest {
+
+    // Guarda el SQL que genera Hibernate para poder pedir su plan con los mismos parámetros
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("postgres.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("postgres.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("postgres.password", ""));
+    }
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private KardexService kardexService;
+
+    @Autowired
+    private KardexRepository kardexRepository;
+
+    private Long toolId;
+
+    @BeforeEach
+    void loadSixMonths() {
+        // Todo corre en la transacción de la prueba; Postgres revierte también las particiones creadas
+        kardexRepository.ensureMonthlyPartitions(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 1));
+        ToolEntity tool = new ToolEntity();
+        tool.setName("Particionada");
+        tool.setCategory("General");
+        tool.setReplacementValue(1);
+        tool.setAvailableStock(1);
+        tool.setStateInitial("Bueno");
+        toolId = em.persist(tool).getId();
+        for (int month = 1; month <= 6; month++) {
+            KardexEntity k = new KardexEntity();
+            k.setTool(tool);
+            k.setMovementType("Ingreso");
+            k.setMovementDate(LocalDateTime.of(2024, month, 10, 12, 0));
+            k.setQuantityAffected(1);
+            k.setUserResponsible("tester");
+            em.persist(k);
+        }
+        em.flush();
+        em.clear();
+        RecordingInspector.statements.clear();
+    }
+
+    private String explainLastKardexQuery(Object... params) {
+        String sql = RecordingInspector.statements.stream()
+                .filter(s -> s.contains("kardex"))
+                .reduce((first, second) -> second)
+                .orElseThrow();
+        return em.getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            StringBuilder plan = new StringBuilder();
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    statement.setObject(i + 1, params[i]);
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                }
+            }
+            return plan.toString();
+        });
+    }
+
+    @Test
+    void getMovements_byDateRange_readsOnlyThatMonth() {
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        LocalDate end = LocalDate.of(2024, 3, 31);
+
+        assertThat(kardexService.getMovements(null, null, start, end)).hasSize(1);
+
+        String plan = explainLastKardexQuery(start.atStartOfDay(), end.plusDays(1).atStartOfDay());
+        assertThat(plan).contains("kardex_y2024m03");
+        assertThat(plan).doesNotContain("kardex_y2024m02", "kardex_y2024m04", "kardex_default");
+    }
+
+    @Test
+    void getMovements_byToolIdAndDateRange_readsOnlyThoseMonths() {
+        LocalDate start = LocalDate.of(2024, 2, 15);
+        LocalDate end = LocalDate.of(2024, 3, 15);
+
+        assertThat(kardexService.getMovements(toolId, null, start, end)).hasSize(1);
+
+        String plan = explainLastKardexQuery(toolId, start.atStartOfDay(), end.plusDays(1).atStartOfDay());
+        assertThat(plan).contains("kardex_y2024m02", "kardex_y2024m03");
+        assertThat(plan).doesNotContain("kardex_y2024m01", "kardex_y2024m04", "kardex_default");
+    }
+}
@@ -1,15 +1,18 @@
 // java
 package com.example.tingeso_backend.repositories;
 
+import com.example.tingeso_backend.dto.KardexExportDTO;
 import com.example.tingeso_backend.entities.KardexEntity;
 import com.example.tingeso_backend.entities.ToolEntity;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -22,6 +25,9 @@ class KardexRepositoryTest {
     @Autowired
     private KardexRepository kardexRepository;
 
+    @Autowired
+    private ToolRepository toolRepository;
+
     private ToolEntity persistTool(String name) {
         ToolEntity tool = new ToolEntity();
         // setear valores necesarios para cumplir las validaciones
@@ -45,13 +51,17 @@ class KardexRepositoryTest {
     }
 
     @Test
-    void findByToolNameIgnoreCase_returnsMovementsForToolNameIgnoringCase() {
+    void findByToolIdIn_returnsMovementsForToolsSharingNormalizedName() {
         ToolEntity t1 = persistTool("TaladroA");
-        ToolEntity t2 = persistTool("taladroa"); // mismo nombre distinto case
+        ToolEntity t2 = persistTool(" taladroa"); // mismo nombre distinto case y espacios
         persistMovement(t1, "Ingreso", LocalDateTime.of(2025,1,1,10,0));
         persistMovement(t2, "Préstamo", LocalDateTime.of(2025,1,2,11,0));
+        persistMovement(persistTool("TaladroB"), "Ingreso", LocalDateTime.of(2025,1,3,10,0));
 
-        List<KardexEntity> results = kardexRepository.findByToolNameIgnoreCase("TALADROA");
+        List<Long> toolIds = toolRepository.findIdsByNameKey(ToolEntity.normalizeName("TALADROA"));
+        assertThat(toolIds).containsExactlyInAnyOrder(t1.getId(), t2.getId());
+
+        List<KardexEntity> results = kardexRepository.findByToolIdIn(toolIds);
 
         assertThat(results).hasSize(2);
         assertThat(results).extracting("movementType").containsExactlyInAnyOrder("Ingreso", "Préstamo");
@@ -73,7 +83,7 @@ class KardexRepositoryTest {
     }
 
     @Test
-    void findByToolNameIgnoreCaseAndMovementDateGreaterThanEqualAndMovementDateLessThan_combinesFilters() {
+    void findByToolIdInAndMovementDateGreaterThanEqualAndMovementDateLessThan_combinesFilters() {
         ToolEntity tMatch = persistTool("TaladroCombo");
         ToolEntity tOther = persistTool("OtraTool");
 
@@ -84,11 +94,48 @@ class KardexRepositoryTest {
         LocalDateTime start = LocalDateTime.of(2025,3,1,0,0);
         LocalDateTime end = LocalDateTime.of(2025,3,31,23,59);
 
-        List<KardexEntity> results = kardexRepository.findByToolNameIgnoreCaseAndMovementDateGreaterThanEqualAndMovementDateLessThan(
-                "taladrocombo", start, end.plusSeconds(1));
+        List<KardexEntity> results = kardexRepository.findByToolIdInAndMovementDateGreaterThanEqualAndMovementDateLessThan(
+                List.of(tMatch.getId()), start, end.plusSeconds(1));
 
         assertThat(results).hasSize(1);
         assertThat(results.get(0).getTool().getName().toLowerCase()).isEqualTo("taladrocombo");
         assertThat(results.get(0).getMovementType()).isEqualTo("Baja");
     }
+
+    @Test
+    void findPageAfter_walksMovementsByDateAndIdWithoutGapsOrRepeats() {
+        ToolEntity t = persistTool("HerramientaPaginada");
+        LocalDateTime sameDate = LocalDateTime.of(2025,5,1,0,0);
+        KardexEntity a = persistMovement(t, "Ingreso", sameDate);
+        KardexEntity b = persistMovement(t, "Préstamo", sameDate);
+        KardexEntity c = persistMovement(t, "Devolución", LocalDateTime.of(2025,5,2,0,0));
+
+        LocalDateTime start = LocalDateTime.of(2025,1,1,0,0);
+        LocalDateTime end = LocalDateTime.of(2026,1,1,0,0);
+
+        List<KardexEntity> first = kardexRepository.findPageAfter(start, end, start, 0L, PageRequest.of(0, 2));
+        assertThat(first).extracting(KardexEntity::getId).containsExactly(a.getId(), b.getId());
+
+        KardexEntity last = first.get(1);
+        List<KardexEntity> second = kardexRepository.findPageAfter(start, end, last.getMovementDate(), last.getId(), PageRequest.of(0, 2));
+        assertThat(second).extracting(KardexEntity::getId).containsExactly(c.getId());
+
+        List<KardexEntity> byTool = kardexRepository.findPageByToolIdsAfter(List.of(t.getId()), start, end, sameDate, a.getId(), PageRequest.of(0, 5));
+        assertThat(byTool).extracting(KardexEntity::getId).containsExactly(b.getId(), c.getId());
+    }
+
+    @Test
+    void streamForExportByToolIds_streamsFlatRowsInDateOrder() {
+        ToolEntity t = persistTool("Exportada");
+        persistMovement(t, "Devolución", LocalDateTime.of(2025,7,3,9,0));
+        persistMovement(t, "Ingreso", LocalDateTime.of(2025,7,1,9,0));
+        persistMovement(persistTool("Otra"), "Ingreso", LocalDateTime.of(2025,7,2,9,0));
+
+        try (Stream<KardexExportDTO> rows = kardexRepository.streamForExportByToolIds(List.of(t.getId()),
+                LocalDateTime.of(2025,7,1,0,0), LocalDateTime.of(2025,8,1,0,0))) {
+            List<KardexExportDTO> result = rows.toList();
+            assertThat(result).extracting(KardexExportDTO::getMovementType).containsExactly("Ingreso", "Devolución");
+            assertThat(result).allMatch(r -> t.getId().equals(r.getToolId()) && "Exportada".equals(r.getToolName()));
+        }
+    }
 }
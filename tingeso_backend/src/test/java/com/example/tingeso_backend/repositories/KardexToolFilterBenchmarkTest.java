@@ -0,0 +1,88 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.KardexEntity;
+import com.example.tingeso_backend.entities.ToolEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Filtro del kardex por herramienta: join con upper(name) contra ids resueltos por name_key.
+// Ejecutar con: mvn test -Dtest=KardexToolFilterBenchmarkTest -Dbenchmark=true
+@DataJpaTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class KardexToolFilterBenchmarkTest {
+
+    private static final long ROWS = Long.getLong("benchmark.rows", 2_000_000L);
+    private static final int TOOLS = 500;
+    private static final int ITERATIONS = 50;
+    private static final long ID_OFFSET = 1_000_000_000L;
+
+    // Consulta que usaba findByToolNameIgnoreCaseAndMovementDate... antes de filtrar por ids
+    private static final String BY_NAME = "SELECT k FROM KardexEntity k JOIN FETCH k.tool t WHERE UPPER(t.name) = UPPER(:name) "
+            + "AND k.movementDate >= :start AND k.movementDate < :end";
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private KardexRepository kardexRepository;
+
+    @Autowired
+    private ToolRepository toolRepository;
+
+    private void loadLedger() {
+        // Dos filas por nombre, como las herramientas llevadas por unidad
+        em.getEntityManager().createNativeQuery(
+                "INSERT INTO tools (id, name, name_key, category, state_initial, replacement_value, available_stock, status) "
+                        + "SELECT " + ID_OFFSET + " + X, 'Herramienta ' || MOD(X, " + TOOLS / 2 + "), "
+                        + "'herramienta ' || MOD(X, " + TOOLS / 2 + "), 'General', 'Bueno', 1, 0, 'Disponible' "
+                        + "FROM SYSTEM_RANGE(1, " + TOOLS + ")").executeUpdate();
+        em.getEntityManager().createNativeQuery(
+                "INSERT INTO kardex (id, tool_id, movement_type, movement_date, quantity_affected, user_responsible) "
+                        + "SELECT " + ID_OFFSET + " + X, " + ID_OFFSET + " + 1 + MOD(X, " + TOOLS + "), 'Ingreso', "
+                        + "DATEADD('SECOND', CAST(X * 94608000 / " + ROWS + " AS INT), TIMESTAMP '2023-01-01 00:00:00'), "
+                        + "1, 'benchmark' FROM SYSTEM_RANGE(1, " + ROWS + ")").executeUpdate();
+        em.clear();
+    }
+
+    private double millisPerCall(Supplier<List<KardexEntity>> query) {
+        query.get(); // calentamiento
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.get();
+            em.clear();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+    }
+
+    @Test
+    void compareNameJoinWithToolIdFilter() {
+        loadLedger();
+        String name = "HERRAMIENTA 42";
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 4, 1, 0, 0);
+
+        Supplier<List<KardexEntity>> byName = () -> em.getEntityManager()
+                .createQuery(BY_NAME, KardexEntity.class)
+                .setParameter("name", name).setParameter("start", start).setParameter("end", end)
+                .getResultList();
+        Supplier<List<KardexEntity>> byIds = () -> kardexRepository
+                .findByToolIdInAndMovementDateGreaterThanEqualAndMovementDateLessThan(
+                        toolRepository.findIdsByNameKey(ToolEntity.normalizeName(name)), start, end);
+
+        assertEquals(byName.get().size(), byIds.get().size());
+        double before = millisPerCall(byName);
+        double after = millisPerCall(byIds);
+
+        System.out.printf("Kardex por herramienta (%d movimientos, 1 mes): join upper(name) %.2f ms, ids por name_key %.2f ms%n",
+                ROWS, before, after);
+    }
+}
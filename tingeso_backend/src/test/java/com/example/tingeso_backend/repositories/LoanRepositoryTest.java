@@ -1,22 +1,31 @@
 // language: java
 package com.example.tingeso_backend.repositories;
 
+import com.example.tingeso_backend.dto.ActiveLoanSummaryDTO;
+import com.example.tingeso_backend.dto.ClientLoanStatsDTO;
+import com.example.tingeso_backend.dto.LoanWithFineInfoDTO;
+import com.example.tingeso_backend.dto.OverdueLoanDTO;
 import com.example.tingeso_backend.entities.ClientEntity;
+import com.example.tingeso_backend.entities.FineEntity;
 import com.example.tingeso_backend.entities.LoanEntity;
 import com.example.tingeso_backend.entities.ToolEntity;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @AutoConfigureTestDatabase(replace = Replace.ANY)
 public class LoanRepositoryTest {
 
@@ -32,7 +41,7 @@ public class LoanRepositoryTest {
         c.setEmail("test@example.com");
         c.setKeycloakId(keycloakId);
         c.setPhone("12345678");
-        c.setRut("11111111-1");
+        c.setRut("11111111-" + keycloakId); // el RUT normalizado es único
         c.setStateClient("Activo");
         c.setStatus("Activo");
         return em.persistAndFlush(c);
@@ -128,4 +137,207 @@ public class LoanRepositoryTest {
         assertEquals(1, result.size(), "Debe retornar un loan asociado al keycloak id");
         assertEquals(loan.getId(), result.get(0).getId());
     }
+
+    private LoanEntity createLoan(ClientEntity client, ToolEntity tool) {
+        LoanEntity loan = new LoanEntity();
+        loan.setClient(client);
+        loan.setTool(tool);
+        loan.setLoanDate(LocalDate.now());
+        loan.setDueDate(LocalDate.now().plusDays(3));
+        loan.setStatus("Activo");
+        return em.persistAndFlush(loan);
+    }
+
+    private FineEntity createFine(LoanEntity loan, String type, int amount, String status) {
+        FineEntity fine = new FineEntity();
+        fine.setLoan(loan);
+        fine.setFineType(type);
+        fine.setAmount(amount);
+        fine.setStatus(status);
+        fine.setCreationDate(LocalDate.now());
+        return em.persistAndFlush(fine);
+    }
+
+    private long countStatements(Runnable action) {
+        Statistics statistics = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        em.clear();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    public void findAllWithFineInfo_aggregatesSeveralFinesPerLoan() {
+        ClientEntity client = createClient("kc-fines");
+        ToolEntity tool = createTool("Esmeril");
+
+        LoanEntity withFines = createLoan(client, tool);
+        createFine(withFines, "Atraso", 300, "Pagada");
+        FineEntity damage = createFine(withFines, "Daño irreparable", 1000, "Pendiente");
+        LoanEntity withoutFines = createLoan(client, tool);
+        em.clear();
+
+        List<LoanWithFineInfoDTO> result = loanRepository.findAllWithFineInfo();
+
+        assertEquals(2, result.size());
+        LoanWithFineInfoDTO first = result.get(0);
+        assertEquals(withFines.getId(), first.getId());
+        assertEquals("Test User", first.getClientName());
+        assertEquals("Esmeril", first.getToolName());
+        assertEquals(damage.getId(), first.getFineId());
+        assertEquals(1300, first.getFineAmount());
+        assertEquals("Pendiente", first.getFineStatus());
+
+        LoanWithFineInfoDTO second = result.get(1);
+        assertEquals(withoutFines.getId(), second.getId());
+        assertNull(second.getFineId());
+        assertNull(second.getFineAmount());
+        assertNull(second.getFineStatus());
+    }
+
+    @Test
+    public void findAllWithFineInfo_statementCountDoesNotGrowWithLoans() {
+        ClientEntity client = createClient("kc-stats");
+        ToolEntity tool = createTool("Lijadora");
+        for (int i = 0; i < 3; i++) {
+            createFine(createLoan(client, tool), "Atraso", 100, "Pendiente");
+        }
+
+        long fewLoans = countStatements(() -> assertEquals(3, loanRepository.findAllWithFineInfo().size()));
+
+        for (int i = 0; i < 30; i++) {
+            LoanEntity loan = createLoan(client, tool);
+            createFine(loan, "Atraso", 100, "Pagada");
+            createFine(loan, "Daño reparable", 50, "Pendiente");
+        }
+
+        long manyLoans = countStatements(() -> assertEquals(33, loanRepository.findAllWithFineInfo().size()));
+
+        assertEquals(1, fewLoans, "La proyección debe resolverse en una sola sentencia");
+        assertEquals(fewLoans, manyLoans, "La cantidad de sentencias no debe crecer con los préstamos");
+    }
+
+    @Test
+    public void findWithFineInfoByClientId_filtersByClient() {
+        ClientEntity client = createClient("kc-owner");
+        ClientEntity other = createClient("kc-other");
+        ToolEntity tool = createTool("Taladro");
+        LoanEntity own = createLoan(client, tool);
+        createLoan(other, tool);
+
+        long statements = countStatements(() -> {
+            List<LoanWithFineInfoDTO> result = loanRepository.findWithFineInfoByClientId(client.getId());
+            assertEquals(1, result.size());
+            assertEquals(own.getId(), result.get(0).getId());
+        });
+        assertEquals(1, statements);
+    }
+
+    @Test
+    public void claimReturn_succeedsOnlyForTheFirstReturn() {
+        LoanEntity loan = createLoan(createClient("kc-return"), createTool("Compresor"));
+
+        assertEquals(1, loanRepository.claimReturn(loan.getId(), LocalDate.now()));
+        assertEquals(0, loanRepository.claimReturn(loan.getId(), LocalDate.now()));
+
+        em.clear();
+        LoanEntity returned = loanRepository.findById(loan.getId()).orElseThrow();
+        assertEquals("Devuelto", returned.getStatus());
+        assertEquals(LocalDate.now(), returned.getReturnDate());
+    }
+
+    @Test
+    public void findActiveLoanSummaries_ordersByDueDateAndFlagsOverdue() {
+        ClientEntity client = createClient("kc-summary");
+        LoanEntity upcoming = createLoan(client, createTool("Lijadora"));
+        LoanEntity late = createLoan(client, createTool("Esmeril"));
+        late.setDueDate(LocalDate.now().minusDays(1));
+        LoanEntity returned = createLoan(client, createTool("Pala"));
+        returned.setStatus("Devuelto");
+        em.flush();
+        em.clear();
+
+        long statements = countStatements(() -> {
+            List<ActiveLoanSummaryDTO> result = loanRepository.findActiveLoanSummaries(client.getId(), LocalDate.now());
+            assertEquals(List.of(late.getId(), upcoming.getId()), result.stream().map(ActiveLoanSummaryDTO::getLoanId).toList());
+            assertTrue(result.get(0).getOverdue());
+            assertFalse(result.get(1).getOverdue());
+            assertEquals("Esmeril", result.get(0).getToolName());
+        });
+        assertEquals(1, statements);
+    }
+
+    @Test
+    public void summarizeActiveLoansByClientIds_groupsActiveLoansPerClient() {
+        ClientEntity client = createClient("kc-stats");
+        ClientEntity idle = createClient("kc-stats-idle");
+        ToolEntity tool = createTool("Pulidora");
+        LoanEntity later = createLoan(client, tool);
+        later.setDueDate(LocalDate.of(2025, 6, 20));
+        LoanEntity sooner = createLoan(client, tool);
+        sooner.setDueDate(LocalDate.of(2025, 6, 12));
+        LoanEntity returned = createLoan(client, tool);
+        returned.setDueDate(LocalDate.of(2025, 6, 1));
+        returned.setStatus("Devuelto");
+        em.flush();
+
+        List<ClientLoanStatsDTO> stats = loanRepository.summarizeActiveLoansByClientIds(List.of(client.getId(), idle.getId()));
+
+        assertEquals(List.of(new ClientLoanStatsDTO(client.getId(), 2L, LocalDate.of(2025, 6, 12))), stats);
+    }
+
+    @Test
+    public void findOverdueLoansToAccrue_pagesByDueDateAndIdWithinTheSameDueDate() {
+        ClientEntity client = createClient("kc-keyset");
+        ToolEntity tool = createTool("Generador");
+        LocalDate today = LocalDate.of(2025, 6, 10);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            LoanEntity loan = createLoan(client, tool);
+            loan.setDueDate(i < 4 ? today.minusDays(2) : today.minusDays(1)); // cuatro comparten vencimiento
+            ids.add(loan.getId());
+        }
+        em.flush();
+
+        List<OverdueLoanDTO> first = loanRepository.findOverdueLoansToAccrue(today, LocalDate.EPOCH, 0L, PageRequest.of(0, 3));
+        OverdueLoanDTO last = first.get(2);
+        List<OverdueLoanDTO> second = loanRepository.findOverdueLoansToAccrue(today, last.getDueDate(), last.getId(), PageRequest.of(0, 3));
+
+        assertEquals(ids.subList(0, 3), first.stream().map(OverdueLoanDTO::getId).toList());
+        assertEquals(ids.subList(3, 5), second.stream().map(OverdueLoanDTO::getId).toList());
+    }
+
+    @Test
+    public void accrueLateFee_updatesOverdueActiveLoansOncePerDay() {
+        ClientEntity client = createClient("kc-overdue");
+        ToolEntity tool = createTool("Compresor");
+        LocalDate today = LocalDate.of(2025, 6, 10);
+        LocalDate dueDate = today.minusDays(3);
+
+        LoanEntity overdue = createLoan(client, tool);
+        overdue.setDueDate(dueDate);
+        LoanEntity returned = createLoan(client, tool);
+        returned.setDueDate(dueDate);
+        returned.setStatus("Devuelto");
+        LoanEntity notYetDue = createLoan(client, tool);
+        notYetDue.setDueDate(today);
+        em.flush();
+
+        List<OverdueLoanDTO> pending = loanRepository.findOverdueLoansToAccrue(today, LocalDate.EPOCH, 0L, PageRequest.of(0, 10));
+        assertEquals(List.of(overdue.getId()), pending.stream().map(OverdueLoanDTO::getId).toList());
+        assertEquals(1, loanRepository.accrueLateFee(List.of(overdue.getId(), returned.getId()), 300, today));
+
+        // Una segunda ejecución el mismo día no encuentra nada pendiente
+        assertTrue(loanRepository.findOverdueLoansToAccrue(today, LocalDate.EPOCH, 0L, PageRequest.of(0, 10)).isEmpty());
+        assertEquals(0, loanRepository.accrueLateFee(List.of(overdue.getId()), 300, today));
+
+        em.clear();
+        LoanEntity reloaded = loanRepository.findById(overdue.getId()).orElseThrow();
+        assertTrue(reloaded.getOverdue());
+        assertEquals(300, reloaded.getAccruedLateFee());
+        assertEquals(today, reloaded.getLateFeeAccruedOn());
+        assertNull(loanRepository.findById(returned.getId()).orElseThrow().getAccruedLateFee());
+        assertNull(loanRepository.findById(notYetDue.getId()).orElseThrow().getOverdue());
+    }
 }
@@ -0,0 +1,104 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.KardexEntity;
+import com.example.tingeso_backend.entities.OutboxEventEntity;
+import com.example.tingeso_backend.entities.ToolEntity;
+import com.example.tingeso_backend.services.KardexBalanceService;
+import com.example.tingeso_backend.services.KardexService;
+import com.example.tingeso_backend.services.OutboxService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({KardexService.class, KardexBalanceService.class, OutboxService.class, JacksonAutoConfiguration.class})
+class OutboxEventRepositoryTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private KardexService kardexService;
+
+    @Autowired
+    private KardexRepository kardexRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private ToolEntity persistTool(String name) {
+        ToolEntity tool = new ToolEntity();
+        tool.setName(name);
+        tool.setCategory("General");
+        tool.setReplacementValue(1);
+        tool.setAvailableStock(1);
+        tool.setStateInitial("Bueno");
+        return em.persistAndFlush(tool);
+    }
+
+    @Test
+    void dispatchPendingMovements_movesEventsToKardexOnceEvenIfRedelivered() {
+        ToolEntity tool = persistTool("Soldadora");
+        kardexService.createNewToolMovement(tool, "ADMIN");
+        kardexService.createRepairMovement(tool, "ADMIN");
+
+        // La transacción de negocio sólo escribe eventos
+        assertThat(kardexRepository.count()).isZero();
+        assertThat(outboxEventRepository.count()).isEqualTo(2);
+
+        assertThat(kardexService.dispatchPendingMovements(10)).isEqualTo(2);
+        assertThat(kardexService.dispatchPendingMovements(10)).isZero();
+
+        // Simula una entrega repetida: el despachador cayó antes de marcar los eventos
+        em.getEntityManager().createQuery("UPDATE OutboxEventEntity e SET e.processedAt = null").executeUpdate();
+        em.clear();
+        assertThat(kardexService.dispatchPendingMovements(10)).isEqualTo(2);
+
+        List<KardexEntity> movements = kardexRepository.findAll();
+        assertThat(movements).hasSize(2);
+        assertThat(movements).extracting(KardexEntity::getMovementType).containsExactlyInAnyOrder("Ingreso", "Reparación");
+        assertThat(movements).allMatch(m -> m.getEventId() != null && tool.getId().equals(m.getTool().getId()));
+    }
+
+    private OutboxEventEntity persistEvent(String eventId, String payload) {
+        OutboxEventEntity event = new OutboxEventEntity();
+        event.setEventId(eventId);
+        event.setEventType("KardexMovement");
+        event.setPayload(payload);
+        event.setCreatedAt(LocalDateTime.now());
+        return em.persistAndFlush(event);
+    }
+
+    @Test
+    void dispatchPendingMovements_marksBrokenEventsFailedAndDispatchesTheRest() {
+        ToolEntity tool = persistTool("Lijadora");
+        OutboxEventEntity unreadable = persistEvent("evt-unreadable", "no-es-json");
+        OutboxEventEntity withoutTool = persistEvent("evt-without-tool",
+                "{\"movementType\":\"Ingreso\",\"movementDate\":\"2025-06-01T10:00:00\",\"quantityAffected\":1}");
+        OutboxEventEntity unknownTool = persistEvent("evt-unknown-tool",
+                "{\"toolId\":987654,\"movementType\":\"Ingreso\",\"movementDate\":\"2025-06-01T10:00:00\",\"quantityAffected\":1}");
+        kardexService.createNewToolMovement(tool, "ADMIN");
+
+        assertThat(kardexService.dispatchPendingMovements(10)).isEqualTo(4);
+        em.clear();
+
+        assertThat(kardexRepository.findAll()).extracting(KardexEntity::getMovementType).containsExactly("Ingreso");
+        for (OutboxEventEntity broken : List.of(unreadable, withoutTool, unknownTool)) {
+            OutboxEventEntity reloaded = outboxEventRepository.findById(broken.getId()).orElseThrow();
+            assertThat(reloaded.getFailedAt()).isNotNull();
+            assertThat(reloaded.getProcessedAt()).isNull();
+            assertThat(reloaded.getAttempts()).isEqualTo(1);
+            assertThat(reloaded.getLastError()).isNotBlank();
+        }
+        // Los fallidos ya no bloquean los siguientes despachos
+        assertThat(kardexService.dispatchPendingMovements(10)).isZero();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.tingeso_backend.repositories;
+
+import com.example.tingeso_backend.entities.ClientEntity;
+import com.example.tingeso_backend.entities.FineEntity;
+import com.example.tingeso_backend.entities.LoanEntity;
+import com.example.tingeso_backend.entities.ToolEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Costo de "¿tiene multas pendientes?" para un cliente con historial largo.
+// Ejecutar con: mvn test -Dtest=PendingFineLookupBenchmarkTest -Dbenchmark=true
+@DataJpaTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PendingFineLookupBenchmarkTest {
+
+    private static final int HISTORICAL_FINES = 500;
+    private static final int ITERATIONS = 2_000;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private FineRepository fineRepository;
+
+    private Long persistClientWithHistory() {
+        ClientEntity client = new ClientEntity();
+        client.setKeycloakId("kc-benchmark");
+        client.setName("Benchmark");
+        client.setEmail("benchmark@example.com");
+        em.persist(client);
+
+        ToolEntity tool = new ToolEntity();
+        tool.setName("Benchmark");
+        tool.setCategory("General");
+        tool.setReplacementValue(1);
+        tool.setAvailableStock(1);
+        tool.setStateInitial("Bueno");
+        em.persist(tool);
+
+        for (int i = 0; i < HISTORICAL_FINES; i++) {
+            LoanEntity loan = new LoanEntity();
+            loan.setClient(client);
+            loan.setTool(tool);
+            em.persist(loan);
+
+            FineEntity fine = new FineEntity();
+            fine.setLoan(loan);
+            fine.setFineType("Atraso");
+            fine.setAmount(1000);
+            // la mayoría ya pagadas; las últimas siguen pendientes
+            fine.setStatus(i < HISTORICAL_FINES - 5 ? "Pagada" : "Pendiente");
+            fine.setCreationDate(LocalDate.of(2024, 1, 1).plusDays(i));
+            em.persist(fine);
+        }
+        em.flush();
+        em.clear();
+        return client.getId();
+    }
+
+    private double microsPerCall(BooleanSupplier lookup) {
+        for (int i = 0; i < 100; i++) {
+            lookup.getAsBoolean(); // calentamiento
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertTrue(lookup.getAsBoolean());
+            em.clear(); // cada llamada real corre en su propio contexto de persistencia
+        }
+        return (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+    }
+
+    @Test
+    void compareLoadingEntitiesWithExistsQuery() {
+        Long clientId = persistClientWithHistory();
+
+        // Camino anterior: carga las multas pendientes con préstamo, cliente y herramienta
+        double loading = microsPerCall(() -> !fineRepository.findPendingFinesByClientId(clientId).isEmpty());
+        double exists = microsPerCall(() -> fineRepository.existsByClientIdAndStatus(clientId, "Pendiente"));
+        double summary = microsPerCall(() -> fineRepository.summarizePendingFinesByClientId(clientId).isPresent());
+
+        System.out.printf("Multas pendientes (%d en historial): entidades %.1f us, exists %.1f us, resumen %.1f us%n",
+                HISTORICAL_FINES, loading, exists, summary);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.tingeso_backend.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Verifica sobre el esquema de Flyway que las consultas de los repositorios usan los índices esperados
+@DataJpaTest
+class SchemaIndexTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    private String plan(String sql) {
+        Object row = em.getEntityManager().createNativeQuery("EXPLAIN " + sql).getSingleResult();
+        return row.toString().toUpperCase();
+    }
+
+    @Test
+    void activeLoansOfClient_useClientStatusIndex() {
+        assertThat(plan("SELECT COUNT(*) FROM loans WHERE client_id = 1 AND status = 'Activo'"))
+                .contains("IDX_LOANS_CLIENT_ID_STATUS");
+    }
+
+    @Test
+    void overdueSweep_usesStatusDueDateIndex() {
+        assertThat(plan("SELECT DISTINCT due_date FROM loans WHERE status = 'Activo' AND due_date < DATE '2025-01-01'"))
+                .contains("IDX_LOANS_STATUS_DUE_DATE");
+    }
+
+    @Test
+    void finesOfLoan_useLoanIdIndex() {
+        assertThat(plan("SELECT * FROM fines WHERE loan_id = 1")).contains("IDX_FINES_LOAN_ID");
+    }
+
+    @Test
+    void pendingFines_useStatusIndex() {
+        assertThat(plan("SELECT * FROM fines WHERE status = 'Pendiente'")).contains("IDX_FINES_STATUS");
+    }
+
+    @Test
+    void pendingFinesOfClient_useClientStatusIndex() {
+        assertThat(plan("SELECT COUNT(*) FROM fines WHERE client_id = 1 AND status = 'Pendiente'"))
+                .contains("IDX_FINES_CLIENT_ID_STATUS");
+    }
+
+    @Test
+    void toolSearchByCategory_usesCategoryNameIndex() {
+        assertThat(plan("SELECT id, name FROM tools WHERE category = 'Manual' ORDER BY name, id"))
+                .contains("IDX_TOOLS_CATEGORY_NAME_ID");
+    }
+
+    @Test
+    void toolMovementsInRange_useToolDateIndex() {
+        assertThat(plan("SELECT * FROM kardex WHERE tool_id = 1 AND movement_date >= TIMESTAMP '2025-01-01 00:00:00'"))
+                .contains("IDX_KARDEX_TOOL_ID_MOVEMENT_DATE");
+    }
+
+    @Test
+    void clientByNormalizedRut_usesUniqueRutKeyIndex() {
+        assertThat(plan("SELECT id FROM clients WHERE rut_key = '123456785'")).contains("UK_CLIENTS_RUT_KEY");
+    }
+
+    @Test
+    void clientNamePrefixSearch_usesNameKeyIndex() {
+        assertThat(plan("SELECT id FROM clients WHERE name_key LIKE 'mar%' ORDER BY name_key, id"))
+                .contains("IDX_CLIENTS_NAME_KEY_ID");
+    }
+
+    @Test
+    void toolIdsByNormalizedName_useNameKeyIndex() {
+        assertThat(plan("SELECT id FROM tools WHERE name_key = 'taladro'")).contains("IDX_TOOLS_NAME_KEY");
+    }
+}
@@ -1,6 +1,9 @@
 // language: java
 package com.example.tingeso_backend.repositories;
 
+import com.example.tingeso_backend.dto.ToolFacetCountDTO;
+import com.example.tingeso_backend.dto.ToolSearchCriteria;
+import com.example.tingeso_backend.dto.ToolSummaryDTO;
 import com.example.tingeso_backend.entities.ToolEntity;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,9 +11,21 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,6 +40,9 @@ public class ToolRepositoryTest {
     @Autowired
     private ToolRepository toolRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private ToolEntity makeTool(String name) {
         ToolEntity t = new ToolEntity();
         t.setName(name);
@@ -73,4 +91,161 @@ public class ToolRepositoryTest {
         Optional<ToolEntity> afterDelete = toolRepository.findById(id);
         assertFalse(afterDelete.isPresent(), "La herramienta debe ser eliminada del repositorio");
     }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // cada hilo usa su propia transacción confirmada
+    public void transitionStatus_concurrentCheckouts_haveExactlyOneWinner() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long toolId = tx.execute(status -> toolRepository.save(makeTool("Rotomartillo")).getId());
+        int attempts = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger winners = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < attempts; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    Integer updated = tx.execute(status -> toolRepository.transitionStatus(toolId, "Disponible", "Prestada"));
+                    if (updated != null && updated == 1) {
+                        winners.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+            assertEquals(1, winners.get(), "Sólo una solicitud debe obtener la herramienta");
+            assertEquals("Prestada", toolRepository.findById(toolId).orElseThrow().getStatus());
+        } finally {
+            pool.shutdownNow();
+            tx.executeWithoutResult(status -> toolRepository.deleteById(toolId));
+        }
+    }
+
+    @Test
+    public void takeOneUnit_decrementsUntilStockIsExhausted() {
+        ToolEntity tool = makeTool("Andamio");
+        tool.setInventoryMode("Stock");
+        tool.setAvailableStock(2);
+        Long id = em.persistAndFlush(tool).getId();
+
+        assertEquals(1, toolRepository.takeOneUnit(id));
+        assertEquals(1, toolRepository.takeOneUnit(id));
+        assertEquals(0, toolRepository.takeOneUnit(id), "No debe retirar unidades con stock en cero");
+
+        em.clear();
+        assertEquals(0, toolRepository.findById(id).orElseThrow().getAvailableStock());
+
+        assertEquals(1, toolRepository.returnOneUnit(id));
+        em.clear();
+        assertEquals(1, toolRepository.findById(id).orElseThrow().getAvailableStock());
+    }
+
+    @Test
+    public void writeOffStock_zeroesCounterOnceAndBlocksLaterReturns() {
+        ToolEntity tool = makeTool("Escalera");
+        tool.setInventoryMode("Stock");
+        tool.setAvailableStock(3);
+        Long id = em.persistAndFlush(tool).getId();
+        em.clear();
+
+        assertEquals(3, toolRepository.findForUpdateById(id).orElseThrow().getAvailableStock());
+        assertEquals(1, toolRepository.writeOffStock(id));
+        assertEquals(0, toolRepository.writeOffStock(id), "Una segunda baja no debe aplicarse");
+        assertEquals(0, toolRepository.returnOneUnit(id), "Un ítem dado de baja no recibe unidades devueltas");
+
+        em.clear();
+        ToolEntity written = toolRepository.findById(id).orElseThrow();
+        assertEquals("Dada de baja", written.getStatus());
+        assertEquals(0, written.getAvailableStock());
+    }
+
+    @Test
+    public void searchSummaries_appliesFiltersAndExcludesWrittenOffByDefault() {
+        ToolEntity hammer = makeTool("Martillo");
+        hammer.setCategory("Manual");
+        hammer.setReplacementValue(5000);
+        ToolEntity sledge = makeTool("martillo_pesado");
+        sledge.setCategory("Manual");
+        sledge.setReplacementValue(20000);
+        ToolEntity written = makeTool("Martillo viejo");
+        written.setCategory("Manual");
+        written.setStatus("Dada de baja");
+        ToolEntity drill = makeTool("Taladro");
+        drill.setCategory("Eléctrica");
+        for (ToolEntity t : List.of(hammer, sledge, written, drill)) {
+            em.persist(t);
+        }
+        em.flush();
+
+        List<ToolSummaryDTO> manual = toolRepository.searchSummaries(
+                new ToolSearchCriteria("Manual", null, "MART", null, false), null, null, 10);
+        assertEquals(List.of("Martillo", "martillo_pesado"), manual.stream().map(ToolSummaryDTO::getName).toList());
+
+        List<ToolSummaryDTO> expensive = toolRepository.searchSummaries(
+                new ToolSearchCriteria(null, null, null, 10000, false), null, null, 10);
+        assertEquals(List.of(sledge.getId()), expensive.stream().map(ToolSummaryDTO::getId).toList());
+
+        List<ToolSummaryDTO> withWrittenOff = toolRepository.searchSummaries(
+                new ToolSearchCriteria("Manual", null, null, null, true), null, null, 10);
+        assertEquals(3, withWrittenOff.size());
+
+        // "_" en el prefijo es literal, no comodín de LIKE
+        List<ToolSummaryDTO> literal = toolRepository.searchSummaries(
+                new ToolSearchCriteria(null, null, "martillo_", null, false), null, null, 10);
+        assertEquals(List.of("martillo_pesado"), literal.stream().map(ToolSummaryDTO::getName).toList());
+    }
+
+    @Test
+    public void searchSummaries_keepsToolsWithoutStatusWhenExcludingWrittenOff() {
+        ToolEntity unknown = makeTool("Serrucho");
+        unknown.setStatus(null);
+        em.persist(unknown);
+        ToolEntity written = makeTool("Serrucho viejo");
+        written.setStatus("Dada de baja");
+        em.persist(written);
+        em.flush();
+
+        List<ToolSummaryDTO> rows = toolRepository.searchSummaries(
+                new ToolSearchCriteria(null, null, "serr", null, false), null, null, 10);
+
+        assertEquals(List.of(unknown.getId()), rows.stream().map(ToolSummaryDTO::getId).toList());
+    }
+
+    @Test
+    public void searchSummaries_walksPagesByNameAndId() {
+        ToolEntity first = em.persist(makeTool("Alicate"));
+        ToolEntity second = em.persist(makeTool("Alicate"));
+        ToolEntity third = em.persist(makeTool("Brocha"));
+        em.flush();
+        ToolSearchCriteria criteria = new ToolSearchCriteria(null, "Disponible", null, null, false);
+
+        List<ToolSummaryDTO> page = toolRepository.searchSummaries(criteria, null, null, 2);
+        assertEquals(List.of(first.getId(), second.getId()), page.stream().map(ToolSummaryDTO::getId).toList());
+
+        List<ToolSummaryDTO> next = toolRepository.searchSummaries(criteria, "Alicate", second.getId(), 2);
+        assertEquals(List.of(third.getId()), next.stream().map(ToolSummaryDTO::getId).toList());
+    }
+
+    @Test
+    public void countByNameAndStatus_groupsNamesIgnoringCase() {
+        em.persist(makeTool("Taladro"));
+        ToolEntity lent = makeTool("TALADRO");
+        lent.setStatus("Prestada");
+        em.persist(lent);
+        em.persist(makeTool("taladro"));
+        em.flush();
+
+        List<ToolFacetCountDTO> rows = toolRepository.countByNameAndStatus();
+
+        assertTrue(rows.contains(new ToolFacetCountDTO("taladro", "Disponible", 2L)));
+        assertTrue(rows.contains(new ToolFacetCountDTO("taladro", "Prestada", 1L)));
+        assertEquals(List.of(new ToolFacetCountDTO("Categoria", "Disponible", 2L), new ToolFacetCountDTO("Categoria", "Prestada", 1L)),
+                toolRepository.countByCategoryAndStatus().stream()
+                        .sorted(Comparator.comparing(ToolFacetCountDTO::getStatus)).toList());
+    }
 }
@@ -0,0 +1,134 @@
+package com.example.tingeso_backend.scheduling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterJobRunnerTest {
+
+    private LocalJobLock jobLock;
+    private SimpleMeterRegistry meterRegistry;
+
+    private ClusterJobRunner newRunner() {
+        ClusterJobRunner runner = new ClusterJobRunner();
+        ReflectionTestUtils.setField(runner, "jobLock", jobLock);
+        ReflectionTestUtils.setField(runner, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(runner, "renewIntervalMs", 20L);
+        ReflectionTestUtils.setField(runner, "triggerMaxDelayMs", 3_600_000L);
+        return runner;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        // Varios "nodos" comparten el mismo candado, como las réplicas comparten la base de datos
+        jobLock = new LocalJobLock();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void runIfLeader_onlyOneNodeRunsOverlappingExecutions() throws Exception {
+        ClusterJobRunner node1 = newRunner();
+        ClusterJobRunner node2 = newRunner();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> leader = pool.submit(() -> node1.runIfLeader("job", lease -> {
+                executions.incrementAndGet();
+                running.countDown();
+                try {
+                    finish.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            assertFalse(node2.runIfLeader("job", lease -> executions.incrementAndGet()));
+            finish.countDown();
+            assertTrue(leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, executions.get());
+        // Al terminar el líder, la siguiente ejecución puede tomarla otro nodo
+        assertTrue(node2.runIfLeader("job", lease -> executions.incrementAndGet()));
+        assertEquals(2, executions.get());
+
+        assertEquals(1, meterRegistry.get("jobs.lock.wait").tag("acquired", "false").timer().count());
+        assertEquals(2, meterRegistry.get("jobs.duration").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    public void runIfLeader_invalidatesLeaseWhenRenewalFails() {
+        ClusterJobRunner runner = newRunner();
+
+        boolean ran = runner.runIfLeader("job", lease -> {
+            assertTrue(lease.isValid());
+            jobLock.release("job"); // simula la caída de la sesión que retenía el candado
+            long deadline = System.currentTimeMillis() + 5000;
+            while (lease.isValid() && System.currentTimeMillis() < deadline) {
+                Thread.onSpinWait();
+            }
+            assertFalse(lease.isValid());
+        });
+
+        assertTrue(ran);
+        assertEquals(1, meterRegistry.get("jobs.duration").tag("outcome", "lease_lost").timer().count());
+    }
+
+    @Test
+    public void runIfLeader_releasesLockWhenJobFails() {
+        ClusterJobRunner runner = newRunner();
+
+        assertThrows(IllegalStateException.class, () -> runner.runIfLeader("job", lease -> {
+            throw new IllegalStateException("falla");
+        }));
+
+        assertTrue(jobLock.tryAcquire("job"), "El candado debe liberarse aunque el trabajo falle");
+        assertEquals(1, meterRegistry.get("jobs.duration").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    public void runOncePerTrigger_lateNodeSkipsTriggerAlreadyRunByAnother() {
+        ClusterJobRunner node1 = newRunner();
+        ClusterJobRunner node2 = newRunner();
+        AtomicInteger executions = new AtomicInteger();
+        String everyHour = "0 0 * * * *";
+
+        assertTrue(node1.runOncePerTrigger("job", everyHour, lease -> executions.incrementAndGet()));
+        // node2 obtiene el candado ya liberado, pero el disparo quedó registrado
+        assertFalse(node2.runOncePerTrigger("job", everyHour, lease -> executions.incrementAndGet()));
+
+        assertEquals(1, executions.get());
+        assertTrue(jobLock.tryAcquire("job"), "El candado se libera aunque el disparo se omita");
+    }
+
+    @Test
+    public void lastFireTime_returnsLatestTriggerWithinMaxDelay() {
+        CronExpression daily = CronExpression.parse("0 5 0 * * *");
+        LocalDateTime fired = LocalDateTime.of(2025, 6, 10, 0, 5);
+
+        assertEquals(fired, ClusterJobRunner.lastFireTime(daily, fired, Duration.ofHours(1)));
+        assertEquals(fired, ClusterJobRunner.lastFireTime(daily, fired.plusSeconds(7), Duration.ofHours(1)));
+        // Fuera de la ventana se toma el instante actual como disparo
+        LocalDateTime late = fired.plusHours(3);
+        assertEquals(late, ClusterJobRunner.lastFireTime(daily, late, Duration.ofHours(1)));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.ClientLoanStatsDTO;
+import com.example.tingeso_backend.dto.PendingFineSummaryDTO;
+import com.example.tingeso_backend.entities.ClientEligibilityEntity;
+import com.example.tingeso_backend.repositories.ClientEligibilityRepository;
+import com.example.tingeso_backend.repositories.ClientRepository;
+import com.example.tingeso_backend.repositories.FineRepository;
+import com.example.tingeso_backend.repositories.LoanRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ClientEligibilityServiceTest {
+
+    @Mock
+    private ClientEligibilityRepository eligibilityRepository;
+    @Mock
+    private LoanRepository loanRepository;
+    @Mock
+    private FineRepository fineRepository;
+    @Mock
+    private ClientRepository clientRepository;
+    @Mock
+    private ClientSummaryService summaryService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ClientEligibilityService eligibilityService;
+
+    @Test
+    public void getEligibility_returnsStoredRecordWithoutTouchingSourceTables() {
+        ClientEligibilityEntity stored = new ClientEligibilityEntity(1L, 2, 0, LocalDate.now().plusDays(3), false);
+        when(eligibilityRepository.findById(1L)).thenReturn(Optional.of(stored));
+
+        assertSame(stored, eligibilityService.getEligibility(1L));
+        verifyNoInteractions(loanRepository, fineRepository);
+    }
+
+    @Test
+    public void onLoanCreated_missingRecord_rebuildsFromSource() {
+        LocalDate due = LocalDate.now().plusDays(5);
+        when(eligibilityRepository.registerLoan(2L, due)).thenReturn(0);
+        when(loanRepository.countByClientIdAndStatus(2L, "Activo")).thenReturn(1);
+        when(fineRepository.countPendingFinesByClientId(2L)).thenReturn(0L);
+        when(loanRepository.findEarliestActiveDueDate(2L)).thenReturn(due);
+        when(eligibilityRepository.insertIfAbsent(any(ClientEligibilityEntity.class))).thenReturn(1);
+
+        eligibilityService.onLoanCreated(2L, due);
+
+        verify(eligibilityRepository).insertIfAbsent(new ClientEligibilityEntity(2L, 1, 0, due, false));
+        verify(eligibilityRepository, times(1)).registerLoan(2L, due);
+    }
+
+    @Test
+    public void onLoanCreated_recordCreatedConcurrently_appliesIncrementalUpdateAfterLosingInsert() {
+        LocalDate due = LocalDate.now().plusDays(5);
+        when(eligibilityRepository.registerLoan(6L, due)).thenReturn(0).thenReturn(1);
+        when(loanRepository.countByClientIdAndStatus(6L, "Activo")).thenReturn(1);
+        when(fineRepository.countPendingFinesByClientId(6L)).thenReturn(0L);
+        when(loanRepository.findEarliestActiveDueDate(6L)).thenReturn(due);
+        when(eligibilityRepository.insertIfAbsent(any(ClientEligibilityEntity.class))).thenReturn(0);
+
+        eligibilityService.onLoanCreated(6L, due);
+
+        verify(eligibilityRepository, times(2)).registerLoan(6L, due);
+        verify(eligibilityRepository, never()).save(any(ClientEligibilityEntity.class));
+    }
+
+    @Test
+    public void onFinePaid_existingRecord_appliesIncrementalUpdateOnly() {
+        when(eligibilityRepository.registerFinePayment(3L)).thenReturn(1);
+
+        eligibilityService.onFinePaid(3L);
+
+        verify(eligibilityRepository, never()).save(any(ClientEligibilityEntity.class));
+        verifyNoInteractions(loanRepository, fineRepository);
+        verify(summaryService).invalidate(3L);
+    }
+
+    @Test
+    public void restrictionReason_followsLoanValidationOrder() {
+        LocalDate today = LocalDate.now();
+
+        assertEquals("El cliente está restringido y no puede solicitar préstamos.",
+                ClientEligibilityService.restrictionReason("Restringido", today.minusDays(1), 1, 5, today));
+        assertEquals("El cliente tiene préstamos vencidos pendientes de devolución.",
+                ClientEligibilityService.restrictionReason("Activo", today.minusDays(1), 1, 5, today));
+        assertEquals("El cliente ha alcanzado el límite máximo de 5 préstamos activos.",
+                ClientEligibilityService.restrictionReason("Activo", today, 0, 5, today));
+        assertNull(ClientEligibilityService.restrictionReason("Activo", today, 0, 4, today));
+    }
+
+    @Test
+    public void reconcile_reportsAndFixesDriftedRecordsChunkByChunk() {
+        ReflectionTestUtils.setField(eligibilityService, "reconcileChunkSize", 2);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        LocalDate due = LocalDate.now().plusDays(2);
+        when(clientRepository.findIdsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(4L, 5L));
+        when(clientRepository.findIdsAfter(eq(5L), any(Pageable.class))).thenReturn(List.of(6L));
+        // cliente 4 coincide con las tablas de origen; cliente 5 tiene una multa pendiente que el registro no refleja
+        when(loanRepository.summarizeActiveLoansByClientIds(List.of(4L, 5L)))
+                .thenReturn(List.of(new ClientLoanStatsDTO(4L, 1L, due)));
+        when(fineRepository.summarizePendingFinesByClientIds(List.of(4L, 5L)))
+                .thenReturn(List.of(new PendingFineSummaryDTO(5L, 1L, 3000L)));
+        when(eligibilityRepository.findAllById(List.of(4L, 5L))).thenReturn(List.of(
+                new ClientEligibilityEntity(4L, 1, 0, due, false),
+                new ClientEligibilityEntity(5L, 0, 0, null, false)));
+        // cliente 6 aún no tiene registro
+        when(loanRepository.summarizeActiveLoansByClientIds(List.of(6L))).thenReturn(List.of());
+        when(fineRepository.summarizePendingFinesByClientIds(List.of(6L))).thenReturn(List.of());
+        when(eligibilityRepository.findAllById(List.of(6L))).thenReturn(List.of());
+
+        List<Long> drifted = eligibilityService.reconcile();
+
+        assertEquals(List.of(5L), drifted);
+        verify(eligibilityRepository).saveAll(List.of(new ClientEligibilityEntity(5L, 0, 1, null, true)));
+        verify(eligibilityRepository).insertIfAbsent(new ClientEligibilityEntity(6L, 0, 0, null, false));
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(loanRepository, never()).countByClientIdAndStatus(anyLong(), anyString());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
+import com.example.tingeso_backend.repositories.ClientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClientIdentityCacheTest {
+
+    @Mock
+    private ClientRepository clientRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ClientIdentityCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = newCache(100, 60_000L);
+    }
+
+    private ClientIdentityCache newCache(int maxSize, long ttlMs) {
+        ClientIdentityCache created = new ClientIdentityCache();
+        ReflectionTestUtils.setField(created, "clientRepository", clientRepository);
+        ReflectionTestUtils.setField(created, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(created, "maxSize", maxSize);
+        ReflectionTestUtils.setField(created, "ttlMs", ttlMs);
+        ReflectionTestUtils.setField(created, "negativeTtlMs", ttlMs);
+        created.registerMetrics();
+        return created;
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("clients.identity.cache").tag("result", result).counter().count();
+    }
+
+    @Test
+    void resolve_secondCallIsServedFromCacheAndCounted() {
+        when(clientRepository.findIdentityByKeycloakId("kc-1")).thenReturn(Optional.of(new ClientIdentityDTO(1L, "Activo")));
+
+        assertEquals(1L, cache.resolve("kc-1").orElseThrow().getClientId());
+        assertEquals(1L, cache.resolve("kc-1").orElseThrow().getClientId());
+
+        verify(clientRepository, times(1)).findIdentityByKeycloakId("kc-1");
+        assertEquals(1, count("hit"));
+        assertEquals(1, count("miss"));
+        assertEquals(0.5, meterRegistry.get("clients.identity.cache.hit.ratio").gauge().value());
+        assertEquals(1, meterRegistry.get("clients.identity.cache.size").gauge().value());
+    }
+
+    @Test
+    void resolve_userWithoutClient_isRememberedToo() {
+        when(clientRepository.findIdentityByKeycloakId("kc-admin")).thenReturn(Optional.empty());
+
+        assertTrue(cache.resolve("kc-admin").isEmpty());
+        assertTrue(cache.resolve("kc-admin").isEmpty());
+
+        verify(clientRepository, times(1)).findIdentityByKeycloakId("kc-admin");
+    }
+
+    @Test
+    void resolve_expiredEntry_isReloaded() {
+        cache = newCache(100, 0L);
+        when(clientRepository.findIdentityByKeycloakId("kc-1")).thenReturn(Optional.of(new ClientIdentityDTO(1L, "Activo")));
+
+        cache.resolve("kc-1");
+        cache.resolve("kc-1");
+
+        verify(clientRepository, times(2)).findIdentityByKeycloakId("kc-1");
+    }
+
+    @Test
+    void invalidateClient_dropsEntryOfThatClient() {
+        when(clientRepository.findIdentityByKeycloakId("kc-1"))
+                .thenReturn(Optional.of(new ClientIdentityDTO(1L, "Activo")))
+                .thenReturn(Optional.of(new ClientIdentityDTO(1L, "Restringido")));
+
+        cache.resolve("kc-1");
+        cache.invalidateClient(1L);
+
+        assertEquals("Restringido", cache.resolve("kc-1").orElseThrow().getStatus());
+        verify(clientRepository, times(2)).findIdentityByKeycloakId("kc-1");
+    }
+
+    @Test
+    void invalidateClient_insideTransaction_dropsEntryLoadedBeforeCommitToo() {
+        when(clientRepository.findIdentityByKeycloakId("kc-1"))
+                .thenReturn(Optional.of(new ClientIdentityDTO(1L, "Activo")));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.resolve("kc-1");
+            cache.invalidateClient(1L);
+            // Un request concurrente lee el estado anterior antes del commit y lo vuelve a guardar
+            cache.resolve("kc-1");
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        cache.resolve("kc-1");
+        verify(clientRepository, times(3)).findIdentityByKeycloakId("kc-1");
+    }
+
+    @Test
+    void put_newEntryBeyondMaxSize_evictsLeastRecentlyUsed() {
+        cache = newCache(2, 60_000L);
+        cache.put("kc-1", new ClientIdentityDTO(1L, "Activo"));
+        cache.put("kc-2", new ClientIdentityDTO(2L, "Activo"));
+        cache.resolve("kc-1"); // kc-2 queda como el menos usado
+        cache.put("kc-3", new ClientIdentityDTO(3L, "Activo"));
+
+        assertEquals(2, cache.size());
+        assertEquals(1L, cache.resolve("kc-1").orElseThrow().getClientId());
+        verifyNoInteractions(clientRepository);
+
+        when(clientRepository.findIdentityByKeycloakId("kc-2")).thenReturn(Optional.empty());
+        assertTrue(cache.resolve("kc-2").isEmpty());
+        verify(clientRepository).findIdentityByKeycloakId("kc-2");
+    }
+}
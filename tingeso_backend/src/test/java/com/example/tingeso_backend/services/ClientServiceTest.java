@@ -1,6 +1,9 @@
 // java
 package com.example.tingeso_backend.services;
 
+import com.example.tingeso_backend.dto.ClientIdentityDTO;
+import com.example.tingeso_backend.dto.ClientSummaryDTO;
+import com.example.tingeso_backend.dto.CursorPageDTO;
 import com.example.tingeso_backend.entities.ClientEntity;
 import com.example.tingeso_backend.repositories.ClientRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.server.ResponseStatusException;
@@ -17,6 +21,7 @@ import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class ClientServiceTest {
@@ -24,6 +29,12 @@ class ClientServiceTest {
     @Mock
     private ClientRepository clientRepository;
 
+    @Mock
+    private ClientIdentityCache identityCache;
+
+    @Mock
+    private ClientSummaryService summaryService;
+
     @InjectMocks
     private ClientService clientService;
 
@@ -88,20 +99,66 @@ class ClientServiceTest {
     }
 
     @Test
-    void getClientByRut_returnsClient() {
+    void getClientByRut_normalizesDotsAndDash() {
         ClientEntity client = new ClientEntity();
         client.setId(4L);
-        client.setRut("rut-123");
+        client.setRut("12345678-k");
         client.setName("ClienteRut");
 
-        when(clientRepository.findByRut("rut-123")).thenReturn(client);
+        when(clientRepository.findByRutKey("12345678K")).thenReturn(Optional.of(client));
 
-        ClientEntity result = clientService.getClientByRut("rut-123");
+        ClientEntity result = clientService.getClientByRut("12.345.678-K");
 
         assertNotNull(result);
-        assertEquals("rut-123", result.getRut());
+        assertEquals("12345678-k", result.getRut());
         assertEquals("ClienteRut", result.getName());
-        verify(clientRepository).findByRut("rut-123");
+        verify(clientRepository).findByRutKey("12345678K");
+    }
+
+    @Test
+    void saveEmployee_rutOfAnotherClient_conflicts() {
+        ClientEntity other = new ClientEntity();
+        other.setId(1L);
+        other.setRut("11.111.111-1");
+        ClientEntity toSave = new ClientEntity();
+        toSave.setRut("111111111");
+        when(clientRepository.findByRutKey("111111111")).thenReturn(Optional.of(other));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> clientService.saveEmployee(toSave));
+        assertEquals(409, ex.getStatusCode().value());
+        verify(clientRepository, never()).save(any());
+    }
+
+    @Test
+    void searchClients_fillsPageAcrossGroupsAndResumesFromCursor() {
+        ClientSummaryDTO byRut = new ClientSummaryDTO(1L, "Zoe", "1-9", "zoe@x.com", null, "Activo", "rut");
+        // "19" es a la vez un RUT completo y prefijo de nombre y correo
+        ClientSummaryDTO byName = new ClientSummaryDTO(2L, "19 Comercial", null, "c@x.com", null, "Activo", "name");
+        ClientSummaryDTO byEmail = new ClientSummaryDTO(3L, "Ana", null, "19ana@x.com", null, "Activo", "email");
+        when(clientRepository.findSummaryByRutKey("19")).thenReturn(Optional.of(byRut));
+        when(clientRepository.searchByNamePrefix(eq("19%"), eq("19"), eq(""), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(byName));
+        when(clientRepository.searchByEmailPrefix(eq("19%"), eq("19"), eq(""), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(byEmail));
+
+        CursorPageDTO<ClientSummaryDTO> first = clientService.searchClients("19", null, 2);
+
+        assertEquals(List.of(byRut, byName), first.getItems());
+        assertNotNull(first.getNextCursor());
+
+        // El cursor apunta al grupo de nombres: no repite la búsqueda por RUT
+        CursorPageDTO<ClientSummaryDTO> second = clientService.searchClients("19", first.getNextCursor(), 2);
+
+        assertEquals(List.of(byEmail), second.getItems());
+        assertNull(second.getNextCursor());
+        verify(clientRepository, times(1)).findSummaryByRutKey("19");
+        verify(clientRepository).searchByNamePrefix(eq("19%"), eq("19"), eq("19 comercial"), eq(2L), any(Pageable.class));
+    }
+
+    @Test
+    void searchClients_blankQuery_isBadRequest() {
+        assertThrows(ResponseStatusException.class, () -> clientService.searchClients("  ", null, null));
+        verifyNoInteractions(clientRepository);
     }
 
     @Test
@@ -134,6 +191,7 @@ class ClientServiceTest {
         assertEquals("Inactivo", updated.getStatus());
         verify(clientRepository).findById(id);
         verify(clientRepository).save(any(ClientEntity.class));
+        verify(identityCache).invalidateClient(id);
     }
 
     @Test
@@ -168,62 +226,79 @@ class ClientServiceTest {
     }
 
     @Test
-    void findOrCreateClient_exists_returnsExisting() {
-        String keycloakId = "kc-1";
+    void findOrCreateClient_firstLogin_insertsFromTokenClaimsAndCachesIdentity() {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .subject("kc-new")
+                .claim("name", "Nuevo")
+                .claim("email", "nuevo@x.com")
+                .claim("RUT", "11-1")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+        JwtAuthenticationToken principal = new JwtAuthenticationToken(jwt);
+        when(clientRepository.insertIfAbsent(any(ClientEntity.class))).thenAnswer(inv -> {
+            ClientEntity inserted = inv.getArgument(0);
+            inserted.setId(9L);
+            return inserted;
+        });
+
+        ClientEntity result = clientService.findOrCreateClient(principal);
+
+        assertEquals(9L, result.getId());
+        assertEquals("kc-new", result.getKeycloakId());
+        assertEquals("Nuevo", result.getName());
+        assertEquals("11-1", result.getRut());
+        assertEquals("Activo", result.getStatus());
+        verify(identityCache).put("kc-new", new ClientIdentityDTO(9L, "Activo"));
+        verify(clientRepository, never()).save(any());
+    }
+
+    @Test
+    void findOrCreateClient_cachedIdentity_readsByPrimaryKey() {
         ClientEntity existing = new ClientEntity();
         existing.setId(7L);
-        existing.setKeycloakId(keycloakId);
         existing.setName("Exist");
 
         JwtAuthenticationToken principal = mock(JwtAuthenticationToken.class);
-        when(principal.getName()).thenReturn(keycloakId);
+        when(principal.getName()).thenReturn("kc-1");
+        when(identityCache.resolve("kc-1")).thenReturn(Optional.of(new ClientIdentityDTO(7L, "Activo")));
+        when(clientRepository.findById(7L)).thenReturn(Optional.of(existing));
 
-        when(clientRepository.findByKeycloakId(keycloakId)).thenReturn(Optional.of(existing));
-
-        ClientEntity result = clientService.findOrCreateClient(principal);
-
-        assertEquals(7L, result.getId());
-        assertEquals("Exist", result.getName());
-        verify(clientRepository).findByKeycloakId(keycloakId);
-        verify(clientRepository, never()).save(any());
+        assertSame(existing, clientService.findOrCreateClient(principal));
+        verify(clientRepository, never()).findByKeycloakId(any());
     }
 
-
     @Test
     void getCurrentClient_success() {
-        String keycloakId = "kc-me";
         ClientEntity existing = new ClientEntity();
         existing.setId(30L);
-        existing.setKeycloakId(keycloakId);
+        existing.setKeycloakId("kc-me");
         existing.setName("Me");
 
-        JwtAuthenticationToken principal = mock(JwtAuthenticationToken.class);
-        when(principal.getName()).thenReturn(keycloakId);
-        when(clientRepository.findByKeycloakId(keycloakId)).thenReturn(Optional.of(existing));
+        when(clientRepository.findById(30L)).thenReturn(Optional.of(existing));
 
-        ClientEntity result = clientService.getCurrentClient(principal);
+        ClientEntity result = clientService.getCurrentClient(new ClientIdentityDTO(30L, "Activo"));
 
         assertEquals(30L, result.getId());
         assertEquals("Me", result.getName());
-        verify(clientRepository).findByKeycloakId(keycloakId);
+        verify(clientRepository).findById(30L);
     }
 
     @Test
     void getCurrentClient_notFound_throws() {
-        JwtAuthenticationToken principal = mock(JwtAuthenticationToken.class);
-        when(principal.getName()).thenReturn("kc-missing");
-        when(clientRepository.findByKeycloakId("kc-missing")).thenReturn(Optional.empty());
+        when(clientRepository.findById(31L)).thenReturn(Optional.empty());
 
-        assertThrows(ResponseStatusException.class, () -> clientService.getCurrentClient(principal));
-        verify(clientRepository).findByKeycloakId("kc-missing");
+        assertThrows(ResponseStatusException.class,
+                () -> clientService.getCurrentClient(new ClientIdentityDTO(31L, "Activo")));
+        verify(clientRepository).findById(31L);
     }
 
     @Test
     void updateCurrentClient_success() {
-        String keycloakId = "kc-update";
         ClientEntity existing = new ClientEntity();
         existing.setId(20L);
-        existing.setKeycloakId(keycloakId);
+        existing.setKeycloakId("kc-update");
         existing.setName("Before");
         existing.setRut("rut-before");
         existing.setPhone("000");
@@ -235,18 +310,17 @@ class ClientServiceTest {
         details.setPhone("111");
         details.setEmail("after@x.com");
 
-        JwtAuthenticationToken principal = mock(JwtAuthenticationToken.class);
-        when(principal.getName()).thenReturn(keycloakId);
-        when(clientRepository.findByKeycloakId(keycloakId)).thenReturn(Optional.of(existing));
+        when(clientRepository.findById(20L)).thenReturn(Optional.of(existing));
         when(clientRepository.save(any(ClientEntity.class))).thenAnswer(inv -> inv.getArgument(0));
 
-        ClientEntity updated = clientService.updateCurrentClient(principal, details);
+        ClientEntity updated = clientService.updateCurrentClient(new ClientIdentityDTO(20L, "Activo"), details);
 
         assertEquals("After", updated.getName());
         assertEquals("rut-after", updated.getRut());
         assertEquals("111", updated.getPhone());
         assertEquals("after@x.com", updated.getEmail());
-        verify(clientRepository).findByKeycloakId(keycloakId);
+        verify(clientRepository).findById(20L);
         verify(clientRepository).save(any(ClientEntity.class));
+        verify(identityCache).invalidateClient(20L);
     }
 }
@@ -0,0 +1,113 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.ActiveLoanSummaryDTO;
+import com.example.tingeso_backend.dto.ClientAccountSummaryDTO;
+import com.example.tingeso_backend.dto.PendingFineSummaryDTO;
+import com.example.tingeso_backend.entities.ClientEntity;
+import com.example.tingeso_backend.repositories.ClientRepository;
+import com.example.tingeso_backend.repositories.FineRepository;
+import com.example.tingeso_backend.repositories.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClientSummaryServiceTest {
+
+    @Mock
+    private ClientRepository clientRepository;
+    @Mock
+    private LoanRepository loanRepository;
+    @Mock
+    private FineRepository fineRepository;
+
+    @InjectMocks
+    private ClientSummaryService summaryService;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(summaryService, "maxSize", 100);
+        ReflectionTestUtils.setField(summaryService, "ttlMs", 60_000L);
+    }
+
+    private void stubClient(Long id, String status) {
+        ClientEntity client = new ClientEntity();
+        client.setId(id);
+        client.setName("Cliente " + id);
+        client.setStatus(status);
+        when(clientRepository.findById(id)).thenReturn(Optional.of(client));
+    }
+
+    @Test
+    void getSummary_overdueLoan_blocksBorrowingAndCountsFines() {
+        stubClient(1L, "Activo");
+        when(loanRepository.findActiveLoanSummaries(1L, today)).thenReturn(List.of(
+                new ActiveLoanSummaryDTO(10L, 3L, "Taladro", today.minusDays(9), today.minusDays(2), true, 6000),
+                new ActiveLoanSummaryDTO(11L, 4L, "Sierra", today.minusDays(1), today.plusDays(4), false, null)));
+        when(fineRepository.summarizePendingFinesByClientId(1L)).thenReturn(Optional.of(new PendingFineSummaryDTO(1L, 1L, 5000L)));
+
+        ClientAccountSummaryDTO summary = summaryService.getSummary(1L);
+
+        assertEquals(2, summary.getActiveLoanCount());
+        assertEquals(1, summary.getOverdueLoanCount());
+        assertEquals(today.minusDays(2), summary.getEarliestDueDate());
+        assertEquals(1L, summary.getPendingFineCount());
+        assertEquals(5000L, summary.getPendingFineTotal());
+        assertEquals("El cliente tiene préstamos vencidos pendientes de devolución.", summary.getRestrictionReason());
+        assertFalse(summary.isEligibleToBorrow());
+    }
+
+    @Test
+    void getSummary_noLoansNorFines_isEligible() {
+        stubClient(2L, "Activo");
+        when(loanRepository.findActiveLoanSummaries(2L, today)).thenReturn(List.of());
+        when(fineRepository.summarizePendingFinesByClientId(2L)).thenReturn(Optional.empty());
+
+        ClientAccountSummaryDTO summary = summaryService.getSummary(2L);
+
+        assertNull(summary.getEarliestDueDate());
+        assertEquals(0L, summary.getPendingFineTotal());
+        assertNull(summary.getRestrictionReason());
+        assertTrue(summary.isEligibleToBorrow());
+    }
+
+    @Test
+    void getSummary_isCachedUntilInvalidated() {
+        stubClient(3L, "Activo");
+        when(loanRepository.findActiveLoanSummaries(3L, today)).thenReturn(List.of());
+        when(fineRepository.summarizePendingFinesByClientId(3L))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new PendingFineSummaryDTO(3L, 1L, 2500L)));
+
+        summaryService.getSummary(3L);
+        assertTrue(summaryService.getSummary(3L).isEligibleToBorrow());
+        verify(clientRepository, times(1)).findById(3L);
+
+        summaryService.invalidate(3L);
+
+        assertEquals(2500L, summaryService.getSummary(3L).getPendingFineTotal());
+        verify(clientRepository, times(2)).findById(3L);
+    }
+
+    @Test
+    void getSummary_unknownClient_returnsNotFound() {
+        when(clientRepository.findById(9L)).thenReturn(Optional.empty());
+
+        assertThrows(ResponseStatusException.class, () -> summaryService.getSummary(9L));
+        assertEquals(0, summaryService.size());
+    }
+}
@@ -2,7 +2,10 @@
 package com.example.tingeso_backend.services;
 
 import com.example.tingeso_backend.entities.ConfigurationEntity;
+import com.example.tingeso_backend.entities.FeeVersionEntity;
+import com.example.tingeso_backend.notifications.ConfigChangeBus;
 import com.example.tingeso_backend.repositories.ConfigurationRepository;
+import com.example.tingeso_backend.repositories.FeeVersionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,7 +13,13 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -22,10 +31,17 @@ class ConfigurationServiceTest {
     @Mock
     private ConfigurationRepository configurationRepository;
 
+    @Mock
+    private FeeVersionRepository feeVersionRepository;
+
+    @Mock
+    private ConfigChangeBus configChangeBus;
+
     @InjectMocks
     private ConfigurationService configurationService;
 
     private final String KEY_RENTAL = "daily_rental_fee";
+    private final String KEY_LATE = "daily_late_fee";
 
     @BeforeEach
     void setup() {
@@ -39,33 +55,39 @@ class ConfigurationServiceTest {
         cfg.setConfigKey(KEY_RENTAL);
         cfg.setConfigValue("15");
 
-        when(configurationRepository.findByConfigKey(KEY_RENTAL)).thenReturn(Optional.of(cfg));
+        when(configurationRepository.findAll()).thenReturn(List.of(cfg));
 
         int fee = configurationService.getFee(KEY_RENTAL);
+        int again = configurationService.getFee(KEY_RENTAL);
 
         assertEquals(15, fee);
-        verify(configurationRepository).findByConfigKey(KEY_RENTAL);
+        assertEquals(15, again);
+        // La segunda lectura sale de la copia en memoria
+        verify(configurationRepository, times(1)).findAll();
+        verify(configurationRepository, never()).findByConfigKey(anyString());
     }
 
     @Test
     void getFee_throwsRuntimeException_whenConfigMissing() {
-        when(configurationRepository.findByConfigKey("missing_key")).thenReturn(Optional.empty());
+        when(configurationRepository.findAll()).thenReturn(List.of());
 
         RuntimeException ex = assertThrows(RuntimeException.class, () -> configurationService.getFee("missing_key"));
         assertTrue(ex.getMessage().contains("Configuración no encontrada"));
-        verify(configurationRepository).findByConfigKey("missing_key");
+        verify(configurationRepository).findAll();
     }
 
     @Test
-    void getFee_throwsNumberFormatException_whenValueNotNumeric() {
+    void getFee_throwsNamingKeyAndValue_whenValueNotNumeric() {
         ConfigurationEntity cfg = new ConfigurationEntity();
         cfg.setConfigKey(KEY_RENTAL);
         cfg.setConfigValue("not-a-number");
 
-        when(configurationRepository.findByConfigKey(KEY_RENTAL)).thenReturn(Optional.of(cfg));
+        when(configurationRepository.findAll()).thenReturn(List.of(cfg));
 
-        assertThrows(NumberFormatException.class, () -> configurationService.getFee(KEY_RENTAL));
-        verify(configurationRepository).findByConfigKey(KEY_RENTAL);
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> configurationService.getFee(KEY_RENTAL));
+        assertTrue(ex.getMessage().contains(KEY_RENTAL));
+        assertTrue(ex.getMessage().contains("not-a-number"));
+        verify(configurationRepository).findAll();
     }
 
     @Test
@@ -90,6 +112,7 @@ class ConfigurationServiceTest {
         assertEquals(KEY_RENTAL, saved.getConfigKey());
         assertEquals("20", saved.getConfigValue());
         verify(configurationRepository).findByConfigKey(KEY_RENTAL);
+        verify(configChangeBus).publish();
     }
 
     @Test
@@ -115,9 +138,110 @@ class ConfigurationServiceTest {
         assertEquals("33", saved.getConfigValue());
     }
 
+    @Test
+    void updateFee_insideTransaction_notifiesOnlyAfterCommit() {
+        when(configurationRepository.findByConfigKey(KEY_RENTAL)).thenReturn(Optional.empty());
+        when(configurationRepository.save(any(ConfigurationEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            configurationService.updateFee(KEY_RENTAL, 20);
+            verifyNoInteractions(configChangeBus);
+            verify(configurationRepository, never()).findAll();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(configurationRepository).findAll();
+        verify(configChangeBus).publish();
+    }
+
     @Test
     void updateFee_throwsIllegalArgumentException_whenNegativeValue() {
         assertThrows(IllegalArgumentException.class, () -> configurationService.updateFee(KEY_RENTAL, -1));
         verify(configurationRepository, never()).save(any());
+        verifyNoInteractions(configChangeBus);
+    }
+
+    @Test
+    void updateFee_replacesSnapshotSoReadsSeeNewValue() {
+        ConfigurationEntity oldValue = new ConfigurationEntity();
+        oldValue.setConfigKey(KEY_RENTAL);
+        oldValue.setConfigValue("10");
+        ConfigurationEntity newValue = new ConfigurationEntity();
+        newValue.setConfigKey(KEY_RENTAL);
+        newValue.setConfigValue("25");
+        when(configurationRepository.findAll()).thenReturn(List.of(oldValue), List.of(newValue));
+        when(configurationRepository.findByConfigKey(KEY_RENTAL)).thenReturn(Optional.of(oldValue));
+        when(configurationRepository.save(any(ConfigurationEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        assertEquals(10, configurationService.getFee(KEY_RENTAL));
+        configurationService.updateFee(KEY_RENTAL, 25);
+
+        assertEquals(25, configurationService.getFee(KEY_RENTAL));
+        assertEquals(Map.of(KEY_RENTAL, 25), configurationService.getAllFees());
+    }
+
+    @Test
+    void getFeeAt_picksVersionInForceAtTheGivenDate() {
+        LocalDateTime march = LocalDateTime.of(2025, 3, 1, 0, 0);
+        LocalDateTime june = LocalDateTime.of(2025, 6, 1, 0, 0);
+        when(feeVersionRepository.findAllByOrderByConfigKeyAscEffectiveFromAsc()).thenReturn(List.of(
+                new FeeVersionEntity(1L, KEY_LATE, 1000, march),
+                new FeeVersionEntity(2L, KEY_LATE, 1500, june)));
+
+        assertEquals(1000, configurationService.getFeeAt(KEY_LATE, LocalDateTime.of(2025, 1, 1, 0, 0)), "Antes de la primera versión rige la más antigua");
+        assertEquals(1000, configurationService.getFeeAt(KEY_LATE, march));
+        assertEquals(1000, configurationService.getFeeAt(KEY_LATE, june.minusSeconds(1)));
+        assertEquals(1500, configurationService.getFeeAt(KEY_LATE, june));
+        assertEquals(1500, configurationService.getFeeAt(KEY_LATE, LocalDateTime.of(2026, 1, 1, 0, 0)));
+        // Las consultas por fecha se resuelven con la copia cargada una sola vez
+        verify(feeVersionRepository, times(1)).findAllByOrderByConfigKeyAscEffectiveFromAsc();
+    }
+
+    @Test
+    void getFeeForLoan_usesVersionInForceAtTheStartOfTheLoanDay() {
+        LocalDateTime juneNoon = LocalDateTime.of(2025, 6, 1, 12, 0);
+        when(feeVersionRepository.findAllByOrderByConfigKeyAscEffectiveFromAsc()).thenReturn(List.of(
+                new FeeVersionEntity(1L, KEY_LATE, 1000, LocalDateTime.of(2025, 3, 1, 0, 0)),
+                new FeeVersionEntity(2L, KEY_LATE, 1500, juneNoon)));
+
+        // Un cambio al mediodía no alcanza a los préstamos de ese día, ni siquiera a los tomados después
+        assertEquals(1000, configurationService.getFeeForLoan(KEY_LATE, LocalDate.of(2025, 6, 1)));
+        assertEquals(1500, configurationService.getFeeForLoan(KEY_LATE, LocalDate.of(2025, 6, 2)));
+    }
+
+    @Test
+    void updateFee_withFutureDate_addsVersionWithoutChangingCurrentFee() {
+        ConfigurationEntity existing = new ConfigurationEntity();
+        existing.setId(3L);
+        existing.setConfigKey(KEY_LATE);
+        existing.setConfigValue("1000");
+        LocalDateTime from = LocalDateTime.now().plusDays(30);
+        when(configurationRepository.findByConfigKey(KEY_LATE)).thenReturn(Optional.of(existing));
+        when(configurationRepository.findAll()).thenReturn(List.of(existing));
+        when(feeVersionRepository.findAllByOrderByConfigKeyAscEffectiveFromAsc()).thenReturn(List.of(
+                new FeeVersionEntity(1L, KEY_LATE, 1000, LocalDateTime.of(1900, 1, 1, 0, 0)),
+                new FeeVersionEntity(2L, KEY_LATE, 1800, from)));
+
+        configurationService.updateFee(KEY_LATE, 1800, from);
+
+        ArgumentCaptor<FeeVersionEntity> captor = ArgumentCaptor.forClass(FeeVersionEntity.class);
+        verify(feeVersionRepository).save(captor.capture());
+        assertEquals(1800, captor.getValue().getFeeValue());
+        assertEquals(from, captor.getValue().getEffectiveFrom());
+        verify(configurationRepository, never()).save(any());
+        verify(configChangeBus).publish();
+
+        assertEquals(1000, configurationService.getFee(KEY_LATE));
+        assertEquals(1800, configurationService.getFeeAt(KEY_LATE, from.plusDays(1)));
+    }
+
+    @Test
+    void updateFee_rejectsEffectiveDateInThePast() {
+        assertThrows(IllegalArgumentException.class,
+                () -> configurationService.updateFee(KEY_LATE, 1800, LocalDateTime.now().minusDays(1)));
+        verifyNoInteractions(feeVersionRepository, configChangeBus);
     }
 }
@@ -1,6 +1,7 @@
 package com.example.tingeso_backend.services;
 
 import com.example.tingeso_backend.dto.FineDTO;
+import com.example.tingeso_backend.dto.PendingFineSummaryDTO;
 import com.example.tingeso_backend.entities.ClientEntity;
 import com.example.tingeso_backend.entities.FineEntity;
 import com.example.tingeso_backend.entities.LoanEntity;
@@ -29,6 +30,12 @@ class FineServiceTest {
     @Mock
     private ConfigurationService configurationService;
 
+    @Mock
+    private ClientEligibilityService eligibilityService;
+
+    @Mock
+    private ClientIdentityCache identityCache;
+
     @InjectMocks
     private FineService fineService;
 
@@ -77,12 +84,12 @@ class FineServiceTest {
     }
 
     @Test
-    void getFinesForUser_callsRepositoryAndMaps() {
+    void getFinesForClient_callsRepositoryAndMaps() {
         FineEntity f = buildFine(3L, "Cliente C", "kc-user", "Herramienta C", 75, "Pendiente");
 
-        when(fineRepository.findByUserKeycloakId("kc-user")).thenReturn(List.of(f));
+        when(fineRepository.findByClientIdWithLoanDetails(3L)).thenReturn(List.of(f));
 
-        List<FineDTO> result = fineService.getFinesForUser("kc-user");
+        List<FineDTO> result = fineService.getFinesForClient(3L);
 
         assertThat(result).hasSize(1);
         FineDTO dto = result.get(0);
@@ -90,7 +97,7 @@ class FineServiceTest {
         assertThat(dto.getToolName()).isEqualTo("Herramienta C");
         assertThat(dto.getLoanId()).isEqualTo(3L);
 
-        verify(fineRepository).findByUserKeycloakId("kc-user");
+        verify(fineRepository).findByClientIdWithLoanDetails(3L);
     }
 
     @Test
@@ -98,9 +105,9 @@ class FineServiceTest {
         FineEntity fine = buildFine(4L, "Cliente D", "kc-d", "Taladro D", 40, "Pendiente");
         Long clientId = fine.getLoan().getClient().getId();
 
-        when(fineRepository.findById(4L)).thenReturn(Optional.of(fine));
+        when(fineRepository.findWithLoanClientById(4L)).thenReturn(Optional.of(fine));
         when(fineRepository.save(any(FineEntity.class))).thenAnswer(i -> i.getArgument(0));
-        when(fineRepository.findPendingFinesByClientId(clientId)).thenReturn(List.of()); // simula que no quedan pendientes
+        when(fineRepository.existsByClientIdAndStatus(clientId, "Pendiente")).thenReturn(false); // simula que no quedan pendientes
 
         fineService.payFine(4L);
 
@@ -113,7 +120,39 @@ class FineServiceTest {
         assertThat(saved.getPaymentDate()).isNotNull();
         assertThat(saved.getPaymentDate()).isEqualTo(LocalDate.now());
 
-        verify(fineRepository).findById(4L);
-        verify(fineRepository).findPendingFinesByClientId(clientId);
+        verify(fineRepository).findWithLoanClientById(4L);
+        verify(fineRepository).existsByClientIdAndStatus(clientId, "Pendiente");
+        verify(fineRepository, never()).findPendingFinesByClientId(anyLong());
+        verify(eligibilityService).onFinePaid(clientId);
+        verify(identityCache).invalidateClient(clientId);
+    }
+
+    @Test
+    void createFineForLateReturn_usesFeeInForceOnLoanDate() {
+        FineEntity existing = buildFine(5L, "Cliente E", "kc-e", "Taladro E", 0, "Pendiente");
+        LoanEntity loan = existing.getLoan();
+        loan.setLoanDate(LocalDate.of(2025, 3, 1));
+        loan.setDueDate(LocalDate.of(2025, 3, 5));
+        loan.setReturnDate(LocalDate.of(2025, 3, 8));
+        when(configurationService.getFeeForLoan("daily_late_fee", LocalDate.of(2025, 3, 1))).thenReturn(1000);
+
+        fineService.createFineForLateReturn(loan);
+
+        assertThat(loan.getFines()).hasSize(1);
+        assertThat(loan.getFines().get(0).getAmount()).isEqualTo(3000);
+        verify(configurationService, never()).getFee(anyString());
+        verify(eligibilityService).onFineCreated(loan.getClient().getId());
+        verify(identityCache).invalidateClient(loan.getClient().getId());
+    }
+
+    @Test
+    void getPendingFineSummary_returnsZerosWhenClientHasNoPendingFines() {
+        when(fineRepository.summarizePendingFinesByClientId(9L)).thenReturn(Optional.empty());
+
+        PendingFineSummaryDTO summary = fineService.getPendingFineSummary(9L);
+
+        assertThat(summary.getClientId()).isEqualTo(9L);
+        assertThat(summary.getPendingCount()).isZero();
+        assertThat(summary.getPendingTotal()).isZero();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.repositories.KardexRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class KardexPartitionMaintainerTest {
+
+    @Mock
+    private KardexRepository kardexRepository;
+
+    @InjectMocks
+    private KardexPartitionMaintainer maintainer;
+
+    @Test
+    public void maintain_createsUpcomingMonthsAndArchivesPastRetention() {
+        ReflectionTestUtils.setField(maintainer, "monthsAhead", 3);
+        ReflectionTestUtils.setField(maintainer, "retentionMonths", 24);
+        when(kardexRepository.ensureMonthlyPartitions(LocalDate.of(2025, 6, 1), LocalDate.of(2025, 9, 1))).thenReturn(1);
+        when(kardexRepository.archivePartitionsBefore(LocalDate.of(2023, 6, 1))).thenReturn(2);
+
+        assertEquals(3, maintainer.maintain(LocalDate.of(2025, 6, 17), () -> true));
+    }
+
+    @Test
+    public void maintain_withoutRetentionOrLease_doesNotArchive() {
+        ReflectionTestUtils.setField(maintainer, "monthsAhead", 1);
+        ReflectionTestUtils.setField(maintainer, "retentionMonths", 0);
+        when(kardexRepository.ensureMonthlyPartitions(LocalDate.of(2025, 6, 1), LocalDate.of(2025, 7, 1))).thenReturn(0);
+
+        maintainer.maintain(LocalDate.of(2025, 6, 17), () -> true);
+
+        ReflectionTestUtils.setField(maintainer, "retentionMonths", 12);
+        maintainer.maintain(LocalDate.of(2025, 6, 17), () -> false);
+
+        verify(kardexRepository, never()).archivePartitionsBefore(any());
+    }
+}
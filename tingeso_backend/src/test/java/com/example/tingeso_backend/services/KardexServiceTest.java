@@ -1,8 +1,13 @@
 package com.example.tingeso_backend.services;
 
+import com.example.tingeso_backend.dto.KardexExportDTO;
+import com.example.tingeso_backend.dto.KardexMovementEventDTO;
 import com.example.tingeso_backend.entities.KardexEntity;
+import com.example.tingeso_backend.entities.OutboxEventEntity;
 import com.example.tingeso_backend.entities.ToolEntity;
 import com.example.tingeso_backend.repositories.KardexRepository;
+import com.example.tingeso_backend.repositories.OutboxEventRepository;
+import com.example.tingeso_backend.repositories.ToolRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -10,10 +15,15 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -25,11 +35,23 @@ class KardexServiceTest {
     @Mock
     private KardexRepository kardexRepository;
 
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private ToolRepository toolRepository;
+
+    @Mock
+    private KardexBalanceService balanceService;
+
     @InjectMocks
     private KardexService kardexService;
 
     @Captor
-    private ArgumentCaptor<KardexEntity> kardexCaptor;
+    private ArgumentCaptor<KardexMovementEventDTO> eventCaptor;
 
     @Captor
     private ArgumentCaptor<LocalDateTime> dateTimeCaptor;
@@ -37,51 +59,72 @@ class KardexServiceTest {
     @Test
     void createNewToolMovement_savesIngresoMovement() {
         ToolEntity tool = new ToolEntity();
+        tool.setId(5L);
         tool.setName("TaladroTest");
 
         kardexService.createNewToolMovement(tool, "usuarioX");
 
-        verify(kardexRepository, times(1)).save(kardexCaptor.capture());
-        KardexEntity saved = kardexCaptor.getValue();
+        verify(outboxService, times(1)).append(eq("KardexMovement"), eq(5L), eventCaptor.capture());
+        verifyNoInteractions(kardexRepository);
+        KardexMovementEventDTO saved = eventCaptor.getValue();
 
         assertNotNull(saved);
         assertEquals("Ingreso", saved.getMovementType());
         assertEquals(1, saved.getQuantityAffected());
         assertEquals("usuarioX", saved.getUserResponsible());
-        assertSame(tool, saved.getTool());
+        assertEquals(5L, saved.getToolId());
         assertNotNull(saved.getMovementDate());
     }
 
     @Test
-    void getMovements_withToolName_delegatesToFindByToolNameIgnoreCase() {
+    void getMovements_withToolName_resolvesNormalizedNameToToolIds() {
         List<KardexEntity> expected = List.of(new KardexEntity());
-        when(kardexRepository.findByToolNameIgnoreCase("TaladroX")).thenReturn(expected);
+        when(toolRepository.findIdsByNameKey("taladrox")).thenReturn(List.of(4L, 9L));
+        when(kardexRepository.findByToolIdIn(List.of(4L, 9L))).thenReturn(expected);
 
-        List<KardexEntity> result = kardexService.getMovements("TaladroX", null, null);
+        List<KardexEntity> result = kardexService.getMovements(null, " TaladroX ", null, null);
 
-        verify(kardexRepository, times(1)).findByToolNameIgnoreCase("TaladroX");
+        verify(kardexRepository, times(1)).findByToolIdIn(List.of(4L, 9L));
         assertSame(expected, result);
     }
 
+    @Test
+    void getMovements_withToolId_skipsNameLookup() {
+        List<KardexEntity> expected = List.of(new KardexEntity());
+        when(kardexRepository.findByToolIdIn(List.of(4L))).thenReturn(expected);
+
+        assertSame(expected, kardexService.getMovements(4L, "ignorado", null, null));
+        verifyNoInteractions(toolRepository);
+    }
+
+    @Test
+    void getMovements_unknownToolName_returnsEmptyWithoutQueryingKardex() {
+        when(toolRepository.findIdsByNameKey("inexistente")).thenReturn(List.of());
+
+        assertTrue(kardexService.getMovements(null, "Inexistente", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)).isEmpty());
+        verifyNoInteractions(kardexRepository);
+    }
+
     @Test
     void getMovements_withToolNameAndDateRange_delegatesToCombinedRepositoryMethod_withConvertedDateTimes() {
         LocalDate start = LocalDate.of(2025, 3, 1);
         LocalDate end = LocalDate.of(2025, 3, 31);
 
         List<KardexEntity> expected = List.of(new KardexEntity());
-        when(kardexRepository.findByToolNameIgnoreCaseAndMovementDateGreaterThanEqualAndMovementDateLessThan(
-                eq("taladrocombo"), any(LocalDateTime.class), any(LocalDateTime.class)))
+        when(toolRepository.findIdsByNameKey("taladrocombo")).thenReturn(List.of(2L));
+        when(kardexRepository.findByToolIdInAndMovementDateGreaterThanEqualAndMovementDateLessThan(
+                eq(List.of(2L)), any(LocalDateTime.class), any(LocalDateTime.class)))
                 .thenReturn(expected);
 
-        List<KardexEntity> result = kardexService.getMovements("taladrocombo", start, end);
+        List<KardexEntity> result = kardexService.getMovements(null, "TaladroCombo", start, end);
 
         // capturar los LocalDateTime pasados al repositorio
         ArgumentCaptor<LocalDateTime> startCaptor = ArgumentCaptor.forClass(LocalDateTime.class);
         ArgumentCaptor<LocalDateTime> endCaptor = ArgumentCaptor.forClass(LocalDateTime.class);
 
         verify(kardexRepository, times(1))
-                .findByToolNameIgnoreCaseAndMovementDateGreaterThanEqualAndMovementDateLessThan(
-                        eq("taladrocombo"), startCaptor.capture(), endCaptor.capture());
+                .findByToolIdInAndMovementDateGreaterThanEqualAndMovementDateLessThan(
+                        eq(List.of(2L)), startCaptor.capture(), endCaptor.capture());
 
         LocalDateTime expectedStart = start.atStartOfDay();
         LocalDateTime expectedEnd = end.plusDays(1).atStartOfDay();
@@ -90,4 +133,109 @@ class KardexServiceTest {
         assertEquals(expectedEnd, endCaptor.getValue());
         assertSame(expected, result);
     }
+
+    @Test
+    void exportMovements_csv_writesHeaderAndEscapedRows() throws Exception {
+        KardexExportDTO row = new KardexExportDTO(7L, LocalDateTime.of(2025, 6, 1, 10, 30), 3L, "Taladro",
+                "Préstamo", -1, "Pérez, Juan");
+        when(kardexRepository.streamForExport(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Stream.of(row));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        kardexService.exportMovements(null, null, null, null, "csv", out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("id,movementDate,toolId,toolName,movementType,quantityAffected,userResponsible", lines[0]);
+        assertEquals("7,2025-06-01T10:30,3,Taladro,Préstamo,-1,\"Pérez, Juan\"", lines[1]);
+    }
+
+    @Test
+    void exportMovements_unknownFormat_throwsBeforeQuerying() {
+        assertThrows(IllegalArgumentException.class,
+                () -> kardexService.exportMovements(null, null, null, null, "xml", new ByteArrayOutputStream()));
+        verifyNoInteractions(kardexRepository);
+    }
+
+    @Test
+    void createNewToolMovement_stockCountedTool_recordsAllUnits() {
+        ToolEntity tool = new ToolEntity();
+        tool.setName("Andamio");
+        tool.setInventoryMode("Stock");
+        tool.setAvailableStock(40);
+
+        kardexService.createNewToolMovement(tool, "ADMIN");
+
+        verify(outboxService).append(eq("KardexMovement"), isNull(), eventCaptor.capture());
+        assertEquals(40, eventCaptor.getValue().getQuantityAffected());
+    }
+
+    @Test
+    void createWriteOffMovement_withQuantity_recordsNegativeQuantity() {
+        ToolEntity tool = new ToolEntity();
+
+        kardexService.createWriteOffMovement(tool, 12, "ADMIN");
+
+        verify(outboxService).append(eq("KardexMovement"), isNull(), eventCaptor.capture());
+        assertEquals("Baja", eventCaptor.getValue().getMovementType());
+        assertEquals(-12, eventCaptor.getValue().getQuantityAffected());
+    }
+
+    @Test
+    void dispatchPendingMovements_persistsBatchAndMarksEventsProcessed() {
+        OutboxEventEntity first = new OutboxEventEntity(1L, "evt-1", "KardexMovement", 3L, "{}", LocalDateTime.now(), null, 0, null, null);
+        OutboxEventEntity second = new OutboxEventEntity(2L, "evt-2", "KardexMovement", 3L, "{}", LocalDateTime.now(), null, 0, null, null);
+        ToolEntity tool = new ToolEntity();
+        tool.setId(3L);
+        when(outboxEventRepository.findByEventTypeAndProcessedAtIsNullAndFailedAtIsNullOrderByIdAsc(eq("KardexMovement"), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        // evt-1 ya llegó al kardex en una entrega anterior
+        when(kardexRepository.findExistingEventIds(List.of("evt-1", "evt-2"))).thenReturn(List.of("evt-1"));
+        when(outboxService.readPayload(second, KardexMovementEventDTO.class))
+                .thenReturn(new KardexMovementEventDTO(3L, "Préstamo", LocalDateTime.of(2025, 6, 1, 0, 0), -1, "Juan"));
+        when(toolRepository.findExistingIds(Set.of(3L))).thenReturn(List.of(3L));
+        when(toolRepository.getReferenceById(3L)).thenReturn(tool);
+
+        int dispatched = kardexService.dispatchPendingMovements(100);
+
+        assertEquals(2, dispatched);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<KardexEntity>> saved = ArgumentCaptor.forClass(List.class);
+        verify(kardexRepository).saveAll(saved.capture());
+        assertEquals(1, saved.getValue().size());
+        assertEquals("evt-2", saved.getValue().get(0).getEventId());
+        assertSame(tool, saved.getValue().get(0).getTool());
+        verify(balanceService).applyMovements(saved.getValue());
+        verify(outboxEventRepository).markProcessed(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    void dispatchPendingMovements_unreadableEvent_isMarkedFailedAndRestIsDispatched() {
+        OutboxEventEntity broken = new OutboxEventEntity(1L, "evt-1", "KardexMovement", 3L, "?", LocalDateTime.now(), null, 0, null, null);
+        OutboxEventEntity valid = new OutboxEventEntity(2L, "evt-2", "KardexMovement", 3L, "{}", LocalDateTime.now(), null, 0, null, null);
+        when(outboxEventRepository.findByEventTypeAndProcessedAtIsNullAndFailedAtIsNullOrderByIdAsc(eq("KardexMovement"), any(Pageable.class)))
+                .thenReturn(List.of(broken, valid));
+        when(kardexRepository.findExistingEventIds(List.of("evt-1", "evt-2"))).thenReturn(List.of());
+        when(outboxService.readPayload(broken, KardexMovementEventDTO.class))
+                .thenThrow(new RuntimeException("Evento de outbox ilegible: evt-1"));
+        when(outboxService.readPayload(valid, KardexMovementEventDTO.class))
+                .thenReturn(new KardexMovementEventDTO(3L, "Préstamo", LocalDateTime.of(2025, 6, 1, 0, 0), -1, "Juan"));
+        when(toolRepository.findExistingIds(Set.of(3L))).thenReturn(List.of(3L));
+
+        assertEquals(2, kardexService.dispatchPendingMovements(100));
+
+        verify(outboxEventRepository).markFailed(eq(1L), eq("Evento de outbox ilegible: evt-1"), any(LocalDateTime.class));
+        verify(outboxEventRepository).markProcessed(eq(List.of(2L)), any(LocalDateTime.class));
+        verify(kardexRepository).saveAll(argThat(movements -> ((List<?>) movements).size() == 1));
+    }
+
+    @Test
+    void dispatchPendingMovements_nothingPending_doesNotWrite() {
+        when(outboxEventRepository.findByEventTypeAndProcessedAtIsNullAndFailedAtIsNullOrderByIdAsc(eq("KardexMovement"), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        assertEquals(0, kardexService.dispatchPendingMovements(100));
+        verifyNoInteractions(kardexRepository, balanceService);
+        verify(outboxEventRepository, never()).markProcessed(anyList(), any(LocalDateTime.class));
+    }
 }
@@ -3,7 +3,9 @@ package com.example.tingeso_backend.services;
 
 import com.example.tingeso_backend.dto.LoanDTO;
 import com.example.tingeso_backend.dto.LoanWithFineInfoDTO;
+import com.example.tingeso_backend.dto.OverdueLoanDTO;
 import com.example.tingeso_backend.dto.ReturnRequestDTO;
+import com.example.tingeso_backend.entities.ClientEligibilityEntity;
 import com.example.tingeso_backend.entities.ClientEntity;
 import com.example.tingeso_backend.entities.FineEntity;
 import com.example.tingeso_backend.entities.LoanEntity;
@@ -19,11 +21,15 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -47,6 +53,10 @@ public class LoanServiceTest {
     private FineRepository fineRepository;
     @Mock
     private ClientService clientService;
+    @Mock
+    private ClientEligibilityService eligibilityService;
+    @Mock
+    private ConfigurationService configurationService;
 
     @InjectMocks
     private LoanService loanService;
@@ -74,24 +84,10 @@ public class LoanServiceTest {
     }
 
     @Test
-    void getLoansWithFineInfo_mapsFineAndFields() {
-        ClientEntity client = makeClient(1L);
-        ToolEntity tool = makeTool(2L);
-        LoanEntity loan = new LoanEntity();
-        loan.setId(10L);
-        loan.setClient(client);
-        loan.setTool(tool);
-        loan.setLoanDate(LocalDate.now().minusDays(5));
-        loan.setDueDate(LocalDate.now().plusDays(5));
-        loan.setStatus("Activo");
-
-        when(loanRepository.findAll()).thenReturn(Collections.singletonList(loan));
-
-        FineEntity fine = new FineEntity();
-        fine.setId(99L);
-        fine.setAmount(200);
-        fine.setStatus("Pagada");
-        when(fineRepository.findByLoanId(10L)).thenReturn(fine);
+    void getLoansWithFineInfo_delegatesToProjectionQuery() {
+        LoanWithFineInfoDTO projected = new LoanWithFineInfoDTO(10L, "Cliente Test", "Herramienta Test",
+                LocalDate.now().minusDays(5), LocalDate.now().plusDays(5), null, "Activo", 99L, 200L, "Pagada");
+        when(loanRepository.findAllWithFineInfo()).thenReturn(Collections.singletonList(projected));
 
         var dtoList = loanService.getLoansWithFineInfo();
         assertNotNull(dtoList);
@@ -102,6 +98,8 @@ public class LoanServiceTest {
         assertEquals("Herramienta Test", dto.getToolName());
         assertEquals(99L, dto.getFineId());
         assertEquals(200, dto.getFineAmount());
+        verify(loanRepository, never()).findAll();
+        verifyNoInteractions(fineRepository);
     }
 
     @Test
@@ -116,11 +114,10 @@ public class LoanServiceTest {
 
         when(clientRepository.findById(client.getId())).thenReturn(Optional.of(client));
         when(toolRepository.findById(tool.getId())).thenReturn(Optional.of(tool));
-        when(loanRepository.findByClientIdAndDueDateBeforeAndStatus(eq(client.getId()), any(LocalDate.class), eq("Activo")))
-                .thenReturn(Collections.emptyList());
-        when(fineService.hasPendingFines(client.getId())).thenReturn(false);
-        when(loanRepository.countByClientIdAndStatus(client.getId(), "Activo")).thenReturn(0);
+        when(eligibilityService.getEligibility(client.getId()))
+                .thenReturn(new ClientEligibilityEntity(client.getId(), 0, 0, null, false));
         when(loanRepository.existsByClientIdAndToolIdAndStatus(client.getId(), tool.getId(), "Activo")).thenReturn(false);
+        when(toolRepository.transitionStatus(tool.getId(), "Disponible", "Prestada")).thenReturn(1);
 
         when(loanRepository.save(any(LoanEntity.class))).thenAnswer(inv -> {
             LoanEntity l = inv.getArgument(0);
@@ -133,8 +130,11 @@ public class LoanServiceTest {
         assertNotNull(result);
         assertEquals("Activo", result.getStatus());
         assertEquals(client.getId(), result.getClient().getId());
-        verify(toolRepository).save(argThat(t -> "Prestada".equals(t.getStatus())));
+        verify(toolRepository).transitionStatus(tool.getId(), "Disponible", "Prestada");
+        verify(toolRepository, never()).save(any(ToolEntity.class));
+        assertEquals("Disponible", tool.getStatus(), "La entidad no se modifica: el estado lo cambia el UPDATE condicionado");
         verify(kardexService).createLoanMovement(any(LoanEntity.class));
+        verify(eligibilityService).onLoanCreated(client.getId(), dto.getDueDate());
     }
 
     @Test
@@ -150,11 +150,10 @@ public class LoanServiceTest {
         JwtAuthenticationToken principal = mock(JwtAuthenticationToken.class);
         when(clientService.findOrCreateClient(principal)).thenReturn(client);
         when(toolRepository.findById(tool.getId())).thenReturn(Optional.of(tool));
-        when(loanRepository.findByClientIdAndDueDateBeforeAndStatus(eq(client.getId()), any(LocalDate.class), eq("Activo")))
-                .thenReturn(Collections.emptyList());
-        when(fineService.hasPendingFines(client.getId())).thenReturn(false);
-        when(loanRepository.countByClientIdAndStatus(client.getId(), "Activo")).thenReturn(0);
+        when(eligibilityService.getEligibility(client.getId()))
+                .thenReturn(new ClientEligibilityEntity(client.getId(), 0, 0, null, false));
         when(loanRepository.existsByClientIdAndToolIdAndStatus(client.getId(), tool.getId(), "Activo")).thenReturn(false);
+        when(toolRepository.transitionStatus(tool.getId(), "Disponible", "Prestada")).thenReturn(1);
 
         when(loanRepository.save(any(LoanEntity.class))).thenAnswer(inv -> {
             LoanEntity l = inv.getArgument(0);
@@ -167,7 +166,9 @@ public class LoanServiceTest {
         assertNotNull(result);
         assertEquals(client.getId(), result.getClient().getId());
         verify(clientService).findOrCreateClient(principal);
-        verify(toolRepository).save(argThat(t -> "Prestada".equals(t.getStatus())));
+        verify(toolRepository).transitionStatus(tool.getId(), "Disponible", "Prestada");
+        verify(toolRepository, never()).save(any(ToolEntity.class));
+        assertEquals("Disponible", tool.getStatus(), "La entidad no se modifica: el estado lo cambia el UPDATE condicionado");
     }
 
     @Test
@@ -188,6 +189,52 @@ public class LoanServiceTest {
         assertTrue(ex.getMessage().toLowerCase().contains("no está disponible") || ex.getMessage().toLowerCase().contains("no está disponible"));
     }
 
+    @Test
+    void createLoan_toolTakenConcurrently_failsFastWithConflict() {
+        ClientEntity client = makeClient(14L);
+        ToolEntity tool = makeTool(24L);
+
+        LoanDTO dto = new LoanDTO();
+        dto.setClientId(client.getId());
+        dto.setToolId(tool.getId());
+        dto.setDueDate(LocalDate.now().plusDays(2));
+
+        when(clientRepository.findById(client.getId())).thenReturn(Optional.of(client));
+        when(toolRepository.findById(tool.getId())).thenReturn(Optional.of(tool));
+        when(eligibilityService.getEligibility(client.getId()))
+                .thenReturn(new ClientEligibilityEntity(client.getId(), 0, 0, null, false));
+        when(loanRepository.existsByClientIdAndToolIdAndStatus(client.getId(), tool.getId(), "Activo")).thenReturn(false);
+        // Otra réplica ganó la carrera entre la validación y el UPDATE condicionado
+        when(toolRepository.transitionStatus(tool.getId(), "Disponible", "Prestada")).thenReturn(0);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> loanService.createLoan(dto, mock(JwtAuthenticationToken.class)));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        verify(loanRepository, never()).save(any(LoanEntity.class));
+        verifyNoInteractions(kardexService);
+    }
+
+    @Test
+    void createLoan_restrictedClient_isRejectedByEligibilityRules() {
+        ClientEntity client = makeClient(14L);
+        client.setStatus("Restringido");
+        ToolEntity tool = makeTool(24L);
+
+        LoanDTO dto = new LoanDTO();
+        dto.setClientId(client.getId());
+        dto.setToolId(tool.getId());
+        dto.setDueDate(LocalDate.now().plusDays(2));
+
+        when(clientRepository.findById(client.getId())).thenReturn(Optional.of(client));
+        when(toolRepository.findById(tool.getId())).thenReturn(Optional.of(tool));
+        when(eligibilityService.getEligibility(client.getId()))
+                .thenReturn(new ClientEligibilityEntity(client.getId(), 0, 0, null, false));
+
+        Exception ex = assertThrows(RuntimeException.class, () -> loanService.createLoan(dto, mock(JwtAuthenticationToken.class)));
+        assertEquals("El cliente está restringido y no puede solicitar préstamos.", ex.getMessage());
+        verify(toolRepository, never()).transitionStatus(anyLong(), anyString(), anyString());
+    }
+
     @Test
     void createLoan_clientHasPendingFines_throws() {
         ClientEntity client = makeClient(13L);
@@ -200,14 +247,55 @@ public class LoanServiceTest {
 
         when(clientRepository.findById(client.getId())).thenReturn(Optional.of(client));
         when(toolRepository.findById(tool.getId())).thenReturn(Optional.of(tool));
-        when(loanRepository.findByClientIdAndDueDateBeforeAndStatus(eq(client.getId()), any(LocalDate.class), eq("Activo")))
-                .thenReturn(Collections.emptyList());
-        when(fineService.hasPendingFines(client.getId())).thenReturn(true);
+        when(eligibilityService.getEligibility(client.getId()))
+                .thenReturn(new ClientEligibilityEntity(client.getId(), 0, 1, null, true));
 
         Exception ex = assertThrows(RuntimeException.class, () -> loanService.createLoan(dto, mock(JwtAuthenticationToken.class)));
         assertTrue(ex.getMessage().toLowerCase().contains("multas"));
     }
 
+    @Test
+    void createLoan_eligibilitySnapshotWithOverdueLoan_throws() {
+        ClientEntity client = makeClient(17L);
+        ToolEntity tool = makeTool(27L);
+
+        LoanDTO dto = new LoanDTO();
+        dto.setClientId(client.getId());
+        dto.setToolId(tool.getId());
+        dto.setDueDate(LocalDate.now().plusDays(2));
+
+        when(clientRepository.findById(client.getId())).thenReturn(Optional.of(client));
+        when(toolRepository.findById(tool.getId())).thenReturn(Optional.of(tool));
+        when(eligibilityService.getEligibility(client.getId()))
+                .thenReturn(new ClientEligibilityEntity(client.getId(), 1, 0, LocalDate.now().minusDays(1), false));
+
+        Exception ex = assertThrows(RuntimeException.class, () -> loanService.createLoan(dto, mock(JwtAuthenticationToken.class)));
+        assertTrue(ex.getMessage().contains("vencidos"));
+        // La validación no consulta las tablas de préstamos ni multas
+        verify(loanRepository, never()).findByClientIdAndDueDateBeforeAndStatus(anyLong(), any(LocalDate.class), anyString());
+        verify(loanRepository, never()).countByClientIdAndStatus(anyLong(), anyString());
+        verifyNoInteractions(fineService);
+    }
+
+    @Test
+    void createLoan_eligibilitySnapshotAtLoanLimit_throws() {
+        ClientEntity client = makeClient(18L);
+        ToolEntity tool = makeTool(28L);
+
+        LoanDTO dto = new LoanDTO();
+        dto.setClientId(client.getId());
+        dto.setToolId(tool.getId());
+        dto.setDueDate(LocalDate.now().plusDays(2));
+
+        when(clientRepository.findById(client.getId())).thenReturn(Optional.of(client));
+        when(toolRepository.findById(tool.getId())).thenReturn(Optional.of(tool));
+        when(eligibilityService.getEligibility(client.getId()))
+                .thenReturn(new ClientEligibilityEntity(client.getId(), 5, 0, LocalDate.now().plusDays(3), false));
+
+        Exception ex = assertThrows(RuntimeException.class, () -> loanService.createLoan(dto, mock(JwtAuthenticationToken.class)));
+        assertTrue(ex.getMessage().contains("límite"));
+    }
+
     @Test
     void processReturn_irreparableDamage_createsFineAndReturnsDTO() {
         Long loanId = 100L;
@@ -226,7 +314,8 @@ public class LoanServiceTest {
         loan.setLoanDate(LocalDate.now().minusDays(10));
         loan.setDueDate(LocalDate.now().minusDays(1));
 
-        when(loanRepository.findById(loanId)).thenReturn(Optional.of(loan));
+        when(loanRepository.findForReturnById(loanId)).thenReturn(Optional.of(loan));
+        when(loanRepository.claimReturn(eq(loanId), any(LocalDate.class))).thenReturn(1);
         when(loanRepository.save(any(LoanEntity.class))).thenAnswer(inv -> inv.getArgument(0));
         when(toolRepository.save(any(ToolEntity.class))).thenAnswer(inv -> inv.getArgument(0));
 
@@ -234,7 +323,11 @@ public class LoanServiceTest {
         fine.setId(55L);
         fine.setAmount(500);
         fine.setStatus("Pendiente");
-        when(fineRepository.findByLoanId(loanId)).thenReturn(fine);
+        FineEntity lateFine = new FineEntity();
+        lateFine.setId(54L);
+        lateFine.setAmount(30);
+        lateFine.setStatus("Pagada");
+        when(fineRepository.findByLoanId(loanId)).thenReturn(List.of(lateFine, fine));
 
         ReturnRequestDTO req = new ReturnRequestDTO();
         req.setStatus("Irreparable");
@@ -243,6 +336,8 @@ public class LoanServiceTest {
         assertNotNull(dto);
         assertEquals("Devuelto", dto.getStatus());
         assertEquals(55L, dto.getFineId());
+        assertEquals(530, dto.getFineAmount());
+        assertEquals("Pendiente", dto.getFineStatus());
         verify(fineService).createFineForDamage(eq(loan), eq(tool.getReplacementValue()));
         verify(kardexService).createWriteOffMovement(eq(tool), anyString());
         verify(kardexService).createReturnMovement(eq(loan), anyString());
@@ -265,10 +360,11 @@ public class LoanServiceTest {
         loan.setLoanDate(LocalDate.now().minusDays(6));
         loan.setDueDate(LocalDate.now().minusDays(1));
 
-        when(loanRepository.findById(loanId)).thenReturn(Optional.of(loan));
+        when(loanRepository.findForReturnById(loanId)).thenReturn(Optional.of(loan));
+        when(loanRepository.claimReturn(eq(loanId), any(LocalDate.class))).thenReturn(1);
         when(loanRepository.save(any(LoanEntity.class))).thenAnswer(inv -> inv.getArgument(0));
         when(toolRepository.save(any(ToolEntity.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(fineRepository.findByLoanId(loanId)).thenReturn(null);
+        when(fineRepository.findByLoanId(loanId)).thenReturn(Collections.emptyList());
 
         ReturnRequestDTO req = new ReturnRequestDTO();
         req.setStatus("Dañada");
@@ -297,10 +393,11 @@ public class LoanServiceTest {
         loan.setLoanDate(LocalDate.now().minusDays(2));
         loan.setDueDate(LocalDate.now().plusDays(1));
 
-        when(loanRepository.findById(loanId)).thenReturn(Optional.of(loan));
+        when(loanRepository.findForReturnById(loanId)).thenReturn(Optional.of(loan));
+        when(loanRepository.claimReturn(eq(loanId), any(LocalDate.class))).thenReturn(1);
         when(loanRepository.save(any(LoanEntity.class))).thenAnswer(inv -> inv.getArgument(0));
         when(toolRepository.save(any(ToolEntity.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(fineRepository.findByLoanId(loanId)).thenReturn(null);
+        when(fineRepository.findByLoanId(loanId)).thenReturn(Collections.emptyList());
 
         ReturnRequestDTO req = new ReturnRequestDTO();
         req.setStatus("Bueno");
@@ -312,6 +409,7 @@ public class LoanServiceTest {
         verify(fineService).createFineForLateReturn(eq(loan));
         verify(kardexService).createReturnMovement(eq(loan), anyString());
         assertEquals("Disponible", tool.getStatus());
+        verify(eligibilityService).onLoanReturned(client.getId());
     }
 
     @Test
@@ -356,24 +454,182 @@ public class LoanServiceTest {
     }
 
     @Test
-    void getLoansForUser_mapsLoansForKeycloakId() {
-        String keycloakId = "kc-abc";
+    void getLoansForClient_mapsLoansForClientId() {
         ClientEntity client = makeClient(400L);
-        client.setKeycloakId(keycloakId);
         ToolEntity tool = makeTool(401L);
 
-        LoanEntity loan = new LoanEntity();
-        loan.setId(500L);
-        loan.setClient(client);
-        loan.setTool(tool);
-        loan.setLoanDate(LocalDate.now().minusDays(1));
-        loan.setDueDate(LocalDate.now().plusDays(4));
-        when(loanRepository.findByClientKeycloakId(keycloakId)).thenReturn(Collections.singletonList(loan));
-        when(fineRepository.findByLoanId(500L)).thenReturn(null);
+        LoanWithFineInfoDTO projected = new LoanWithFineInfoDTO(500L, client.getName(), tool.getName(),
+                LocalDate.now().minusDays(1), LocalDate.now().plusDays(4), null, "Activo", null, null, null);
+        when(loanRepository.findWithFineInfoByClientId(400L)).thenReturn(Collections.singletonList(projected));
 
-        var list = loanService.getLoansForUser(keycloakId);
+        var list = loanService.getLoansForClient(400L);
         assertEquals(1, list.size());
         assertEquals(500L, list.get(0).getId());
     }
 
+    @Test
+    void createLoan_stockCountedTool_takesOneUnitWithoutChangingStatus() {
+        ClientEntity client = makeClient(15L);
+        ToolEntity tool = makeTool(25L);
+        tool.setInventoryMode("Stock");
+        tool.setAvailableStock(3);
+
+        LoanDTO dto = new LoanDTO();
+        dto.setClientId(client.getId());
+        dto.setToolId(tool.getId());
+        dto.setDueDate(LocalDate.now().plusDays(2));
+
+        when(clientRepository.findById(client.getId())).thenReturn(Optional.of(client));
+        when(toolRepository.findById(tool.getId())).thenReturn(Optional.of(tool));
+        when(eligibilityService.getEligibility(client.getId()))
+                .thenReturn(new ClientEligibilityEntity(client.getId(), 0, 0, null, false));
+        when(loanRepository.existsByClientIdAndToolIdAndStatus(client.getId(), tool.getId(), "Activo")).thenReturn(false);
+        when(toolRepository.takeOneUnit(tool.getId())).thenReturn(1);
+        when(loanRepository.save(any(LoanEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        loanService.createLoan(dto, mock(JwtAuthenticationToken.class));
+
+        verify(toolRepository).takeOneUnit(tool.getId());
+        verify(toolRepository, never()).transitionStatus(anyLong(), anyString(), anyString());
+        assertEquals("Disponible", tool.getStatus());
+    }
+
+    @Test
+    void createLoan_stockCountedToolWithoutUnits_throws() {
+        ClientEntity client = makeClient(16L);
+        ToolEntity tool = makeTool(26L);
+        tool.setInventoryMode("Stock");
+        tool.setAvailableStock(0);
+
+        LoanDTO dto = new LoanDTO();
+        dto.setClientId(client.getId());
+        dto.setToolId(tool.getId());
+        dto.setDueDate(LocalDate.now().plusDays(2));
+
+        when(clientRepository.findById(client.getId())).thenReturn(Optional.of(client));
+        when(toolRepository.findById(tool.getId())).thenReturn(Optional.of(tool));
+
+        Exception ex = assertThrows(RuntimeException.class, () -> loanService.createLoan(dto, mock(JwtAuthenticationToken.class)));
+        assertTrue(ex.getMessage().contains("no tiene stock"));
+        verify(toolRepository, never()).takeOneUnit(anyLong());
+    }
+
+    @Test
+    void processReturn_stockCountedTool_returnsUnitToCounter() {
+        Long loanId = 103L;
+        ToolEntity tool = makeTool(43L);
+        tool.setInventoryMode("Stock");
+
+        LoanEntity loan = new LoanEntity();
+        loan.setId(loanId);
+        loan.setClient(makeClient(33L));
+        loan.setTool(tool);
+        loan.setStatus("Activo");
+        loan.setLoanDate(LocalDate.now().minusDays(2));
+        loan.setDueDate(LocalDate.now().plusDays(1));
+
+        when(loanRepository.findForReturnById(loanId)).thenReturn(Optional.of(loan));
+        when(loanRepository.claimReturn(eq(loanId), any(LocalDate.class))).thenReturn(1);
+        when(loanRepository.save(any(LoanEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(fineRepository.findByLoanId(loanId)).thenReturn(Collections.emptyList());
+        when(toolRepository.returnOneUnit(tool.getId())).thenReturn(1);
+
+        ReturnRequestDTO req = new ReturnRequestDTO();
+        req.setStatus("Bueno");
+        loanService.processReturn(loanId, req);
+
+        verify(toolRepository).returnOneUnit(tool.getId());
+        verify(kardexService, never()).createWriteOffMovement(any(ToolEntity.class), anyString());
+        assertEquals("Disponible", tool.getStatus());
+    }
+
+    @Test
+    void processReturn_stockToolWrittenOffWhileLent_recordsReturnedUnitAsWriteOff() {
+        Long loanId = 104L;
+        ToolEntity tool = makeTool(44L);
+        tool.setInventoryMode("Stock");
+
+        LoanEntity loan = new LoanEntity();
+        loan.setId(loanId);
+        loan.setClient(makeClient(34L));
+        loan.setTool(tool);
+        loan.setStatus("Activo");
+        loan.setLoanDate(LocalDate.now().minusDays(2));
+        loan.setDueDate(LocalDate.now().plusDays(1));
+
+        when(loanRepository.findForReturnById(loanId)).thenReturn(Optional.of(loan));
+        when(loanRepository.claimReturn(eq(loanId), any(LocalDate.class))).thenReturn(1);
+        when(loanRepository.save(any(LoanEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(fineRepository.findByLoanId(loanId)).thenReturn(Collections.emptyList());
+        when(toolRepository.returnOneUnit(tool.getId())).thenReturn(0);
+
+        ReturnRequestDTO req = new ReturnRequestDTO();
+        req.setStatus("Bueno");
+        loanService.processReturn(loanId, req);
+
+        verify(kardexService).createWriteOffMovement(eq(tool), anyString());
+    }
+
+    @Test
+    void processReturn_alreadyClaimedByConcurrentReturn_conflictsWithoutSideEffects() {
+        Long loanId = 105L;
+        ToolEntity tool = makeTool(45L);
+        tool.setInventoryMode("Stock");
+
+        LoanEntity loan = new LoanEntity();
+        loan.setId(loanId);
+        loan.setClient(makeClient(35L));
+        loan.setTool(tool);
+        loan.setStatus("Activo");
+
+        when(loanRepository.findForReturnById(loanId)).thenReturn(Optional.of(loan));
+        when(loanRepository.claimReturn(eq(loanId), any(LocalDate.class))).thenReturn(0);
+
+        ReturnRequestDTO req = new ReturnRequestDTO();
+        req.setStatus("Bueno");
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> loanService.processReturn(loanId, req));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        verify(toolRepository, never()).returnOneUnit(anyLong());
+        verifyNoInteractions(fineService, kardexService, eligibilityService);
+    }
+
+    @Test
+    void accrueOverdueChunk_updatesLoansAfterCursorGroupedByAmount() {
+        LocalDate today = LocalDate.of(2025, 6, 10);
+        LocalDate cursorDue = today.minusDays(5);
+        when(loanRepository.findOverdueLoansToAccrue(eq(today), eq(cursorDue), eq(3L), any(Pageable.class)))
+                .thenReturn(List.of(
+                        new OverdueLoanDTO(4L, today.minusDays(9), today.minusDays(4)),
+                        new OverdueLoanDTO(6L, today.minusDays(8), today.minusDays(4)),
+                        new OverdueLoanDTO(7L, today.minusDays(3), today.minusDays(1))));
+
+        when(configurationService.getFeeForLoan("daily_late_fee", today.minusDays(9))).thenReturn(2000);
+        when(configurationService.getFeeForLoan("daily_late_fee", today.minusDays(8))).thenReturn(2000);
+        when(configurationService.getFeeForLoan("daily_late_fee", today.minusDays(3))).thenReturn(2000);
+
+        List<OverdueLoanDTO> processed = loanService.accrueOverdueChunk(today, cursorDue, 3L, 3);
+
+        assertEquals(3, processed.size());
+        verify(loanRepository).accrueLateFee(List.of(4L, 6L), 8000, today);
+        verify(loanRepository).accrueLateFee(List.of(7L), 2000, today);
+    }
+
+    @Test
+    void accrueOverdueChunk_pricesEachLoanWithFeeInForceOnItsLoanDate() {
+        LocalDate today = LocalDate.of(2025, 6, 10);
+        LocalDate dueDate = today.minusDays(2);
+        when(loanRepository.findOverdueLoansToAccrue(eq(today), eq(LocalDate.EPOCH), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(
+                        new OverdueLoanDTO(1L, LocalDate.of(2025, 5, 1), dueDate),
+                        new OverdueLoanDTO(2L, LocalDate.of(2025, 6, 1), dueDate)));
+        when(configurationService.getFeeForLoan("daily_late_fee", LocalDate.of(2025, 5, 1))).thenReturn(1000);
+        when(configurationService.getFeeForLoan("daily_late_fee", LocalDate.of(2025, 6, 1))).thenReturn(1500);
+
+        loanService.accrueOverdueChunk(today, LocalDate.EPOCH, 0L, 10);
+
+        verify(loanRepository).accrueLateFee(List.of(1L), 2000, today);
+        verify(loanRepository).accrueLateFee(List.of(2L), 3000, today);
+        verify(configurationService, never()).getFee(anyString());
+    }
 }
@@ -0,0 +1,58 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.OverdueLoanDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OverdueLoanSweeperTest {
+
+    @Mock
+    private LoanService loanService;
+
+    @InjectMocks
+    private OverdueLoanSweeper sweeper;
+
+    private static List<OverdueLoanDTO> loans(LocalDate dueDate, long... ids) {
+        return Arrays.stream(ids).mapToObj(id -> new OverdueLoanDTO(id, dueDate.minusDays(7), dueDate)).toList();
+    }
+
+    @Test
+    public void sweep_followsKeysetUntilAChunkComesBackShort() {
+        ReflectionTestUtils.setField(sweeper, "chunkSize", 2);
+        LocalDate today = LocalDate.of(2025, 6, 10);
+        LocalDate due = today.minusDays(3);
+        when(loanService.accrueOverdueChunk(today, LocalDate.EPOCH, 0L, 2)).thenReturn(loans(due, 1, 2));
+        when(loanService.accrueOverdueChunk(today, due, 2L, 2)).thenReturn(loans(due, 5, 8));
+        when(loanService.accrueOverdueChunk(today, due, 8L, 2)).thenReturn(loans(due, 9));
+
+        int processed = sweeper.sweep(today, () -> true);
+
+        assertEquals(5, processed);
+        verify(loanService, times(3)).accrueOverdueChunk(eq(today), any(LocalDate.class), anyLong(), eq(2));
+    }
+
+    @Test
+    public void sweep_stopsWhenLeaseIsLost() {
+        ReflectionTestUtils.setField(sweeper, "chunkSize", 2);
+        LocalDate today = LocalDate.of(2025, 6, 10);
+        when(loanService.accrueOverdueChunk(today, LocalDate.EPOCH, 0L, 2)).thenReturn(loans(today.minusDays(1), 1, 2));
+
+        int processed = sweeper.sweep(today, () -> false);
+
+        assertEquals(2, processed);
+        verify(loanService, times(1)).accrueOverdueChunk(eq(today), any(LocalDate.class), anyLong(), eq(2));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.tingeso_backend.services;
+
+import com.example.tingeso_backend.dto.ToolFacetCountDTO;
+import com.example.tingeso_backend.dto.ToolFacetDTO;
+import com.example.tingeso_backend.dto.ToolFacetsDTO;
+import com.example.tingeso_backend.repositories.ToolRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ToolFacetsServiceTest {
+
+    @Mock
+    private ToolRepository toolRepository;
+
+    @InjectMocks
+    private ToolFacetsService toolFacetsService;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(toolFacetsService, "ttlMs", 60_000L);
+    }
+
+    @Test
+    void getFacets_foldsStatusCountsPerValueAndCachesResult() {
+        when(toolRepository.countByNameAndStatus()).thenReturn(List.of(
+                new ToolFacetCountDTO("taladro", "Disponible", 2L),
+                new ToolFacetCountDTO("martillo", "Prestada", 1L),
+                new ToolFacetCountDTO("taladro", "Prestada", 1L)));
+        when(toolRepository.countByCategoryAndStatus()).thenReturn(List.of(
+                new ToolFacetCountDTO("Eléctrica", "Disponible", 2L),
+                new ToolFacetCountDTO("Eléctrica", null, 1L)));
+
+        ToolFacetsDTO facets = toolFacetsService.getFacets();
+        ToolFacetsDTO again = toolFacetsService.getFacets();
+
+        assertSame(facets, again);
+        assertEquals(List.of("martillo", "taladro"), facets.getNames().stream().map(ToolFacetDTO::getValue).toList());
+        ToolFacetDTO drill = facets.getNames().get(1);
+        assertEquals(3, drill.getTotal());
+        assertEquals(Map.of("Disponible", 2L, "Prestada", 1L), drill.getCountsByStatus());
+        assertEquals(Map.of("Disponible", 2L, "Sin estado", 1L), facets.getCategories().get(0).getCountsByStatus());
+        verify(toolRepository, times(1)).countByNameAndStatus();
+    }
+
+    @Test
+    void invalidate_forcesReloadOnNextRead() {
+        when(toolRepository.countByNameAndStatus()).thenReturn(List.of());
+        when(toolRepository.countByCategoryAndStatus()).thenReturn(List.of());
+
+        toolFacetsService.getFacets();
+        toolFacetsService.invalidate();
+        toolFacetsService.getFacets();
+
+        verify(toolRepository, times(2)).countByNameAndStatus();
+        verify(toolRepository, times(2)).countByCategoryAndStatus();
+    }
+
+    @Test
+    void invalidate_insideTransaction_dropsCacheOnlyAfterCommit() {
+        when(toolRepository.countByNameAndStatus()).thenReturn(List.of());
+        when(toolRepository.countByCategoryAndStatus()).thenReturn(List.of());
+        toolFacetsService.getFacets();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            toolFacetsService.invalidate();
+            // Antes del commit se siguen sirviendo los conteos guardados
+            toolFacetsService.getFacets();
+            verify(toolRepository, times(1)).countByNameAndStatus();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        toolFacetsService.getFacets();
+        verify(toolRepository, times(2)).countByNameAndStatus();
+    }
+}
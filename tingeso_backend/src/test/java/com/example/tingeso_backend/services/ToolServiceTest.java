@@ -1,4 +1,7 @@
 package com.example.tingeso_backend.services;
+import com.example.tingeso_backend.dto.CursorPageDTO;
+import com.example.tingeso_backend.dto.ToolSearchCriteria;
+import com.example.tingeso_backend.dto.ToolSummaryDTO;
 import com.example.tingeso_backend.entities.ToolEntity;
 import com.example.tingeso_backend.repositories.ToolRepository;
 import org.junit.jupiter.api.Test;
@@ -7,12 +10,17 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +32,9 @@ public class ToolServiceTest {
     @Mock
     private KardexService kardexService;
 
+    @Mock
+    private ToolFacetsService toolFacetsService;
+
     @InjectMocks
     private ToolService toolService;
 
@@ -69,13 +80,14 @@ public class ToolServiceTest {
         assertEquals("Disponible", result.getStatus());
         verify(toolRepository).save(any(ToolEntity.class));
         verify(kardexService).createNewToolMovement(eq(saved), anyString());
+        verify(toolFacetsService).invalidate();
     }
 
     @Test
     public void logicalDeleteTool_updatesStatusAndCallsKardex() {
         ToolEntity t = makeTool(7L, "Llave");
         t.setStatus("Disponible");
-        when(toolRepository.findById(7L)).thenReturn(Optional.of(t));
+        when(toolRepository.findForUpdateById(7L)).thenReturn(Optional.of(t));
         when(toolRepository.save(any(ToolEntity.class))).thenAnswer(inv -> inv.getArgument(0));
 
         boolean ok = toolService.logicalDeleteTool(7L);
@@ -86,5 +98,97 @@ public class ToolServiceTest {
         ToolEntity captured = captor.getValue();
         assertEquals("Dada de baja", captured.getStatus());
         verify(kardexService).createWriteOffMovement(eq(captured), anyString());
+        verify(toolFacetsService).invalidate();
+    }
+
+    @Test
+    public void logicalDeleteTool_stockMode_writesOffLockedQuantityWithGuardedUpdate() {
+        ToolEntity t = makeTool(8L, "Andamio");
+        t.setInventoryMode("Stock");
+        t.setAvailableStock(4);
+        when(toolRepository.findForUpdateById(8L)).thenReturn(Optional.of(t));
+        when(toolRepository.writeOffStock(8L)).thenReturn(1);
+
+        assertTrue(toolService.logicalDeleteTool(8L));
+
+        verify(toolRepository).writeOffStock(8L);
+        verify(toolRepository, never()).save(any(ToolEntity.class));
+        verify(kardexService).createWriteOffMovement(t, 4, "ADMIN");
+    }
+
+    @Test
+    public void logicalDeleteTool_stockModeAlreadyWrittenOff_conflicts() {
+        ToolEntity t = makeTool(9L, "Andamio");
+        t.setInventoryMode("Stock");
+        when(toolRepository.findForUpdateById(9L)).thenReturn(Optional.of(t));
+        when(toolRepository.writeOffStock(9L)).thenReturn(0);
+
+        assertThrows(ResponseStatusException.class, () -> toolService.logicalDeleteTool(9L));
+        verifyNoInteractions(kardexService);
+    }
+
+    @Test
+    public void updateTool_copiesEditableFieldsButNeverTheStockCounter() {
+        ToolEntity existing = makeTool(11L, "Sierra");
+        existing.setInventoryMode("Stock");
+        existing.setAvailableStock(7);
+        when(toolRepository.findById(11L)).thenReturn(Optional.of(existing));
+        when(toolRepository.save(existing)).thenReturn(existing);
+
+        ToolEntity form = makeTool(null, "Sierra circular");
+        form.setCategory("Corte");
+        form.setReplacementValue(90);
+        form.setInventoryMode("Stock");
+        form.setAvailableStock(0); // el formulario no envía el contador
+
+        ToolEntity result = toolService.updateTool(11L, form);
+
+        assertSame(existing, result);
+        assertEquals("Sierra circular", existing.getName());
+        assertEquals("Corte", existing.getCategory());
+        assertEquals(90, existing.getReplacementValue());
+        assertEquals(7, existing.getAvailableStock());
+        verify(toolFacetsService).invalidate();
+    }
+
+    @Test
+    public void getToolsPage_returnsCursorWhenMoreRowsExist() {
+        // limit=2 pide 3 filas: la tercera sólo indica que existe otra página
+        when(toolRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(makeTool(1L, "Martillo"), makeTool(2L, "Sierra"), makeTool(3L, "Taladro")));
+        when(toolRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(makeTool(3L, "Taladro")));
+
+        CursorPageDTO<ToolEntity> first = toolService.getToolsPage(null, 2);
+        assertEquals(2, first.getItems().size());
+        assertNotNull(first.getNextCursor());
+
+        CursorPageDTO<ToolEntity> second = toolService.getToolsPage(first.getNextCursor(), 2);
+        assertEquals(1, second.getItems().size());
+        assertEquals(3L, second.getItems().get(0).getId());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    public void getToolsPage_rejectsInvalidCursor() {
+        assertThrows(ResponseStatusException.class, () -> toolService.getToolsPage("no-es-un-cursor", 10));
+        verifyNoInteractions(toolRepository);
+    }
+
+    @Test
+    public void searchTools_encodesNameAndIdInCursor() {
+        ToolSearchCriteria criteria = new ToolSearchCriteria("Manual", null, null, null, false);
+        ToolSummaryDTO a = new ToolSummaryDTO(4L, "Alicate", "Manual", "Disponible", 10, 1, null);
+        ToolSummaryDTO b = new ToolSummaryDTO(2L, "Brocha", "Manual", "Disponible", 10, 1, null);
+        when(toolRepository.searchSummaries(criteria, null, null, 2)).thenReturn(List.of(a, b));
+        when(toolRepository.searchSummaries(criteria, "Alicate", 4L, 2)).thenReturn(List.of(b));
+
+        CursorPageDTO<ToolSummaryDTO> first = toolService.searchTools(criteria, null, 1);
+        assertEquals(List.of(a), first.getItems());
+        assertNotNull(first.getNextCursor());
+
+        CursorPageDTO<ToolSummaryDTO> second = toolService.searchTools(criteria, first.getNextCursor(), 1);
+        assertEquals(List.of(b), second.getItems());
+        assertNull(second.getNextCursor());
     }
 }
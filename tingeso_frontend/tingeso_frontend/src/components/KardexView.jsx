@@ -25,11 +25,9 @@ const KardexView = () => {
 
     const init = () => {
         kardexService.getMovements().then(response => setMovements(response.data));
-        // Cargar todas las herramientas para poblar el dropdown de filtros
-        toolService.getAll().then(response => {
-            // Extraer nombres únicos para el dropdown, sin importar mayúsculas/minúsculas
-            const names = [...new Set(response.data.map(tool => tool.name.toLowerCase()))];
-            setUniqueToolNames(names.sort()); // Ordenar alfabéticamente
+        // Los nombres llegan ya en minúsculas, sin repetir y ordenados
+        toolService.getFacets().then(response => {
+            setUniqueToolNames(response.data.names.map(facet => facet.value));
         });
     };
 
@@ -25,13 +25,12 @@ const ManageFees = () => {
     const [message, setMessage] = useState("");
 
     const init = () => {
-        configurationService.getLateFee()
-            .then(response => setLateFee(response.data))
-            .catch(error => console.error("Error loading late fee.", error));
-
-        configurationService.getRepairFee()
-            .then(response => setRepairFee(response.data))
-            .catch(error => console.error("Error loading repair fee.", error));
+        configurationService.getAll()
+            .then(response => {
+                setLateFee(response.data.daily_late_fee ?? 0);
+                setRepairFee(response.data.repair_fee ?? 0);
+            })
+            .catch(error => console.error("Error loading fees.", error));
 
         toolService.getAll()
             .then(response => setTools(response.data))
@@ -13,6 +13,7 @@ import {
     TableRow,
     Paper,
     Button,
+    TextField,
     Typography
 } from "@mui/material";
 import KeyboardArrowDownIcon from '@mui/icons-material/KeyboardArrowDown';
@@ -95,6 +96,8 @@ function Row({ groupName, instances, handleEdit, handleDelete }) {
   );
 }
 
+const PAGE_SIZE = 100;
+
 const ToolList = () => {
     const [groupedTools, setGroupedTools] = useState([]);
     const navigate = useNavigate();
@@ -102,25 +105,45 @@ const ToolList = () => {
 
     const isAdmin = initialized && keycloak.hasRealmRole("ADMIN");
 
-    const init = () => {
-        toolService.getAll().then(response => {
-            const allTools = response.data;
-            const groups = allTools.reduce((acc, tool) => {
-                const key = `${tool.name.toUpperCase()}-${tool.category.toUpperCase()}`;
-                if (!acc[key]) {
-                    acc[key] = [];
-                }
-                acc[key].push(tool);
-                return acc;
-            }, {});
-            setGroupedTools(Object.entries(groups));
+    const [tools, setTools] = useState([]);
+    const [namePrefix, setNamePrefix] = useState("");
+    const [nextCursor, setNextCursor] = useState(null);
+
+    // Agrupa por nombre y categoría las unidades recibidas hasta ahora
+    const groupTools = (allTools) => {
+        const groups = allTools.reduce((acc, tool) => {
+            const key = `${tool.name.toUpperCase()}-${tool.category.toUpperCase()}`;
+            if (!acc[key]) {
+                acc[key] = [];
+            }
+            acc[key].push(tool);
+            return acc;
+        }, {});
+        setGroupedTools(Object.entries(groups));
+    };
+
+    // Sin cursor se parte de cero; con cursor se agrega la página siguiente a lo ya cargado
+    const loadTools = (after = null) => {
+        const params = { limit: PAGE_SIZE, after: after || undefined, namePrefix: namePrefix || undefined };
+        toolService.search(params).then(response => {
+            const loaded = after ? [...tools, ...response.data.items] : response.data.items;
+            setTools(loaded);
+            setNextCursor(response.data.nextCursor);
+            groupTools(loaded);
         });
     };
 
+    const init = () => loadTools();
+
     useEffect(() => {
         init();
     }, []);
 
+    const handleSearch = (e) => {
+        e.preventDefault();
+        loadTools();
+    };
+
     const handleEdit = (id) => {
         navigate(`/tools/edit/${id}`);
     };
@@ -152,7 +175,18 @@ const ToolList = () => {
                     </Button>
                 </Link>
             )}
-            
+
+            <Box component="form" onSubmit={handleSearch} sx={{ display: 'flex', alignItems: 'center', mt: 2 }}>
+                <TextField
+                    label="Buscar por nombre"
+                    value={namePrefix}
+                    onChange={(e) => setNamePrefix(e.target.value)}
+                    size="small"
+                />
+                <Button type="submit" variant="outlined" sx={{ ml: 2 }}>
+                    Buscar
+                </Button>
+            </Box>
 
             <TableContainer component={Paper} sx={{ mt: 2 }}>
                 <Table aria-label="collapsible table">
@@ -177,6 +211,12 @@ const ToolList = () => {
                     </TableBody>
                 </Table>
             </TableContainer>
+
+            {nextCursor && (
+                <Button variant="text" onClick={() => loadTools(nextCursor)} sx={{ mt: 1 }}>
+                    Cargar más
+                </Button>
+            )}
         </Box>
     );
 };
@@ -1,7 +1,7 @@
 import httpClient from "../http-common";
 
 const getAll = () => {
-    return httpClient.get('/api/v1/clients/');
+    return httpClient.get('/api/v1/clients/', { params: { unpaged: true } });
 }
 
 const create = data => {
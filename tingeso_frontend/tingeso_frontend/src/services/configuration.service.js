@@ -1,5 +1,10 @@
 import http from "../http-common";
 
+// Todas las tarifas en una sola respuesta: { daily_late_fee: 2000, repair_fee: 5000, ... }
+const getAll = () => {
+    return http.get("/config");
+};
+
 const getLateFee = () => {
     return http.get("/config/late-fee");
 };
@@ -18,6 +23,7 @@ const updateRepairFee = (data) => {
 };
 
 const configurationService = {
+    getAll,
     getLateFee,
     updateLateFee,
     getRepairFee,
@@ -1,7 +1,7 @@
 import http from "../http-common";
 
 const getAll = () => {
-    return http.get("/api/v1/fines/");
+    return http.get("/api/v1/fines/", { params: { unpaged: true } });
 };
 
 const pay = (id) => {
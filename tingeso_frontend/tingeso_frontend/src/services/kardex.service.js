@@ -3,7 +3,7 @@ import http from "../http-common";
 
 const getMovements = (params) => {
 
-    return http.get("/api/v1/kardex/", { params });
+    return http.get("/api/v1/kardex/", { params: { ...params, unpaged: true } });
 };
 
 const kardexService = {
@@ -1,7 +1,7 @@
 import httpClient from "../http-common";
 
 const getAll = () => {
-    return httpClient.get('/api/v1/loans/');
+    return httpClient.get('/api/v1/loans/', { params: { unpaged: true } });
 }
 
 const create = data => {
@@ -1,7 +1,17 @@
 import httpClient from "../http-common";
 
 const getAll = () => {
-    return httpClient.get('/api/v1/tools/');
+    return httpClient.get('/api/v1/tools/', { params: { unpaged: true } });
+}
+
+// Búsqueda paginada del catálogo: { category, status, namePrefix, minReplacementValue, after, limit }
+const search = params => {
+    return httpClient.get('/api/v1/tools/search', { params });
+}
+
+// Nombres y categorías distintos con cantidades por estado
+const getFacets = () => {
+    return httpClient.get('/api/v1/tools/facets');
 }
 
 const create = data => {
@@ -21,4 +31,4 @@ const remove = id => {
 }
 
 
-export default { getAll, create, get, update, remove };
\ No newline at end of file
+export default { getAll, search, getFacets, create, get, update, remove };
\ No newline at end of file